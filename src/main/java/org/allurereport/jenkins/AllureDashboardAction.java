@@ -0,0 +1,284 @@
+/*
+ *  Copyright 2016-2023 Qameta Software OÜ
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.allurereport.jenkins;
+
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import hudson.Extension;
+import hudson.model.AbstractItem;
+import hudson.model.Action;
+import hudson.model.ItemGroup;
+import hudson.model.Job;
+import hudson.model.ModelObject;
+import hudson.model.TopLevelItem;
+import hudson.model.TransientViewActionFactory;
+import hudson.model.View;
+import jenkins.model.Jenkins;
+import jenkins.model.TransientActionFactory;
+import org.allurereport.jenkins.utils.AllureAggregateIndex;
+import org.allurereport.jenkins.utils.JsonUtils;
+import org.allurereport.jenkins.utils.TrendPoint;
+import org.kohsuke.stapler.StaplerResponse;
+import org.kohsuke.stapler.WebMethod;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+
+/**
+ * Allure dashboard of a view or folder, listing the newest counters of every job with an Allure report.
+ * Served from the {@link AllureAggregateIndex}, so that no job or build is loaded to render it.
+ */
+public class AllureDashboardAction implements Action {
+
+    private static final String URL_NAME = "allure-dashboard";
+    private static final String SLASH = "/";
+
+    private final ModelObject owner;
+
+    public AllureDashboardAction(final ModelObject owner) {
+        this.owner = owner;
+    }
+
+    public ModelObject getOwner() {
+        return owner;
+    }
+
+    @Override
+    public String getIconFileName() {
+        return AllureAggregateIndex.get().isEmpty() ? null : AllureReportPlugin.getIconFilename();
+    }
+
+    @Override
+    public String getDisplayName() {
+        return Messages.AllureDashboardAction_Title();
+    }
+
+    @Override
+    public String getUrlName() {
+        return URL_NAME;
+    }
+
+    /**
+     * Returns the jobs of this view or folder that have an Allure report and are visible to the current user.
+     *
+     * @return the jobs, sorted by full name
+     */
+    @SuppressWarnings("PMD.AvoidInstantiatingObjectsInLoops")
+    public List<JobSummary> getJobs() {
+        final Map<String, Job<?, ?>> visible = new HashMap<>();
+        final SortedMap<String, List<TrendPoint>> points;
+        if (owner instanceof View) {
+            for (TopLevelItem item : ((View) owner).getItems()) {
+                for (Job<?, ?> job : item.getAllJobs()) {
+                    visible.put(job.getFullName(), job);
+                }
+            }
+            points = AllureAggregateIndex.get().read(visible::containsKey);
+        } else {
+            final String prefix = ((ItemGroup<?>) owner).getFullName() + SLASH;
+            points = AllureAggregateIndex.get().read(name -> name.startsWith(prefix));
+        }
+        final List<JobSummary> jobs = new ArrayList<>();
+        for (Map.Entry<String, List<TrendPoint>> entry : points.entrySet()) {
+            final Job<?, ?> job = visible.containsKey(entry.getKey())
+                    ? visible.get(entry.getKey())
+                    : Jenkins.get().getItemByFullName(entry.getKey(), Job.class);
+            if (job != null && !entry.getValue().isEmpty()) {
+                jobs.add(new JobSummary(job, entry.getValue()));
+            }
+        }
+        return jobs;
+    }
+
+    /**
+     * Sums the newest counters of the given jobs.
+     *
+     * @param jobs the jobs
+     * @return the totals, numbered by the count of jobs
+     */
+    public TrendPoint getTotals(final List<JobSummary> jobs) {
+        return sum(jobs, 0);
+    }
+
+    /**
+     * Sums the counters of the given jobs per build position, where position {@code 0} is the newest build of
+     * every job.
+     *
+     * @param jobs the jobs
+     * @return the sums, newest position first
+     */
+    public List<TrendPoint> getTrend(final List<JobSummary> jobs) {
+        final List<TrendPoint> trend = new ArrayList<>();
+        for (int position = 0; position < AllureAggregateIndex.get().getDepth(); position++) {
+            final TrendPoint point = sum(jobs, position);
+            if (point.getNumber() == 0) {
+                break;
+            }
+            trend.add(point);
+        }
+        return trend;
+    }
+
+    @WebMethod(name = "dashboard.json")
+    public void doDashboardJson(final StaplerResponse rsp) throws IOException {
+        final List<JobSummary> jobs = getJobs();
+        final ObjectNode root = JsonUtils.getMapper().createObjectNode();
+        write(root.putObject("totals"), getTotals(jobs));
+        final ArrayNode trend = root.putArray("trend");
+        for (TrendPoint point : getTrend(jobs)) {
+            write(trend.addObject(), point);
+        }
+        final ArrayNode items = root.putArray("jobs");
+        for (JobSummary job : jobs) {
+            final ObjectNode item = items.addObject()
+                    .put("name", job.getFullName())
+                    .put("url", job.getUrl())
+                    .put("failedChange", job.getFailedChange());
+            write(item.putObject("latest"), job.getLatest());
+        }
+        rsp.setContentType("application/json;charset=UTF-8");
+        rsp.setHeader("Cache-Control", "no-cache");
+        try (Writer writer = rsp.getWriter()) {
+            JsonUtils.getMapper().writeValue(writer, root);
+        }
+    }
+
+    private static void write(final ObjectNode node, final TrendPoint point) {
+        node.put("number", point.getNumber())
+                .put("failed", point.getFailed())
+                .put("broken", point.getBroken())
+                .put("passed", point.getPassed())
+                .put("skipped", point.getSkipped())
+                .put("unknown", point.getUnknown())
+                .put("total", point.getTotal())
+                .put("duration", point.getDuration());
+    }
+
+    private static TrendPoint sum(final List<JobSummary> jobs, final int position) {
+        int count = 0;
+        long failed = 0L;
+        long broken = 0L;
+        long passed = 0L;
+        long skipped = 0L;
+        long unknown = 0L;
+        long duration = 0L;
+        for (JobSummary job : jobs) {
+            final TrendPoint point = job.getPoint(position);
+            if (point != null) {
+                count++;
+                failed += point.getFailed();
+                broken += point.getBroken();
+                passed += point.getPassed();
+                skipped += point.getSkipped();
+                unknown += point.getUnknown();
+                duration += point.getDuration();
+            }
+        }
+        return new TrendPoint(count, failed, broken, passed, skipped, unknown, duration);
+    }
+
+    /**
+     * The recorded points of one job.
+     */
+    public static final class JobSummary {
+
+        private final Job<?, ?> job;
+        private final List<TrendPoint> points;
+
+        JobSummary(final Job<?, ?> job, final List<TrendPoint> points) {
+            this.job = job;
+            this.points = points;
+        }
+
+        public String getFullName() {
+            return job.getFullName();
+        }
+
+        public String getFullDisplayName() {
+            return job.getFullDisplayName();
+        }
+
+        public String getUrl() {
+            return job.getUrl();
+        }
+
+        public TrendPoint getLatest() {
+            return getPoint(0);
+        }
+
+        /**
+         * Returns the point at the given position, {@code 0} being the newest build.
+         *
+         * @param position the position
+         * @return the point, or {@code null} if fewer builds are recorded
+         */
+        public TrendPoint getPoint(final int position) {
+            final int index = points.size() - 1 - position;
+            return index >= 0 ? points.get(index) : null;
+        }
+
+        /**
+         * Returns how many more tests failed or broke in the newest build than in the one before.
+         *
+         * @return the change, {@code 0} if only one build is recorded
+         */
+        public long getFailedChange() {
+            final TrendPoint previous = getPoint(1);
+            final TrendPoint latest = getLatest();
+            return previous == null ? 0L
+                    : latest.getFailed() + latest.getBroken() - previous.getFailed() - previous.getBroken();
+        }
+    }
+
+    /**
+     * Adds the dashboard to every view.
+     */
+    @Extension
+    public static class ViewFactory extends TransientViewActionFactory {
+
+        @Override
+        public List<Action> createFor(final View view) {
+            return Collections.singletonList(new AllureDashboardAction(view));
+        }
+    }
+
+    /**
+     * Adds the dashboard to every folder.
+     */
+    @Extension
+    public static class FolderFactory extends TransientActionFactory<AbstractItem> {
+
+        @Override
+        public Class<AbstractItem> type() {
+            return AbstractItem.class;
+        }
+
+        @Override
+        public Collection<? extends Action> createFor(final AbstractItem target) {
+            if (target instanceof ItemGroup && !(target instanceof Job)) {
+                return Collections.singletonList(new AllureDashboardAction(target));
+            }
+            return Collections.emptyList();
+        }
+    }
+}
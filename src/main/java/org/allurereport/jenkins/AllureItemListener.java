@@ -0,0 +1,42 @@
+/*
+ *  Copyright 2016-2023 Qameta Software OÜ
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.allurereport.jenkins;
+
+import hudson.Extension;
+import hudson.model.Item;
+import hudson.model.listeners.ItemListener;
+import org.allurereport.jenkins.utils.AllureAggregateIndex;
+import org.allurereport.jenkins.utils.AllureTrendStore;
+
+/**
+ * Keeps the {@link AllureAggregateIndex} and the cached {@link AllureTrendStore}s in sync with deleted, renamed and
+ * moved jobs and folders.
+ */
+@Extension
+public class AllureItemListener extends ItemListener {
+
+    @Override
+    public void onDeleted(final Item item) {
+        AllureAggregateIndex.get().removeJob(item.getFullName());
+        AllureTrendStore.forget(item.getFullName());
+    }
+
+    @Override
+    public void onLocationChanged(final Item item, final String oldFullName, final String newFullName) {
+        AllureAggregateIndex.get().rename(oldFullName, newFullName);
+        AllureTrendStore.forget(oldFullName);
+    }
+}
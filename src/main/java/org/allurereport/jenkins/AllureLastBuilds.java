@@ -0,0 +1,153 @@
+/*
+ *  Copyright 2016-2023 Qameta Software OÜ
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.allurereport.jenkins;
+
+import hudson.model.Job;
+import hudson.model.Run;
+import org.allurereport.jenkins.utils.AllureTrendStore;
+import org.allurereport.jenkins.utils.TrendPoint;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Per-job pointer to the latest and the second latest completed builds with an {@link AllureReportBuildAction},
+ * so that project pages find the last report without walking the build history.
+ *
+ * <p>The pointer is resolved from the {@link AllureTrendStore} of the job on first use, falling back to a walk
+ * over the build history, and then kept current by {@link AllureRunListener} as builds complete and are deleted.
+ */
+final class AllureLastBuilds {
+
+    private static final int NONE = 0;
+
+    private static final Map<Job<?, ?>, AllureLastBuilds> POINTERS = Collections.synchronizedMap(new WeakHashMap<>());
+
+    private boolean resolved;
+    private int latest;
+    private int previous;
+
+    private AllureLastBuilds() {
+    }
+
+    static AllureLastBuilds forJob(final Job<?, ?> job) {
+        return POINTERS.computeIfAbsent(job, key -> new AllureLastBuilds());
+    }
+
+    /**
+     * Returns the report of the latest completed build with an Allure report.
+     *
+     * @param job the job this pointer belongs to
+     * @return the build action, {@code null} if no completed build has a report
+     */
+    AllureReportBuildAction getLatest(final Job<?, ?> job) {
+        final int number;
+        synchronized (this) {
+            resolve(job);
+            number = latest;
+        }
+        return action(job, number);
+    }
+
+    /**
+     * Returns the report of the completed build with an Allure report preceding the latest one.
+     *
+     * @param job the job this pointer belongs to
+     * @return the build action, {@code null} if fewer than two completed builds have a report
+     */
+    AllureReportBuildAction getPrevious(final Job<?, ?> job) {
+        final int number;
+        synchronized (this) {
+            resolve(job);
+            number = previous;
+        }
+        return action(job, number);
+    }
+
+    void completed(final Run<?, ?> run) {
+        final int number = run.getNumber();
+        synchronized (this) {
+            if (!resolved) {
+                return;
+            }
+            if (number > latest) {
+                previous = latest;
+                latest = number;
+            } else if (number > previous && number != latest) {
+                previous = number;
+            }
+        }
+    }
+
+    void deleted(final Run<?, ?> run) {
+        final int number = run.getNumber();
+        synchronized (this) {
+            if (number == latest || number == previous) {
+                resolved = false;
+            }
+        }
+    }
+
+    private void resolve(final Job<?, ?> job) {
+        if (resolved) {
+            return;
+        }
+        final AllureTrendStore store = AllureTrendStore.forJob(job);
+        latest = find(job, store, Integer.MAX_VALUE);
+        previous = latest == NONE ? NONE : find(job, store, latest);
+        resolved = true;
+    }
+
+    /**
+     * Looks up the newest completed build with a report before the given build number, skipping recorded builds
+     * that are still running or no longer exist. Builds missing from the trend, such as builds of older plugin
+     * versions that are not migrated yet, are found by walking the build history instead.
+     */
+    private static int find(final Job<?, ?> job, final AllureTrendStore store, final int before) {
+        TrendPoint point = store.previous(before);
+        for (int depth = AllureTrendStore.getMaxDepth(); point != null && depth > 0; depth--) {
+            if (hasReport(job.getBuildByNumber(point.getNumber()))) {
+                return point.getNumber();
+            }
+            point = store.previous(point.getNumber());
+        }
+        return walk(job, before);
+    }
+
+    private static int walk(final Job<?, ?> job, final int before) {
+        Run<?, ?> run = before == Integer.MAX_VALUE ? job.getLastBuild() : job.getNearestOldBuild(before - 1);
+        for (int depth = AllureTrendStore.getMaxDepth(); run != null && depth > 0; depth--) {
+            if (hasReport(run)) {
+                return run.getNumber();
+            }
+            run = run.getPreviousBuild();
+        }
+        return NONE;
+    }
+
+    private static boolean hasReport(final Run<?, ?> run) {
+        return run != null && !run.isBuilding() && run.getAction(AllureReportBuildAction.class) != null;
+    }
+
+    private static AllureReportBuildAction action(final Job<?, ?> job, final int number) {
+        if (number == NONE) {
+            return null;
+        }
+        final Run<?, ?> run = job.getBuildByNumber(number);
+        return run == null ? null : run.getAction(AllureReportBuildAction.class);
+    }
+}
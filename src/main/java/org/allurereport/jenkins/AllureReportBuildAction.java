@@ -21,54 +21,81 @@ import hudson.model.Action;
 import hudson.model.BuildBadgeAction;
 import hudson.model.Job;
 import hudson.model.Run;
-import hudson.util.ChartUtil;
 import hudson.util.DataSetBuilder;
-import hudson.util.Graph;
 import jenkins.model.RunAction2;
 import jenkins.model.lazy.LazyBuildMixIn;
 import jenkins.tasks.SimpleBuildStep;
+import jenkins.util.SystemProperties;
 import lombok.Getter;
 import lombok.Setter;
 import org.allurereport.jenkins.utils.AllureReportArchiveSource;
 import org.allurereport.jenkins.utils.AllureReportArchiveSourceFactory;
+import org.allurereport.jenkins.utils.AllureTrendStore;
+import org.allurereport.jenkins.utils.ArchiveEntryInfo;
 import org.allurereport.jenkins.utils.BuildSummary;
 import org.allurereport.jenkins.utils.ChartUtils;
 import org.allurereport.jenkins.utils.FilePathUtils;
-import org.jfree.chart.JFreeChart;
+import org.allurereport.jenkins.utils.GzipFraming;
+import org.allurereport.jenkins.utils.HttpCacheUtils;
+import org.allurereport.jenkins.utils.HttpRangeUtils;
+import org.allurereport.jenkins.utils.TrendGraph;
+import org.allurereport.jenkins.utils.TrendGraphCache;
+import org.allurereport.jenkins.utils.TrendPoint;
 import org.jfree.data.category.CategoryDataset;
 import org.kohsuke.stapler.HttpResponse;
 import org.kohsuke.stapler.StaplerRequest;
 import org.kohsuke.stapler.StaplerResponse;
+import org.kohsuke.stapler.export.Exported;
+import org.kohsuke.stapler.export.ExportedBean;
 
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletResponse;
 
+import java.awt.HeadlessException;
 import java.io.IOException;
 import java.io.InputStream;
-import java.lang.ref.WeakReference;
+import java.io.OutputStream;
 import java.net.URLDecoder;
 import java.nio.charset.StandardCharsets;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.zip.ZipEntry;
 
 import static java.lang.String.format;
 
 /**
  * {@link Action} that serves allure report from archive directory on master of a given build.
+ *
+ * <p>The counters, report URL, Allure major version and single-file flag are exported to the remote API from the
+ * fields stored with the build, so e.g. {@code api/json?tree=builds[number,actions[failedCount,reportUrl]]}
+ * does not open any report archive.
  */
-@SuppressWarnings({"ClassDataAbstractionCoupling", "PMD.GodClass"})
+@ExportedBean
+@SuppressWarnings({"ClassDataAbstractionCoupling", "PMD.GodClass", "PMD.NcssCount", "PMD.TooManyMethods"})
 public class AllureReportBuildAction implements BuildBadgeAction, RunAction2, SimpleBuildStep.LastBuildAction {
 
     private static final Logger LOGGER = Logger.getLogger(AllureReportBuildAction.class.getName());
 
+    private static final boolean PREVIOUS_RESULT_FROM_LOADED_BUILDS = SystemProperties.getBoolean(
+            AllureReportBuildAction.class.getName() + ".previousResultFromLoadedBuilds");
+
     private static final String ALLURE_REPORT = "allure-report";
     private static final String CACHE_CONTROL = "Cache-Control";
     private static final String CACHE_CONTROL_NO_CACHE = "no-cache, no-store, must-revalidate";
     private static final String CACHE_CONTROL_POST_CHECK = "post-check=0, pre-check=0";
+    private static final String CACHE_CONTROL_IMMUTABLE = "private, max-age=31536000, immutable";
+    private static final String CACHE_CONTROL_REVALIDATE = "private, no-cache";
     private static final String HEADER_PRAGMA = "Pragma";
     private static final String HEADER_PRAGMA_NO_CACHE = "no-cache";
     private static final String HEADER_EXPIRES = "Expires";
@@ -78,31 +105,69 @@ public class AllureReportBuildAction implements BuildBadgeAction, RunAction2, Si
     private static final String HEADER_X_CONTENT_TYPE_OPTIONS = "X-Content-Type-Options";
     private static final String HEADER_NOSNIFF = "nosniff";
     private static final String HEADER_CONTENT_DISPOSITION = "Content-Disposition";
+    private static final String HEADER_CONTENT_ENCODING = "Content-Encoding";
+    private static final String HEADER_ACCEPT_ENCODING = "Accept-Encoding";
+    private static final String HEADER_VARY = "Vary";
+    private static final String ENCODING_GZIP = "gzip";
+    private static final String DEFAULT_CONTENT_TYPE = "application/octet-stream";
     private static final String INDEX_HTML = "index.html";
     private static final String ALLURE_REPORT_ZIP = "allure-report.zip";
     private static final String SLASH = "/";
     private static final String PATH_TRAVERSAL = "..";
     private static final String ILLEGAL_PATH = "Illegal path";
+    private static final int GRAPH_WIDTH = 600;
+    private static final int GRAPH_HEIGHT = 300;
+    private static final String KEY_FAILED = "failed";
+    private static final String KEY_BROKEN = "broken";
+    private static final String KEY_PASSED = "passed";
+    private static final String KEY_SKIPPED = "skipped";
+    private static final String KEY_UNKNOWN = "unknown";
 
     private Run<?, ?> run;
 
-    private transient WeakReference<BuildSummary> buildSummary;
-    @SuppressWarnings("PMD.ImmutableField")
-    private transient BuildSummary cachedSummary;
+    /**
+     * The summary of this build, loaded by the first caller and shared with concurrent ones.
+     */
+    private transient AtomicReference<CompletableFuture<BuildSummary>> summary;
     private final boolean allure3;
     private String reportPath;
 
-    @Getter
+    /**
+     * Whether the counters below were stored. Actions saved by older versions have to read them
+     * from the report once. Written after the counters, so that a reader seeing it set sees them too.
+     */
+    @SuppressWarnings("PMD.AvoidUsingVolatile")
+    private volatile boolean summaryStored;
+    private long failedCount;
+    private long brokenCount;
+    private long passedCount;
+    private long skipCount;
+    private long unknownCount;
+    private long duration;
+
     @Setter
     private boolean singleFile;
 
+    /**
+     * Fingerprint of the results and report configuration the report was generated from, {@code null} for
+     * builds recorded by older versions.
+     */
+    @Getter
+    @Setter
+    private String resultsFingerprint;
+
     AllureReportBuildAction(final BuildSummary buildSummary, final boolean allure3) {
-        this.cachedSummary = buildSummary;
-        this.buildSummary = new WeakReference<>(buildSummary);
+        storeSummary(buildSummary);
+        this.summary = new AtomicReference<>(CompletableFuture.completedFuture(buildSummary));
         this.reportPath = ALLURE_REPORT;
         this.allure3 = allure3;
     }
 
+    protected Object readResolve() {
+        this.summary = new AtomicReference<>();
+        return this;
+    }
+
     private String getReportPath() {
         return this.reportPath == null ? ALLURE_REPORT : this.reportPath;
     }
@@ -115,71 +180,214 @@ public class AllureReportBuildAction implements BuildBadgeAction, RunAction2, Si
     }
 
     public void doGraph(final StaplerRequest req, final StaplerResponse rsp) throws IOException {
-        final CategoryDataset data = buildDataSet();
-
-        new Graph(-1, 600, 300) {
-            @Override
-            protected JFreeChart createGraph() {
-                return ChartUtils.createChart(req, data);
+        final TrendGraph graph = renderGraph(req, rsp);
+        if (graph != null) {
+            rsp.setContentType("image/png");
+            rsp.setContentLength(graph.getPngLength());
+            try (OutputStream out = rsp.getOutputStream()) {
+                graph.writePng(out);
             }
-        }.doPng(req, rsp);
+        }
     }
 
     public void doGraphMap(final StaplerRequest req, final StaplerResponse rsp) throws IOException {
-        final CategoryDataset data = buildDataSet();
+        final TrendGraph graph = renderGraph(req, rsp);
+        if (graph != null) {
+            rsp.setContentType("text/plain;charset=UTF-8");
+            rsp.getWriter().println(graph.getImageMap());
+        }
+    }
 
-        new Graph(-1, 600, 300) {
-            @Override
-            protected JFreeChart createGraph() {
-                return ChartUtils.createChart(req, data);
-            }
-        }.doMap(req, rsp);
+    /**
+     * Returns the trend graph of this build, rendered once per newest Allure build, trend version and request
+     * parameters, or {@code null} if the response was already sent.
+     */
+    private TrendGraph renderGraph(final StaplerRequest req, final StaplerResponse rsp) throws IOException {
+        final AllureTrendStore store = AllureTrendStore.forJob(run.getParent());
+        final long lastModified = store.getLastModified();
+        if (lastModified > 0 && req.checkIfModified(lastModified, rsp)) {
+            return null;
+        }
+        final TrendPoint newest = store.latest(run.getNumber());
+        final ChartUtils.GraphSize size = ChartUtils.graphSize(req, GRAPH_WIDTH, GRAPH_HEIGHT);
+        final String key = run.getParent().getFullName() + '#' + (newest == null ? 0 : newest.getNumber())
+                + ':' + store.getVersion() + ':' + AllureTrendStore.getWindow()
+                + ':' + ChartUtils.renderParameters(req, size);
+        try {
+            return TrendGraphCache.get().get(key, () -> ChartUtils.render(req, buildDataSet(store), size));
+        } catch (HeadlessException e) {
+            rsp.sendRedirect2(req.getContextPath() + "/images/headless.png");
+            return null;
+        }
     }
 
     public boolean hasSummaryLink() {
-        return this.buildSummary != null;
+        return this.summaryStored;
     }
 
+    /**
+     * Returns the summary of this build. The summary of a build recorded by an older plugin version is read
+     * from its report by the first caller only, concurrent callers wait for its result. If it can not be read,
+     * zero counters are returned until the build is loaded again, without storing them.
+     *
+     * @return the build summary
+     */
+    @SuppressWarnings("PMD.AvoidInstantiatingObjectsInLoops")
     public BuildSummary getBuildSummary() {
-        if (this.cachedSummary != null) {
-            return this.cachedSummary;
+        while (true) {
+            final CompletableFuture<BuildSummary> current = summary.get();
+            if (current != null) {
+                return join(current);
+            }
+            final CompletableFuture<BuildSummary> load = new CompletableFuture<>();
+            if (summary.compareAndSet(null, load)) {
+                complete(load);
+                return join(load);
+            }
         }
-        if (this.buildSummary == null || this.buildSummary.get() == null) {
-            this.buildSummary = new WeakReference<>(FilePathUtils.extractSummary(run, this.getReportPath(), allure3));
+    }
+
+    /**
+     * Waits for the summary, rethrowing the failure of the caller that loaded it as is.
+     */
+    private static BuildSummary join(final CompletableFuture<BuildSummary> load) {
+        try {
+            return load.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
         }
-        final BuildSummary data = this.buildSummary.get();
-        return data != null ? data : new BuildSummary();
     }
 
+    @Exported
     public long getFailedCount() {
         return getBuildSummary().getFailedCount();
     }
 
+    @Exported
     public long getPassedCount() {
         return getBuildSummary().getPassedCount();
     }
 
+    @Exported
     public long getSkipCount() {
         return getBuildSummary().getSkipCount();
     }
 
+    @Exported
     public long getBrokenCount() {
         return getBuildSummary().getBrokenCount();
     }
 
+    @Exported
     public long getUnknownCount() {
         return getBuildSummary().getUnknownCount();
     }
 
+    @Exported
+    public long getDuration() {
+        return getBuildSummary().getDuration();
+    }
+
+    private void complete(final CompletableFuture<BuildSummary> load) {
+        final boolean restored;
+        try {
+            restored = !summaryStored && restoreSummary();
+        } catch (RuntimeException e) {
+            summary.compareAndSet(load, null);
+            load.completeExceptionally(e);
+            throw e;
+        }
+        load.complete(storedSummary());
+        if (restored) {
+            AllureTrendStore.forJob(run.getParent()).record(TrendPoint.of(run.getNumber(), this));
+        }
+    }
+
+    private void storeSummary(final BuildSummary buildSummary) {
+        this.failedCount = buildSummary.getFailedCount();
+        this.brokenCount = buildSummary.getBrokenCount();
+        this.passedCount = buildSummary.getPassedCount();
+        this.skipCount = buildSummary.getSkipCount();
+        this.unknownCount = buildSummary.getUnknownCount();
+        this.duration = buildSummary.getDuration();
+        this.summaryStored = true;
+    }
+
+    /**
+     * Reads the summary of a build recorded by an older plugin version from its report and saves it with the
+     * build. A summary that can not be read is not stored, so that it is read again once the build is reloaded.
+     *
+     * @return whether the summary was read
+     */
+    private boolean restoreSummary() {
+        final Optional<BuildSummary> extracted = FilePathUtils.readSummary(run, this.getReportPath(), allure3);
+        if (!extracted.isPresent()) {
+            LOGGER.log(Level.FINE, "Unable to read Allure summary of {0}", run.getFullDisplayName());
+            return false;
+        }
+        storeSummary(extracted.get());
+        if (!run.isBuilding()) {
+            try {
+                run.save();
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, "Unable to save Allure summary of " + run.getFullDisplayName(), e);
+            }
+        }
+        return true;
+    }
+
+    private BuildSummary storedSummary() {
+        final Map<String, Integer> statistics = new HashMap<>(5);
+        statistics.put(KEY_FAILED, (int) failedCount);
+        statistics.put(KEY_BROKEN, (int) brokenCount);
+        statistics.put(KEY_PASSED, (int) passedCount);
+        statistics.put(KEY_SKIPPED, (int) skipCount);
+        statistics.put(KEY_UNKNOWN, (int) unknownCount);
+        return new BuildSummary().withStatistics(statistics).withDuration(duration);
+    }
+
+    @Exported
     public long getTotalCount() {
         return getFailedCount() + getBrokenCount() + getPassedCount()
             + getSkipCount() + getUnknownCount();
     }
 
+    @Exported
+    public boolean isSingleFile() {
+        return singleFile;
+    }
+
+    /**
+     * Returns the major version of Allure that generated the report.
+     *
+     * @return {@code 3} for Allure 3 reports, {@code 2} otherwise
+     */
+    @Exported
+    public int getAllureVersion() {
+        return allure3 ? 3 : 2;
+    }
+
+    /**
+     * Returns the URL of the report relative to the Jenkins root.
+     *
+     * @return the report URL
+     */
+    @Exported
+    public String getReportUrl() {
+        return run.getUrl() + AllureReportPlugin.URL_PATH + SLASH;
+    }
+
     public String getBuildNumber() {
         return run.getId();
     }
 
+    int getRunNumber() {
+        return run.getNumber();
+    }
+
     @Override
     public String getDisplayName() {
         return Messages.AllureReportPlugin_Title();
@@ -195,8 +403,29 @@ public class AllureReportBuildAction implements BuildBadgeAction, RunAction2, Si
         return AllureReportPlugin.URL_PATH;
     }
 
+    /**
+     * Returns the action of the previous build with an Allure report. The builds are looked up by the
+     * numbers recorded in the {@link AllureTrendStore}, so only builds with a report are loaded. With
+     * {@code org.allurereport.jenkins.AllureReportBuildAction.previousResultFromLoadedBuilds} set, only builds
+     * that are already in memory are visited instead.
+     *
+     * @return the previous action, or {@code null} if there is none
+     */
     public AllureReportBuildAction getPreviousResult() {
-        return getPreviousResult(true);
+        if (PREVIOUS_RESULT_FROM_LOADED_BUILDS) {
+            return getPreviousResult(false);
+        }
+        final AllureTrendStore store = AllureTrendStore.forJob(run.getParent());
+        TrendPoint point = store.previous(run.getNumber());
+        for (int depth = AllureTrendStore.getMaxDepth(); point != null && depth > 0; depth--) {
+            final Run<?, ?> b = run.getParent().getBuildByNumber(point.getNumber());
+            final AllureReportBuildAction r = b == null ? null : b.getAction(AllureReportBuildAction.class);
+            if (r != null) {
+                return checkPrevious(r, b);
+            }
+            point = store.previous(point.getNumber());
+        }
+        return null;
     }
 
     //copied from junit-plugin
@@ -210,7 +439,7 @@ public class AllureReportBuildAction implements BuildBadgeAction, RunAction2, Si
         } else {
             loadedBuilds = null;
         }
-        while (true) {
+        for (int depth = AllureTrendStore.getMaxDepth(); depth > 0; depth--) {
             b = loadedBuilds == null
                 || loadedBuilds.contains(b.number - /* assuming there are no gaps */1)
                 ? b.getPreviousBuild() : null;
@@ -219,15 +448,20 @@ public class AllureReportBuildAction implements BuildBadgeAction, RunAction2, Si
             }
             final AllureReportBuildAction r = b.getAction(AllureReportBuildAction.class);
             if (r != null) {
-                if (r.equals(this)) {
-                    throw new IllegalStateException(format(WAS_ATTACHED_TO_BOTH, this, b, run));
-                }
-                if (r.run.number != b.number) {
-                    throw new IllegalStateException(format(WAS_ATTACHED_TO_BOTH, r, b, r.run));
-                }
-                return r;
+                return checkPrevious(r, b);
             }
         }
+        return null;
+    }
+
+    private AllureReportBuildAction checkPrevious(final AllureReportBuildAction r, final Run<?, ?> b) {
+        if (r.equals(this)) {
+            throw new IllegalStateException(format(WAS_ATTACHED_TO_BOTH, this, b, run));
+        }
+        if (r.run.number != b.number) {
+            throw new IllegalStateException(format(WAS_ATTACHED_TO_BOTH, r, b, r.run));
+        }
+        return r;
     }
 
     //copied from junit-plugin
@@ -242,17 +476,15 @@ public class AllureReportBuildAction implements BuildBadgeAction, RunAction2, Si
         return Collections.singleton(new AllureReportProjectAction(job));
     }
 
-    @SuppressWarnings("PMD.AvoidInstantiatingObjectsInLoops")
-    private CategoryDataset buildDataSet() {
-        final DataSetBuilder<String, ChartUtil.NumberOnlyBuildLabel> dsb = new DataSetBuilder<>();
-
-        for (AllureReportBuildAction a = this; a != null; a = a.getPreviousResult()) {
-            final ChartUtil.NumberOnlyBuildLabel columnKey = new ChartUtil.NumberOnlyBuildLabel(a.run);
-            dsb.add(a.getFailedCount(), "a_failed", columnKey);
-            dsb.add(a.getBrokenCount(), "b_broken", columnKey);
-            dsb.add(a.getPassedCount(), "c_passed", columnKey);
-            dsb.add(a.getSkipCount(), "d_skipped", columnKey);
-            dsb.add(a.getUnknownCount(), "e_unknown", columnKey);
+    private CategoryDataset buildDataSet(final AllureTrendStore store) {
+        final DataSetBuilder<String, TrendPoint> dsb = new DataSetBuilder<>();
+        final List<TrendPoint> points = store.read(run.getNumber(), AllureTrendStore.getWindow());
+        for (TrendPoint point : points) {
+            dsb.add(point.getFailed(), "a_failed", point);
+            dsb.add(point.getBroken(), "b_broken", point);
+            dsb.add(point.getPassed(), "c_passed", point);
+            dsb.add(point.getSkipped(), "d_skipped", point);
+            dsb.add(point.getUnknown(), "e_unknown", point);
         }
         return dsb.build();
     }
@@ -265,6 +497,7 @@ public class AllureReportBuildAction implements BuildBadgeAction, RunAction2, Si
     @Override
     public void onAttached(final Run<?, ?> attachedRun) {
         this.run = attachedRun;
+        AllureTrendStore.forJob(attachedRun.getParent()).record(TrendPoint.of(attachedRun.getNumber(), this));
     }
 
     @Override
@@ -282,7 +515,8 @@ public class AllureReportBuildAction implements BuildBadgeAction, RunAction2, Si
 
         final AllureReportArchiveSource archiveSource = AllureReportArchiveSourceFactory.forRun(run);
         if (archiveSource.exists()) {
-            return new ArchiveReportBrowser(archiveSource, reportDirName, reportDirectoryUnderBuild.getRemote());
+            return new ArchiveReportBrowser(archiveSource, reportDirName, reportDirectoryUnderBuild.getRemote(),
+                    !run.isBuilding());
         }
         archiveSource.close();
 
@@ -352,6 +586,11 @@ public class AllureReportBuildAction implements BuildBadgeAction, RunAction2, Si
         return decodedPath;
     }
 
+    private static String contentType(final StaplerRequest request, final String fileName) {
+        final String contentType = request.getServletContext().getMimeType(fileName);
+        return contentType != null ? contentType : DEFAULT_CONTENT_TYPE;
+    }
+
     private static final class DirectoryReportBrowser implements HttpResponse {
 
         private final FilePath baseDirectory;
@@ -444,9 +683,16 @@ public class AllureReportBuildAction implements BuildBadgeAction, RunAction2, Si
 
         private void serveFile(final StaplerRequest request,
                                final StaplerResponse response,
-                               final FilePath fileToServe) throws IOException, ServletException {
+                               final FilePath fileToServe) throws IOException {
             try (InputStream inputStream = fileToServe.read()) {
-                response.serveFile(request, inputStream, -1L, -1L, -1L, fileToServe.getName());
+                final long length = fileToServe.length();
+                final String contentType = contentType(request, fileToServe.getName());
+                final List<HttpRangeUtils.Range> ranges = HttpRangeUtils.requestedRanges(request, length, null, 0L);
+                if (ranges != null) {
+                    HttpRangeUtils.serve(response, inputStream, length, ranges, contentType);
+                    return;
+                }
+                HttpRangeUtils.serveFull(response, inputStream, length, contentType);
             } catch (InterruptedException interrupted) {
                 Thread.currentThread().interrupt();
                 throw new IOException("Interrupted while reading report file", interrupted);
@@ -457,19 +703,26 @@ public class AllureReportBuildAction implements BuildBadgeAction, RunAction2, Si
     /**
      * Browser that serves report files from an {@link AllureReportArchiveSource}
      * (local zip or remote artifact storage).
+     *
+     * <p>The archive of a completed build never changes, so its entries are served with validators
+     * and may be cached by the browser. Entries of a running build are never cached, as the archive
+     * can still be replaced by a later publisher step.
      */
     private static final class ArchiveReportBrowser implements HttpResponse {
 
         private final AllureReportArchiveSource source;
         private final String reportPath;
         private final String reportDirectoryPath;
+        private final boolean cacheable;
 
         ArchiveReportBrowser(final AllureReportArchiveSource source,
                              final String reportPath,
-                             final String reportDirectoryPath) {
+                             final String reportDirectoryPath,
+                             final boolean cacheable) {
             this.source = source;
             this.reportPath = reportPath;
             this.reportDirectoryPath = reportDirectoryPath;
+            this.cacheable = cacheable;
         }
 
         @Override
@@ -489,10 +742,12 @@ public class AllureReportBuildAction implements BuildBadgeAction, RunAction2, Si
 
                 rsp.setHeader(HEADER_CONTENT_SECURITY_POLICY, "");
                 rsp.setHeader(HEADER_X_CONTENT_TYPE_OPTIONS, HEADER_NOSNIFF);
-                rsp.setHeader(CACHE_CONTROL, CACHE_CONTROL_NO_CACHE);
-                rsp.addHeader(CACHE_CONTROL, CACHE_CONTROL_POST_CHECK);
-                rsp.setHeader(HEADER_PRAGMA, HEADER_PRAGMA_NO_CACHE);
-                rsp.setDateHeader(HEADER_EXPIRES, 0);
+                if (!cacheable) {
+                    rsp.setHeader(CACHE_CONTROL, CACHE_CONTROL_NO_CACHE);
+                    rsp.addHeader(CACHE_CONTROL, CACHE_CONTROL_POST_CHECK);
+                    rsp.setHeader(HEADER_PRAGMA, HEADER_PRAGMA_NO_CACHE);
+                    rsp.setDateHeader(HEADER_EXPIRES, 0);
+                }
 
                 final String rest = normalizeRestOfPath(req, rsp);
                 if (rest == null) {
@@ -538,14 +793,106 @@ public class AllureReportBuildAction implements BuildBadgeAction, RunAction2, Si
                                       final String path)
                 throws IOException, InterruptedException, ServletException {
             final String entryPath = reportPath + path;
+            final ArchiveEntryInfo info = sourceToRead.entryInfo(entryPath);
+            final boolean gzip = info != null && canServeGzip(req, info);
+            if (info != null && isNotModified(req, info, gzip)) {
+                setValidators(rsp, info, gzip, path);
+                rsp.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+                return true;
+            }
+            if (gzip && tryServeStoredEntry(req, rsp, sourceToRead, info, path)) {
+                return true;
+            }
             try (InputStream is = sourceToRead.openEntry(entryPath)) {
-                rsp.serveFile(req, is, -1L, -1L, -1L, fileName(path));
+                if (info == null || info.getSize() < 0) {
+                    if (info != null) {
+                        setValidators(rsp, info, false, path);
+                    }
+                    rsp.serveFile(req, is, -1L, -1L, -1L, fileName(path));
+                } else {
+                    serveWithRanges(req, rsp, is, info, path);
+                }
                 return true;
             } catch (NoSuchElementException ignored) {
                 return false;
             }
         }
 
+        private void serveWithRanges(final StaplerRequest req,
+                                     final StaplerResponse rsp,
+                                     final InputStream is,
+                                     final ArchiveEntryInfo info,
+                                     final String path) throws IOException {
+            setValidators(rsp, info, false, path);
+            final List<HttpRangeUtils.Range> ranges = HttpRangeUtils.requestedRanges(req, info.getSize(),
+                    cacheable ? HttpCacheUtils.entityTag(info) : null,
+                    cacheable ? info.getArchiveLastModified() : 0L);
+            if (ranges != null) {
+                HttpRangeUtils.serve(rsp, is, info.getSize(), ranges, contentType(req, fileName(path)));
+                return;
+            }
+            HttpRangeUtils.serveFull(rsp, is, info.getSize(), contentType(req, fileName(path)));
+        }
+
+        /**
+         * Sends the stored DEFLATE data of an entry framed as gzip, skipping inflate and re-compression.
+         * Plain {@code Content-Encoding: deflate} is not used, as it means zlib framing whose Adler-32
+         * checksum can not be computed without inflating the entry.
+         */
+        private boolean tryServeStoredEntry(final StaplerRequest req,
+                                            final StaplerResponse rsp,
+                                            final AllureReportArchiveSource sourceToRead,
+                                            final ArchiveEntryInfo info,
+                                            final String path)
+                throws IOException, InterruptedException {
+            try (InputStream raw = sourceToRead.openStoredEntry(info.getName())) {
+                if (raw == null) {
+                    return false;
+                }
+                setValidators(rsp, info, true, path);
+                rsp.setContentType(contentType(req, fileName(path)));
+                rsp.setHeader(HEADER_CONTENT_ENCODING, ENCODING_GZIP);
+                rsp.setContentLengthLong(info.getCompressedSize() + GzipFraming.OVERHEAD);
+                GzipFraming.write(raw, info.getCrc(), info.getSize(), rsp.getOutputStream());
+                return true;
+            }
+        }
+
+        private boolean canServeGzip(final StaplerRequest req, final ArchiveEntryInfo info) {
+            return info.getMethod() == ZipEntry.DEFLATED && info.getCrc() >= 0
+                    && req.getHeader(HttpRangeUtils.HEADER_RANGE) == null
+                    && GzipFraming.acceptsGzip(req.getHeader(HEADER_ACCEPT_ENCODING));
+        }
+
+        private boolean isNotModified(final StaplerRequest req, final ArchiveEntryInfo info, final boolean gzip) {
+            return cacheable && HttpCacheUtils.isNotModified(
+                    req.getHeader(HttpCacheUtils.HEADER_IF_NONE_MATCH), ifModifiedSince(req),
+                    HttpCacheUtils.entityTag(info, gzip), info.getArchiveLastModified());
+        }
+
+        private void setValidators(final StaplerResponse rsp,
+                                   final ArchiveEntryInfo info,
+                                   final boolean gzip,
+                                   final String path) {
+            rsp.setHeader(HEADER_VARY, HEADER_ACCEPT_ENCODING);
+            if (!cacheable) {
+                return;
+            }
+            rsp.setHeader(HttpCacheUtils.HEADER_ETAG, HttpCacheUtils.entityTag(info, gzip));
+            rsp.setDateHeader(HttpCacheUtils.HEADER_LAST_MODIFIED, info.getArchiveLastModified());
+            rsp.setHeader(CACHE_CONTROL, INDEX_HTML.equals(fileName(path))
+                    ? CACHE_CONTROL_REVALIDATE
+                    : CACHE_CONTROL_IMMUTABLE);
+        }
+
+        private long ifModifiedSince(final StaplerRequest req) {
+            try {
+                return req.getDateHeader(HttpCacheUtils.HEADER_IF_MODIFIED_SINCE);
+            } catch (IllegalArgumentException ignored) {
+                return -1L;
+            }
+        }
+
         private String candidateIndexPath(final String path) {
             return path.endsWith(SLASH) ? path + INDEX_HTML : path + SLASH + INDEX_HTML;
         }
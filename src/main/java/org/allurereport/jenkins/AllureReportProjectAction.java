@@ -15,16 +15,45 @@
  */
 package org.allurereport.jenkins;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import hudson.model.Action;
 import hudson.model.Job;
 import hudson.model.ProminentProjectAction;
-import hudson.model.Run;
-import org.kohsuke.stapler.StaplerProxy;
+import jenkins.util.SystemProperties;
+import org.allurereport.jenkins.utils.AllureTrendStore;
+import org.allurereport.jenkins.utils.JsonUtils;
+import org.allurereport.jenkins.utils.TrendPoint;
+import org.kohsuke.stapler.QueryParameter;
+import org.kohsuke.stapler.StaplerRequest;
+import org.kohsuke.stapler.StaplerResponse;
+import org.kohsuke.stapler.WebMethod;
+
+import javax.servlet.http.HttpServletResponse;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
 
 /**
  * {@link Action} that shows link to the allure report on the project page.
+ *
+ * <p>The report itself is served by the last build with an Allure report, to which the index and all paths
+ * of the report redirect. The trend and the test history of the job are served here.
  */
-public class AllureReportProjectAction implements ProminentProjectAction, StaplerProxy {
+public class AllureReportProjectAction implements ProminentProjectAction {
+
+    /**
+     * Draws the trend in the browser from {@code trend.json} instead of rendering it on the controller.
+     */
+    private static final boolean CLIENT_SIDE_TREND = SystemProperties.getBoolean(
+            AllureReportProjectAction.class.getName() + ".clientSideTrend");
+
+    private static final String TREND_JSON = "trend.json";
+    private static final String SLASH = "/";
+    private static final String KEY_NEXT = "next";
+    private static final int MAX_TREND_LIMIT = 1000;
 
     private final Job<?, ?> job;
 
@@ -47,38 +76,106 @@ public class AllureReportProjectAction implements ProminentProjectAction, Staple
         return AllureReportPlugin.URL_PATH;
     }
 
-    @Override
-    public Object getTarget() {
-        final Run<?, ?> last = job.getLastCompletedBuild();
-        return last == null ? null : last.getAction(AllureReportBuildAction.class);
+    /**
+     * Redirects to the report of the last build with an Allure report.
+     *
+     * @param req the request
+     * @param rsp the response
+     * @throws IOException if the response can not be sent
+     */
+    public void doIndex(final StaplerRequest req, final StaplerResponse rsp) throws IOException {
+        redirectToLastReport(req, rsp);
+    }
+
+    /**
+     * Redirects paths of the report, e.g. {@code data/suites.json}, to the report of the last build with an
+     * Allure report.
+     *
+     * @param req the request
+     * @param rsp the response
+     * @throws IOException if the response can not be sent
+     */
+    public void doDynamic(final StaplerRequest req, final StaplerResponse rsp) throws IOException {
+        redirectToLastReport(req, rsp);
+    }
+
+    private void redirectToLastReport(final StaplerRequest req, final StaplerResponse rsp) throws IOException {
+        final AllureReportBuildAction last = getLastAllureBuildAction();
+        if (last == null) {
+            rsp.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        final String restOfPath = req.getRestOfPath();
+        final String query = req.getQueryString();
+        rsp.sendRedirect2(req.getContextPath() + SLASH + last.getBuildUrl() + getUrlName()
+                + (restOfPath == null || restOfPath.isEmpty() ? SLASH : restOfPath)
+                + (query == null ? "" : '?' + query));
+    }
+
+    /**
+     * Returns the test level history of this job, served as {@code tests/}.
+     *
+     * @return the test history
+     */
+    public AllureTestHistory getTests() {
+        return new AllureTestHistory(job);
     }
 
     public boolean isCanBuildGraph() {
-        int dataPointsCount = 0;
-        for (AllureReportBuildAction allureBuildAction = getLastAllureBuildAction();
-             allureBuildAction != null && dataPointsCount < 2;
-             allureBuildAction = allureBuildAction.getPreviousResult()) {
-            dataPointsCount++;
+        return AllureLastBuilds.forJob(job).getPrevious(job) != null;
+    }
+
+    public boolean isClientSideTrend() {
+        return CLIENT_SIDE_TREND;
+    }
+
+    /**
+     * Serves the recorded trend of this job, newest builds last. Pages are requested with {@code limit}
+     * (the trend window by default) and {@code before}, the build number to continue from, which is
+     * returned as {@code next} while older builds remain.
+     */
+    @WebMethod(name = TREND_JSON)
+    public void doTrendJson(final StaplerRequest req,
+                            final StaplerResponse rsp,
+                            @QueryParameter final Integer limit,
+                            @QueryParameter final Integer before) throws IOException {
+        final int size = limit == null || limit <= 0
+                ? Math.min(AllureTrendStore.getWindow(), MAX_TREND_LIMIT)
+                : Math.min(limit, MAX_TREND_LIMIT);
+        final int upToNumber = before == null ? Integer.MAX_VALUE : before - 1;
+        final List<TrendPoint> points = AllureTrendStore.forJob(job).read(upToNumber, size + 1);
+        final boolean hasMore = points.size() > size;
+        final List<TrendPoint> page = hasMore ? points.subList(1, points.size()) : points;
+
+        final ObjectMapper mapper = JsonUtils.getMapper();
+        final ObjectNode root = mapper.createObjectNode();
+        final ArrayNode builds = root.putArray("builds");
+        for (TrendPoint point : page) {
+            builds.addObject()
+                    .put("number", point.getNumber())
+                    .put("failed", point.getFailed())
+                    .put("broken", point.getBroken())
+                    .put("passed", point.getPassed())
+                    .put("skipped", point.getSkipped())
+                    .put("unknown", point.getUnknown())
+                    .put("total", point.getTotal())
+                    .put("duration", point.getDuration())
+                    .put("url", point.getNumber() + SLASH + AllureReportPlugin.URL_PATH + SLASH);
+        }
+        if (hasMore) {
+            root.put(KEY_NEXT, page.get(0).getNumber());
+        } else {
+            root.putNull(KEY_NEXT);
+        }
+
+        rsp.setContentType("application/json;charset=UTF-8");
+        rsp.setHeader("Cache-Control", "no-cache");
+        try (Writer writer = rsp.getWriter()) {
+            mapper.writeValue(writer, root);
         }
-        return dataPointsCount >= 2;
     }
 
-    //copied from junit-plugin
     public AllureReportBuildAction getLastAllureBuildAction() {
-        final Run<?, ?> tb = job.getLastSuccessfulBuild();
-        Run<?, ?> b = job.getLastBuild();
-        while (b != null) {
-            final AllureReportBuildAction a = b.getAction(AllureReportBuildAction.class);
-            if (a != null && !b.isBuilding()) {
-                return a;
-            }
-            if (b.equals(tb)) {
-                // if even the last successful build didn't produce the test result,
-                // that means we just don't have any tests configured.
-                return null;
-            }
-            b = b.getPreviousBuild();
-        }
-        return null;
+        return AllureLastBuilds.forJob(job).getLatest(job);
     }
 }
@@ -20,6 +20,7 @@ import edu.umd.cs.findbugs.annotations.Nullable;
 import hudson.EnvVars;
 import hudson.FilePath;
 import hudson.Launcher;
+import hudson.Util;
 import hudson.matrix.MatrixAggregatable;
 import hudson.matrix.MatrixAggregator;
 import hudson.matrix.MatrixBuild;
@@ -33,42 +34,60 @@ import hudson.model.Run;
 import hudson.model.TaskListener;
 import hudson.tasks.BuildStepMonitor;
 import hudson.tasks.Recorder;
+import jenkins.MasterToSlaveFileCallable;
 import jenkins.model.Jenkins;
 import jenkins.tasks.SimpleBuildStep;
 import jenkins.util.BuildListenerAdapter;
+import jenkins.util.VirtualFile;
 import org.allurereport.jenkins.callables.AddEnvironmentInfo;
 import org.allurereport.jenkins.callables.AddExecutorInfo;
 import org.allurereport.jenkins.callables.AddTestRunInfo;
 import org.allurereport.jenkins.callables.AllureReportArchive;
+import org.allurereport.jenkins.callables.CollectTestIndex;
+import org.allurereport.jenkins.callables.DeduplicateRetries;
+import org.allurereport.jenkins.callables.FingerprintResults;
 import org.allurereport.jenkins.callables.FindByGlob;
+import org.allurereport.jenkins.callables.PrepareResults;
 import org.allurereport.jenkins.config.AllureReportConfig;
 import org.allurereport.jenkins.config.PropertyConfig;
 import org.allurereport.jenkins.config.ReportBuildPolicy;
 import org.allurereport.jenkins.config.ResultPolicy;
 import org.allurereport.jenkins.config.ResultsConfig;
+import org.allurereport.jenkins.config.RetryPolicy;
 import org.allurereport.jenkins.exception.AllurePluginException;
 import org.allurereport.jenkins.tools.Allure3Installation;
 import org.allurereport.jenkins.tools.AllureCommandlineInstallation;
 import org.allurereport.jenkins.tools.AllureInstallation;
 import org.allurereport.jenkins.utils.AllureReportArchiveSource;
 import org.allurereport.jenkins.utils.AllureReportArchiveSourceFactory;
+import org.allurereport.jenkins.utils.AllureTestIndex;
+import org.allurereport.jenkins.utils.AllureTrendStore;
 import org.allurereport.jenkins.utils.BuildSummary;
 import org.allurereport.jenkins.utils.BuildUtils;
 import org.allurereport.jenkins.utils.FilePathUtils;
+import org.allurereport.jenkins.utils.GlobScanner;
+import org.allurereport.jenkins.utils.TrendPoint;
+import org.allurereport.jenkins.utils.ZipFilePool;
 import org.apache.commons.lang.StringUtils;
 import org.jenkinsci.plugins.displayurlapi.DisplayURLProvider;
 import org.kohsuke.stapler.DataBoundConstructor;
 import org.kohsuke.stapler.DataBoundSetter;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 import static org.allurereport.jenkins.callables.AllureReportArchive.REPORT_DIRECTORY_NOT_FOUND;
@@ -83,19 +102,27 @@ import static org.allurereport.jenkins.callables.AllureReportArchive.REPORT_DIRE
         "ClassFanOutComplexity",
         "PMD.GodClass",
         "PMD.TooManyMethods",
-        "PMD.NcssCount"})
+        "PMD.NcssCount",
+        "PMD.CouplingBetweenObjects",
+        "PMD.ExcessivePublicCount"})
 public class AllureReportPublisher extends Recorder implements SimpleBuildStep, Serializable, MatrixAggregatable {
 
     private static final String ALLURE_PREFIX = "allure";
     private static final String ALLURE_SUFFIX = "results";
     private static final String REPORT_ARCHIVE_NAME = "allure-report.zip";
     private static final String SUMMARY_ARTIFACT_NAME = "allure-summary.json";
+    private static final String REPORT_INDEX_NAME = AllureReportArchiveSourceFactory.ALLURE_REPORT_INDEX;
     private static final String ARCHIVE_DIR = "archive";
+    private static final String REUSE_STAGING_DIR = "allure-reuse";
+    private static final String TEST_INDEX_FAILED = "Unable to create the Allure test index: ";
     private static final String DIR_AWESOME = "awesome";
     private static final String DIR_WIDGETS = "widgets";
     private static final String DIR_EXPORT = "export";
     private static final String FILE_SUMMARY_JSON = "summary.json";
     private static final String SLASH = "/";
+    private static final String[] ARTIFACT_NAMES = {
+        REPORT_ARCHIVE_NAME, SUMMARY_ARTIFACT_NAME, REPORT_INDEX_NAME, AllureTestIndex.FILE_NAME,
+    };
 
     private static final String NOT_FOUND_MESSAGE =
             "Can not find allure commandline installation for given environment.";
@@ -128,9 +155,14 @@ public class AllureReportPublisher extends Recorder implements SimpleBuildStep,
 
     private ResultPolicy resultPolicy;
 
+    private RetryPolicy retryPolicy;
+
     @Nullable
     private Boolean singleFile;
 
+    @Nullable
+    private Boolean reuseUnchangedReport;
+
     @Nullable
     private Integer unstableThresholdPercent;
     @Nullable
@@ -151,6 +183,17 @@ public class AllureReportPublisher extends Recorder implements SimpleBuildStep,
             : this.resultPolicy;
     }
 
+    @DataBoundSetter
+    public void setRetryPolicy(final RetryPolicy retryPolicy) {
+        this.retryPolicy = retryPolicy;
+    }
+
+    public RetryPolicy getRetryPolicy() {
+        return this.retryPolicy == null
+            ? RetryPolicy.KEEP_ALL_ATTEMPTS
+            : this.retryPolicy;
+    }
+
     @DataBoundSetter
     public void setUnstableThresholdPercent(final Integer value) {
         this.unstableThresholdPercent = value;
@@ -180,6 +223,21 @@ public class AllureReportPublisher extends Recorder implements SimpleBuildStep,
         return Boolean.TRUE.equals(this.singleFile);
     }
 
+    /**
+     * Whether the report of the previous build is reused when the results and the report configuration are
+     * unchanged. A reused report keeps the history and executor info of the build it was generated for.
+     *
+     * @param reuseUnchangedReport {@code true} to reuse unchanged reports
+     */
+    @DataBoundSetter
+    public void setReuseUnchangedReport(final Boolean reuseUnchangedReport) {
+        this.reuseUnchangedReport = reuseUnchangedReport;
+    }
+
+    public boolean isReuseUnchangedReport() {
+        return Boolean.TRUE.equals(this.reuseUnchangedReport);
+    }
+
     @Nullable public Integer getUnstableThresholdPercent() {
         return unstableThresholdPercent;
     }
@@ -466,10 +524,18 @@ public class AllureReportPublisher extends Recorder implements SimpleBuildStep,
 
         for (final ResultsConfig resultsConfig : resultsConfigs) {
             final String expandedPath = env.expand(resultsConfig.getPath());
-            results.addAll(workspace.act(new FindByGlob(expandedPath)));
+            final GlobScanner.Result found = workspace.act(new FindByGlob(expandedPath));
+            for (String directory : found.getDirectories()) {
+                results.add(workspace.child(directory));
+            }
+            listener.getLogger().printf("Allure: found %d results directories for '%s', visited %d directories "
+                    + "and %d files%n", found.getDirectories().size(), expandedPath,
+                    found.getVisitedDirectories(), found.getVisitedFiles());
         }
+        final String fingerprint = fingerprintResults(results, run, workspace, listener);
+        final List<AllureTestIndex.Entry> testIndex = deduplicateRetries(results, run, workspace, listener);
         prepareResults(results, run, workspace, listener);
-        generateReport(results, run, workspace, env, launcher, listener);
+        generateReport(results, run, workspace, env, launcher, listener, fingerprint, testIndex);
         copyResultsToParentIfNeeded(results, run, listener);
     }
 
@@ -523,7 +589,7 @@ public class AllureReportPublisher extends Recorder implements SimpleBuildStep,
                 }
 
                 final EnvVars buildEnvVars = BuildUtils.getBuildEnvVars(build, listener);
-                generateReport(resultsPaths, build, workspace, buildEnvVars, launcher, listener);
+                generateReport(resultsPaths, build, workspace, buildEnvVars, launcher, listener, null, null);
                 for (FilePath resultsPath : resultsPaths) {
                     FilePathUtils.deleteRecursive(resultsPath, listener.getLogger());
                 }
@@ -532,14 +598,16 @@ public class AllureReportPublisher extends Recorder implements SimpleBuildStep,
         };
     }
 
-    @SuppressWarnings({"TrailingComment", "PMD.NcssCount"})
+    @SuppressWarnings({"TrailingComment", "ParameterNumber", "PMD.NcssCount"})
     private void generateReport(
         final @NonNull List<FilePath> resultsPaths,
         final @NonNull Run<?, ?> run,
         final @NonNull FilePath workspace,
         final @NonNull EnvVars env,
         final @NonNull Launcher launcher,
-        final @NonNull TaskListener listener
+        final @NonNull TaskListener listener,
+        final @Nullable String fingerprint,
+        final @Nullable List<AllureTestIndex.Entry> testIndex
     ) throws IOException, InterruptedException {
         final ReportBuildPolicy reportBuildPolicy = getReportBuildPolicy();
 
@@ -549,6 +617,10 @@ public class AllureReportPublisher extends Recorder implements SimpleBuildStep,
             return;
         }
 
+        if (fingerprint != null && reuseReport(fingerprint, run, workspace, listener)) {
+            return;
+        }
+
         setAllureProperties(env);
 
         // Only configure JDK for Allure 2 (Java-based), not for Allure 3 (Node.js-based)
@@ -592,8 +664,15 @@ public class AllureReportPublisher extends Recorder implements SimpleBuildStep,
                     resultsPaths, reportDirectoryInWorkspace, listener.getLogger());
         }
 
-        saveAllureArtifact(run, workspace, listener, launcher);
+        saveAllureArtifact(resultsPaths, testIndex, run, workspace, listener, launcher);
 
+        addBuildAction(run, reportDirectoryInWorkspace, outcome.isSingleFileGenerated(), fingerprint);
+    }
+
+    private void addBuildAction(final @NonNull Run<?, ?> run,
+                                final @NonNull FilePath reportDirectoryInWorkspace,
+                                final boolean singleFile,
+                                final @Nullable String fingerprint) {
         final String reportName = reportDirectoryInWorkspace.getName();
 
         final AllureReportBuildAction buildAction = new AllureReportBuildAction(
@@ -601,11 +680,102 @@ public class AllureReportPublisher extends Recorder implements SimpleBuildStep,
                 isAllure3()
         );
         buildAction.setReportPath(reportDirectoryInWorkspace);
-        buildAction.setSingleFile(outcome.isSingleFileGenerated());
+        buildAction.setSingleFile(singleFile);
+        buildAction.setResultsFingerprint(fingerprint);
         run.addAction(buildAction);
         applyResultStatus(run, buildAction.getBuildSummary());
     }
 
+    /**
+     * Fingerprints the results together with the report configuration, before the plugin adds its own files
+     * to the results directories.
+     */
+    @Nullable
+    private String fingerprintResults(final @NonNull List<FilePath> resultsPaths,
+                                      final @NonNull Run<?, ?> run,
+                                      final @NonNull FilePath workspace,
+                                      final @NonNull TaskListener listener) throws InterruptedException {
+        if (!isReuseUnchangedReport() || resultsPaths.isEmpty() || !getReportBuildPolicy().isNeedToBuildReport(run)) {
+            return null;
+        }
+        final List<String> remotes = new ArrayList<>(resultsPaths.size());
+        for (FilePath path : resultsPaths) {
+            remotes.add(path.getRemote());
+        }
+        final Set<String> ignored = new HashSet<>(Arrays.asList(AddExecutorInfo.EXECUTOR_JSON,
+                AddTestRunInfo.TESTRUN_JSON, PrepareResults.QUARANTINED_TESTRUN_JSON));
+        if (isAllure3()) {
+            ignored.add(AddEnvironmentInfo.ENV_PROPERTIES);
+        }
+        try {
+            final String content = workspace.act(new FingerprintResults(remotes, ignored));
+            return Util.getDigestOf(content + NEWLINE + getReportConfiguration());
+        } catch (IOException e) {
+            listener.getLogger().println("Unable to fingerprint Allure results: " + e);
+            return null;
+        }
+    }
+
+    private String getReportConfiguration() {
+        final StringBuilder configuration = new StringBuilder()
+                .append(getAllureVersion()).append(NEWLINE)
+                .append(getCommandline()).append(NEWLINE)
+                .append(isSingleFile()).append(NEWLINE)
+                .append(getReport()).append(NEWLINE)
+                .append(getConfigPath()).append(NEWLINE)
+                .append(getReportName()).append(NEWLINE)
+                .append(getRetryPolicy());
+        final List<PropertyConfig> allProperties = new ArrayList<>(getDescriptor().getProperties());
+        allProperties.addAll(getProperties());
+        for (PropertyConfig property : allProperties) {
+            configuration.append(NEWLINE).append(property.getKey()).append('=').append(property.getValue());
+        }
+        return configuration.toString();
+    }
+
+    /**
+     * Archives the report of the previous Allure build instead of generating it again when that build had the
+     * same results fingerprint. The artifacts of the previous build are copied on the controller, through a
+     * staging directory of the build, and never go through the agent.
+     */
+    private boolean reuseReport(final @NonNull String fingerprint,
+                                final @NonNull Run<?, ?> run,
+                                final @NonNull FilePath workspace,
+                                final @NonNull TaskListener listener) throws IOException, InterruptedException {
+        final TrendPoint point = AllureTrendStore.forJob(run.getParent()).previous(run.getNumber());
+        final Run<?, ?> previous = point == null ? null : run.getParent().getBuildByNumber(point.getNumber());
+        final AllureReportBuildAction previousAction =
+                previous == null ? null : previous.getAction(AllureReportBuildAction.class);
+        if (previousAction == null || !fingerprint.equals(previousAction.getResultsFingerprint())) {
+            return false;
+        }
+        final VirtualFile archived = previous.getArtifactManager().root();
+        if (!archived.child(REPORT_ARCHIVE_NAME).isFile()) {
+            return false;
+        }
+        listener.getLogger().printf("Allure results are unchanged since %s, reusing its report%n",
+                previous.getFullDisplayName());
+
+        final FilePath staging = new FilePath(run.getRootDir()).child(REUSE_STAGING_DIR);
+        try {
+            final Map<String, String> artifacts = new HashMap<>();
+            for (String name : ARTIFACT_NAMES) {
+                final VirtualFile artifact = archived.child(name);
+                if (artifact.isFile()) {
+                    try (InputStream in = artifact.open()) {
+                        staging.child(name).copyFrom(in);
+                    }
+                    artifacts.put(name, name);
+                }
+            }
+            archiveArtifacts(run, staging, new Launcher.LocalLauncher(listener), listener, artifacts);
+        } finally {
+            staging.deleteRecursive();
+        }
+        addBuildAction(run, workspace.child(getReport()), previousAction.isSingleFile(), fingerprint);
+        return true;
+    }
+
     private void cleanReportDirIfNeeded(final FilePath reportDirectoryInWorkspace,
                                         final TaskListener listener) throws IOException {
         if (!isAllure3()) {
@@ -635,7 +805,9 @@ public class AllureReportPublisher extends Recorder implements SimpleBuildStep,
         }
     }
 
-    private void saveAllureArtifact(final Run<?, ?> run,
+    private void saveAllureArtifact(final List<FilePath> resultsPaths,
+                                    final @Nullable List<AllureTestIndex.Entry> testIndex,
+                                    final Run<?, ?> run,
                                     final FilePath workspace,
                                     final TaskListener listener,
                                     final Launcher launcher) throws IOException, InterruptedException {
@@ -650,26 +822,38 @@ public class AllureReportPublisher extends Recorder implements SimpleBuildStep,
         }
 
         createSummaryJson(workspace, reportPathWs);
+        createTestIndex(resultsPaths, testIndex, workspace, listener);
 
-        workspace.act(new AllureReportArchive(reportDirPath, REPORT_ARCHIVE_NAME));
+        workspace.act(new AllureReportArchive(reportDirPath, REPORT_ARCHIVE_NAME, REPORT_INDEX_NAME));
 
+        final Map<String, String> artifacts = new HashMap<>();
+        for (String name : ARTIFACT_NAMES) {
+            if (workspace.child(name).exists()) {
+                artifacts.put(name, name);
+            }
+        }
+        archiveArtifacts(run, workspace, launcher, listener, artifacts);
+    }
+
+    /**
+     * Replaces the Allure artifacts of the build with the given files of the directory, which are deleted after.
+     */
+    private static void archiveArtifacts(final Run<?, ?> run,
+                                         final FilePath workspace,
+                                         final Launcher launcher,
+                                         final TaskListener listener,
+                                         final Map<String, String> artifacts)
+            throws IOException, InterruptedException {
         final FilePath archiveDir = new FilePath(run.getRootDir()).child(ARCHIVE_DIR);
         final FilePath existingArchivedZip = archiveDir.child(REPORT_ARCHIVE_NAME);
         if (existingArchivedZip.exists()) {
             listener.getLogger().println("Removing existing archived artifact: " + existingArchivedZip.getRemote());
+            ZipFilePool.get().invalidate(new File(existingArchivedZip.getRemote()));
             existingArchivedZip.delete();
         }
-
-        final FilePath existingArchivedSummary = archiveDir.child(SUMMARY_ARTIFACT_NAME);
-        if (existingArchivedSummary.exists()) {
-            existingArchivedSummary.delete();
-        }
-
-        final Map<String, String> artifacts = new HashMap<>();
-        artifacts.put(REPORT_ARCHIVE_NAME, REPORT_ARCHIVE_NAME);
-        if (workspace.child(SUMMARY_ARTIFACT_NAME).exists()) {
-            artifacts.put(SUMMARY_ARTIFACT_NAME, SUMMARY_ARTIFACT_NAME);
-        }
+        deleteIfExists(archiveDir.child(SUMMARY_ARTIFACT_NAME));
+        deleteIfExists(archiveDir.child(REPORT_INDEX_NAME));
+        deleteIfExists(archiveDir.child(AllureTestIndex.FILE_NAME));
 
         final BuildListener buildListener =
             (listener instanceof BuildListener) ? (BuildListener) listener : new BuildListenerAdapter(listener);
@@ -677,14 +861,14 @@ public class AllureReportPublisher extends Recorder implements SimpleBuildStep,
         run.pickArtifactManager().archive(workspace, launcher, buildListener, artifacts);
         listener.getLogger().println("Allure artifact archived via ArtifactManager.");
 
-        final FilePath zipPath = workspace.child(REPORT_ARCHIVE_NAME);
-        if (zipPath.exists()) {
-            zipPath.delete();
+        for (String archived : artifacts.keySet()) {
+            deleteIfExists(workspace.child(archived));
         }
+    }
 
-        final FilePath summaryPath = workspace.child(SUMMARY_ARTIFACT_NAME);
-        if (summaryPath.exists()) {
-            summaryPath.delete();
+    private static void deleteIfExists(final FilePath file) throws IOException, InterruptedException {
+        if (file.exists()) {
+            file.delete();
         }
     }
 
@@ -700,6 +884,38 @@ public class AllureReportPublisher extends Recorder implements SimpleBuildStep,
         }
     }
 
+    /**
+     * Writes the {@link AllureTestIndex} of the results next to the summary artifact, collecting it from the
+     * results unless it was collected before the retries were deduplicated. The index only serves the test
+     * history, so a failure is reported without failing the build.
+     */
+    private static void createTestIndex(final List<FilePath> resultsPaths,
+                                        final @Nullable List<AllureTestIndex.Entry> testIndex,
+                                        final FilePath workspace,
+                                        final TaskListener listener) throws InterruptedException {
+        try {
+            final List<AllureTestIndex.Entry> entries =
+                    testIndex == null ? collectTestIndex(resultsPaths) : testIndex;
+            try (OutputStream out = workspace.child(AllureTestIndex.FILE_NAME).write()) {
+                AllureTestIndex.write(out, entries);
+            }
+        } catch (IOException e) {
+            listener.getLogger().println(TEST_INDEX_FAILED + e);
+        }
+    }
+
+    @SuppressWarnings("PMD.AvoidInstantiatingObjectsInLoops")
+    private static List<AllureTestIndex.Entry> collectTestIndex(final List<FilePath> resultsPaths)
+            throws IOException, InterruptedException {
+        final AllureTestIndex.Builder builder = new AllureTestIndex.Builder();
+        for (FilePath resultsPath : resultsPaths) {
+            if (resultsPath.exists()) {
+                builder.addAll(resultsPath.act(new CollectTestIndex()));
+            }
+        }
+        return builder.build();
+    }
+
     private FilePath findSummaryJsonInReport(final FilePath reportDir) throws IOException, InterruptedException {
         if (isAllure3()) {
             final FilePath awesome = reportDir.child(DIR_AWESOME).child(DIR_WIDGETS).child(FILE_SUMMARY_JSON);
@@ -746,62 +962,74 @@ public class AllureReportPublisher extends Recorder implements SimpleBuildStep,
         ));
     }
 
-    private void prepareResults(final @NonNull List<FilePath> resultsPaths,
+    /**
+     * Removes the earlier attempts of retried tests from the results directories according to the retry policy.
+     * The test index is collected before, so that it still counts the removed attempts as retries.
+     *
+     * @return the test index of the results before deduplication, or {@code null} if retries are not
+     * deduplicated
+     */
+    @Nullable
+    @SuppressWarnings("PMD.ReturnEmptyCollectionRatherThanNull")
+    private List<AllureTestIndex.Entry> deduplicateRetries(final @NonNull List<FilePath> resultsPaths,
         final @NonNull Run<?, ?> run,
         final @NonNull FilePath workspace,
         final @NonNull TaskListener listener)
         throws IOException, InterruptedException {
-        addHistory(resultsPaths, run, workspace, listener);
-        if (isAllure3()) {
-            quarantineLegacyTestRunJson(resultsPaths);
-            addEnvironmentInfo(resultsPaths, run);
-        } else {
-            addTestRunInfo(resultsPaths, run);
+        final RetryPolicy policy = getRetryPolicy();
+        if (!policy.isDeduplicating() || resultsPaths.isEmpty() || !getReportBuildPolicy().isNeedToBuildReport(run)) {
+            return null;
         }
-        addExecutorInfo(resultsPaths, run);
-    }
-
-    private static void quarantineLegacyTestRunJson(final @NonNull List<FilePath> resultsPaths)
-            throws IOException, InterruptedException {
-        for (FilePath path : resultsPaths) {
-            final FilePath legacy = path.child(AddTestRunInfo.TESTRUN_JSON);
-            if (!legacy.exists()) {
-                continue;
-            }
-            final FilePath quarantined = path.child("testrun.allure2.bak");
-            if (quarantined.exists()) {
-                quarantined.delete();
-            }
-            legacy.renameTo(quarantined);
+        List<AllureTestIndex.Entry> testIndex = null;
+        try {
+            testIndex = collectTestIndex(resultsPaths);
+        } catch (IOException e) {
+            listener.getLogger().println(TEST_INDEX_FAILED + e);
         }
-    }
-
-    private void addEnvironmentInfo(final @NonNull List<FilePath> resultsPaths,
-                                    final @NonNull Run<?, ?> run)
-            throws IOException, InterruptedException {
-        final long start = run.getStartTimeInMillis();
-        final long stop = run.getTimeInMillis();
-        final AddEnvironmentInfo callable = new AddEnvironmentInfo(run.getFullDisplayName(), start, stop);
+        final List<String> remotes = new ArrayList<>(resultsPaths.size());
         for (FilePath path : resultsPaths) {
-            path.act(callable);
+            remotes.add(path.getRemote());
         }
+        final DeduplicateRetries.Stats stats =
+            workspace.act(new DeduplicateRetries(remotes, policy.isKeepingRetries()));
+        listener.getLogger().printf("Allure: %s %d retried attempts and deleted %d unreferenced attachments%n",
+            policy.isKeepingRetries() ? "compacted" : "removed", stats.getRetries(), stats.getDeletedAttachments());
+        return testIndex;
     }
 
-    @SuppressWarnings("PMD.AvoidInstantiatingObjectsInLoops")
-    private void addTestRunInfo(final @NonNull List<FilePath> resultsPaths,
-        final @NonNull Run<?, ?> run)
+    /**
+     * Prepares all results directories with a single call to the agent.
+     */
+    private void prepareResults(final @NonNull List<FilePath> resultsPaths,
+        final @NonNull Run<?, ?> run,
+        final @NonNull FilePath workspace,
+        final @NonNull TaskListener listener)
         throws IOException, InterruptedException {
+        if (resultsPaths.isEmpty()) {
+            return;
+        }
+        final List<String> remotes = new ArrayList<>(resultsPaths.size());
+        for (FilePath path : resultsPaths) {
+            remotes.add(path.getRemote());
+        }
         final long start = run.getStartTimeInMillis();
         final long stop = run.getTimeInMillis();
-        for (FilePath path : resultsPaths) {
-            path.act(new AddTestRunInfo(run.getFullDisplayName(), start, stop));
+        final List<MasterToSlaveFileCallable<FilePath>> infos = new ArrayList<>(2);
+        if (isAllure3()) {
+            infos.add(new AddEnvironmentInfo(run.getFullDisplayName(), start, stop));
+        } else {
+            infos.add(new AddTestRunInfo(run.getFullDisplayName(), start, stop));
         }
-    }
+        infos.add(createExecutorInfo(run));
 
-    private void addExecutorInfo(final @NonNull List<FilePath> resultsPaths,
-        final @NonNull Run<?, ?> run)
-        throws IOException, InterruptedException {
+        final List<String> problems = workspace.act(
+                new PrepareResults(remotes, readHistory(run, workspace, listener), isAllure3(), infos));
+        for (String problem : problems) {
+            printHistoryProblem(listener, problem);
+        }
+    }
 
+    private AddExecutorInfo createExecutorInfo(final @NonNull Run<?, ?> run) {
         final String rootUrl = StringUtils.trimToNull(Jenkins.get().getRootUrl());
         final String buildUrl = DisplayURLProvider.get().getRunURL(run);
         final String classicBuildUrl = rootUrl == null ? run.getUrl() : rootUrl + run.getUrl();
@@ -813,7 +1041,7 @@ public class AllureReportPublisher extends Recorder implements SimpleBuildStep,
         final String effectiveReportName =
             StringUtils.isNotBlank(getReportName()) ? getReportName() : "AllureReport";
 
-        final AddExecutorInfo callable = new AddExecutorInfo(
+        return new AddExecutorInfo(
             rootUrl,
             run.getFullDisplayName(),
             buildUrl,
@@ -821,53 +1049,37 @@ public class AllureReportPublisher extends Recorder implements SimpleBuildStep,
             buildId,
             effectiveReportName
         );
-
-        for (FilePath path : resultsPaths) {
-            path.act(callable);
-        }
     }
 
-    private void addHistory(final @NonNull List<FilePath> resultsPaths,
-        final @NonNull Run<?, ?> run,
+    /**
+     * Reads the history files of the last report with history once, keyed by their path in a results directory.
+     */
+    private Map<String, byte[]> readHistory(final @NonNull Run<?, ?> run,
         final @NonNull FilePath workspace,
         final @NonNull TaskListener listener) {
+        final Map<String, byte[]> history = new LinkedHashMap<>();
         try {
             final String reportPath = workspace.child(getReport()).getName();
             final Run<?, ?> previousRun = FilePathUtils.getPreviousRunWithHistory(run, reportPath);
             if (previousRun == null) {
-                return;
+                return history;
             }
-            copyHistoryToResultsPaths(resultsPaths, previousRun, workspace);
-        } catch (Exception e) {
-            listener.getLogger().println("Cannot find a history information about previous builds.");
-            listener.getLogger().println(e);
-        }
-    }
-
-    private void copyHistoryToResultsPaths(final @NonNull List<FilePath> resultsPaths,
-                                           final @NonNull Run<?, ?> previousRun,
-                                           final @NonNull FilePath workspace)
-            throws IOException, InterruptedException {
-        try (AllureReportArchiveSource source = AllureReportArchiveSourceFactory.forRun(previousRun)) {
-            for (FilePath resultsPath : resultsPaths) {
-                copyHistoryToResultsPath(source, resultsPath, workspace);
+            try (AllureReportArchiveSource source = AllureReportArchiveSourceFactory.forRun(previousRun)) {
+                for (final String entryName : source.listEntries(reportPath + "/history")) {
+                    try (InputStream entryStream = source.openEntry(entryName)) {
+                        history.put(entryName.replace(reportPath + SLASH, ""), entryStream.readAllBytes());
+                    }
+                }
             }
+        } catch (Exception e) {
+            printHistoryProblem(listener, e.toString());
         }
+        return history;
     }
 
-    private void copyHistoryToResultsPath(final AllureReportArchiveSource source,
-                                          final @NonNull FilePath resultsPath,
-                                          final @NonNull FilePath workspace)
-        throws IOException, InterruptedException {
-        final FilePath reportPath = workspace.child(getReport());
-        final String historyPrefix = reportPath.getName() + "/history";
-        for (final String entryName : source.listEntries(historyPrefix)) {
-            final String historyFile = entryName.replace(reportPath.getName() + SLASH, "");
-            try (InputStream entryStream = source.openEntry(entryName)) {
-                final FilePath historyCopy = resultsPath.child(historyFile);
-                historyCopy.copyFrom(entryStream);
-            }
-        }
+    private static void printHistoryProblem(final @NonNull TaskListener listener, final String problem) {
+        listener.getLogger().println("Cannot find a history information about previous builds.");
+        listener.getLogger().println(problem);
     }
 
     @Nullable
@@ -33,6 +33,7 @@ import net.sf.json.JSONObject;
 import org.allurereport.jenkins.config.PropertyConfig;
 import org.allurereport.jenkins.config.ReportBuildPolicy;
 import org.allurereport.jenkins.config.ResultPolicy;
+import org.allurereport.jenkins.config.RetryPolicy;
 import org.allurereport.jenkins.tools.Allure3Installation;
 import org.allurereport.jenkins.tools.AllureCommandlineDirectInstaller;
 import org.allurereport.jenkins.tools.AllureCommandlineInstallation;
@@ -73,6 +74,11 @@ public class AllureReportPublisherDescriptor extends BuildStepDescriptor<Publish
         return ResultPolicy.values();
     }
 
+    @SuppressWarnings("unused")
+    public RetryPolicy[] getRetryPolicies() {
+        return RetryPolicy.values();
+    }
+
     public List<PropertyConfig> getProperties() {
         if (this.properties == null) {
             this.properties = new ArrayList<>();
@@ -0,0 +1,50 @@
+/*
+ *  Copyright 2016-2023 Qameta Software OÜ
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.allurereport.jenkins;
+
+import hudson.Extension;
+import hudson.model.Run;
+import hudson.model.TaskListener;
+import hudson.model.listeners.RunListener;
+import org.allurereport.jenkins.utils.AllureAggregateIndex;
+import org.allurereport.jenkins.utils.AllureTrendStore;
+import org.allurereport.jenkins.utils.TrendPoint;
+
+/**
+ * Keeps the per-job {@link AllureTrendStore}, {@link AllureLastBuilds} and the {@link AllureAggregateIndex} in sync
+ * with completed and deleted builds.
+ */
+@Extension
+public class AllureRunListener extends RunListener<Run<?, ?>> {
+
+    @Override
+    public void onCompleted(final Run<?, ?> run, final TaskListener listener) {
+        final AllureReportBuildAction action = run.getAction(AllureReportBuildAction.class);
+        if (action != null) {
+            AllureLastBuilds.forJob(run.getParent()).completed(run);
+            AllureAggregateIndex.get().record(run.getParent().getFullName(), TrendPoint.of(run.getNumber(), action));
+        }
+    }
+
+    @Override
+    public void onDeleted(final Run<?, ?> run) {
+        if (run.getAction(AllureReportBuildAction.class) != null) {
+            AllureTrendStore.forJob(run.getParent()).remove(run.getNumber());
+            AllureLastBuilds.forJob(run.getParent()).deleted(run);
+            AllureAggregateIndex.get().remove(run.getParent().getFullName(), run.getNumber());
+        }
+    }
+}
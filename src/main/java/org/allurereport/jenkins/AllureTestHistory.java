@@ -0,0 +1,376 @@
+/*
+ *  Copyright 2016-2023 Qameta Software OÜ
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.allurereport.jenkins;
+
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import hudson.model.Job;
+import hudson.model.Run;
+import jenkins.util.SystemProperties;
+import jenkins.util.VirtualFile;
+import org.allurereport.jenkins.utils.AllureTestIndex;
+import org.allurereport.jenkins.utils.AllureTrendStore;
+import org.allurereport.jenkins.utils.JsonUtils;
+import org.allurereport.jenkins.utils.TrendPoint;
+import org.kohsuke.stapler.QueryParameter;
+import org.kohsuke.stapler.StaplerResponse;
+import org.kohsuke.stapler.WebMethod;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Test level history of a job, read from the {@link AllureTestIndex} archived with every report instead of
+ * the report archives. Served below the project action as {@code tests/}, with the JSON API
+ * {@code tests/history.json?id=} for a single test and {@code tests/flaky.json} for the tests whose status
+ * changed or which were retried within the recent builds.
+ *
+ * <p>The indexes are only opened once per query: results are cached by job, newest build, trend version, build
+ * limit and query, up to {@code cacheSize} results (system property
+ * {@code org.allurereport.jenkins.AllureTestHistory.cacheSize}, 64 by default).
+ */
+public class AllureTestHistory {
+
+    private static final Logger LOG = Logger.getLogger(AllureTestHistory.class.getName());
+
+    private static final int DEFAULT_LIMIT = 50;
+    private static final int MAX_LIMIT = 500;
+    private static final String KEY_RETRIES = "retries";
+    private static final String KEY_STATUS = "status";
+    private static final String KEY_HISTORY_ID = "historyId";
+    private static final String KEY_BUILDS = "builds";
+    private static final String KEY_NAME = "name";
+    private static final String SLASH = "/";
+    private static final String UNREADABLE_INDEX = "Unable to read the Allure test index of build ";
+    private static final int CACHE_SIZE = SystemProperties.getInteger(
+            AllureTestHistory.class.getName() + ".cacheSize", 64);
+
+    private static final Map<String, List<?>> RESULTS = new LinkedHashMap<String, List<?>>(16, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<String, List<?>> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    };
+
+    private final Job<?, ?> job;
+
+    public AllureTestHistory(final Job<?, ?> job) {
+        this.job = job;
+    }
+
+    public Job<?, ?> getJob() {
+        return job;
+    }
+
+    public String getDisplayName() {
+        return Messages.AllureTestHistory_Title();
+    }
+
+    /**
+     * Returns the results of a single test in the newest builds with an Allure report, newest first.
+     *
+     * @param historyId the Allure {@code historyId} of the test
+     * @param limit     the maximum number of builds to look at
+     * @return the results, leaving out builds that did not run the test
+     */
+    public List<BuildResult> getHistory(final String historyId, final int limit) {
+        if (historyId == null || historyId.isEmpty()) {
+            return new ArrayList<>();
+        }
+        return cached("history:" + historyId, limit, points -> collectHistory(historyId, points));
+    }
+
+    /**
+     * Returns the tests that changed status or were retried within the newest builds, most unstable first.
+     *
+     * @param limit the maximum number of builds to look at
+     * @return the unstable tests
+     */
+    public List<UnstableResult> getUnstable(final int limit) {
+        return cached("unstable", limit, this::collectUnstable);
+    }
+
+    @SuppressWarnings("PMD.AvoidInstantiatingObjectsInLoops")
+    private List<BuildResult> collectHistory(final String historyId, final List<TrendPoint> points) {
+        final List<BuildResult> results = new ArrayList<>();
+        for (TrendPoint point : points) {
+            final AllureTestIndex.Entry entry = find(point.getNumber(), historyId);
+            if (entry != null) {
+                results.add(new BuildResult(point.getNumber(), entry));
+            }
+        }
+        return results;
+    }
+
+    @SuppressWarnings("PMD.AvoidInstantiatingObjectsInLoops")
+    private List<UnstableResult> collectUnstable(final List<TrendPoint> points) {
+        final Map<String, UnstableResult> tests = new HashMap<>();
+        for (TrendPoint point : points) {
+            final AllureTestIndex index = read(point.getNumber());
+            if (index == null) {
+                continue;
+            }
+            for (AllureTestIndex.Entry entry : index.getEntries()) {
+                tests.computeIfAbsent(entry.getHistoryId(), id -> new UnstableResult(entry)).add(entry);
+            }
+        }
+        final List<UnstableResult> unstable = new ArrayList<>();
+        for (UnstableResult test : tests.values()) {
+            if (test.getFlips() > 0 || test.getRetries() > 0) {
+                unstable.add(test);
+            }
+        }
+        unstable.sort(Comparator.comparingInt(UnstableResult::getFlips)
+                .thenComparingInt(UnstableResult::getRetries).reversed()
+                .thenComparing(UnstableResult::getName));
+        return unstable;
+    }
+
+    @WebMethod(name = "history.json")
+    public void doHistoryJson(final StaplerResponse rsp,
+                              @QueryParameter final String id,
+                              @QueryParameter final Integer limit) throws IOException {
+        final ObjectNode root = JsonUtils.getMapper().createObjectNode();
+        root.put(KEY_HISTORY_ID, id);
+        final ArrayNode builds = root.putArray(KEY_BUILDS);
+        for (BuildResult result : getHistory(id, limit(limit))) {
+            builds.addObject()
+                    .put("number", result.getNumber())
+                    .put(KEY_NAME, result.getName())
+                    .put(KEY_STATUS, result.getStatus())
+                    .put("start", result.getStart())
+                    .put("duration", result.getDuration())
+                    .put(KEY_RETRIES, result.getRetries())
+                    .put("url", result.getUrl());
+        }
+        writeJson(rsp, root);
+    }
+
+    @WebMethod(name = "flaky.json")
+    public void doFlakyJson(final StaplerResponse rsp,
+                            @QueryParameter final Integer limit) throws IOException {
+        final ObjectNode root = JsonUtils.getMapper().createObjectNode();
+        final ArrayNode tests = root.putArray("tests");
+        for (UnstableResult test : getUnstable(limit(limit))) {
+            tests.addObject()
+                    .put(KEY_HISTORY_ID, test.getHistoryId())
+                    .put(KEY_NAME, test.getName())
+                    .put(KEY_STATUS, test.getStatus())
+                    .put("flips", test.getFlips())
+                    .put(KEY_RETRIES, test.getRetries())
+                    .put(KEY_BUILDS, test.getBuilds());
+        }
+        writeJson(rsp, root);
+    }
+
+    private static int limit(final Integer requested) {
+        return requested == null || requested <= 0 ? DEFAULT_LIMIT : Math.min(requested, MAX_LIMIT);
+    }
+
+    private static void writeJson(final StaplerResponse rsp, final ObjectNode root) throws IOException {
+        rsp.setContentType("application/json;charset=UTF-8");
+        rsp.setHeader("Cache-Control", "no-cache");
+        try (Writer writer = rsp.getWriter()) {
+            JsonUtils.getMapper().writeValue(writer, root);
+        }
+    }
+
+    /**
+     * Returns the cached result of a query over the newest builds, collecting it if needed. The trend version
+     * is read before the builds, so that a result is never cached under a newer version than it saw.
+     */
+    @SuppressWarnings({"unchecked", "PMD.PrematureDeclaration"})
+    private <T> List<T> cached(final String query, final int limit,
+                               final Function<List<TrendPoint>, List<T>> collector) {
+        final AllureTrendStore store = AllureTrendStore.forJob(job);
+        final long version = store.getVersion();
+        final List<TrendPoint> points = store.read(Integer.MAX_VALUE, limit);
+        if (points.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Collections.reverse(points);
+        final String key = job.getFullName() + '#' + points.get(0).getNumber() + ':' + version + ':' + limit
+                + ':' + query;
+        synchronized (RESULTS) {
+            final List<?> result = RESULTS.get(key);
+            if (result != null) {
+                return (List<T>) result;
+            }
+        }
+        final List<T> result = Collections.unmodifiableList(collector.apply(points));
+        if (isComplete(points)) {
+            synchronized (RESULTS) {
+                RESULTS.put(key, result);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Whether none of the builds is still running, as their indexes are only archived at the end of the build.
+     */
+    private boolean isComplete(final List<TrendPoint> points) {
+        for (TrendPoint point : points) {
+            final Run<?, ?> run = job.getBuildByNumber(point.getNumber());
+            if (run != null && run.isBuilding()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private AllureTestIndex.Entry find(final int number, final String historyId) {
+        final VirtualFile file = indexFile(number);
+        if (file == null) {
+            return null;
+        }
+        try (InputStream in = file.open()) {
+            return AllureTestIndex.find(in, historyId);
+        } catch (IOException e) {
+            LOG.log(Level.FINE, UNREADABLE_INDEX + number, e);
+            return null;
+        }
+    }
+
+    private AllureTestIndex read(final int number) {
+        final VirtualFile file = indexFile(number);
+        if (file == null) {
+            return null;
+        }
+        try (InputStream in = file.open()) {
+            return AllureTestIndex.read(in);
+        } catch (IOException e) {
+            LOG.log(Level.FINE, UNREADABLE_INDEX + number, e);
+            return null;
+        }
+    }
+
+    private VirtualFile indexFile(final int number) {
+        final Run<?, ?> run = job.getBuildByNumber(number);
+        if (run == null || run.isBuilding()) {
+            return null;
+        }
+        return run.getArtifactManager().root().child(AllureTestIndex.FILE_NAME);
+    }
+
+    /**
+     * The result of a test in one build.
+     */
+    public static final class BuildResult {
+
+        private final int number;
+        private final AllureTestIndex.Entry entry;
+
+        BuildResult(final int number, final AllureTestIndex.Entry entry) {
+            this.number = number;
+            this.entry = entry;
+        }
+
+        public int getNumber() {
+            return number;
+        }
+
+        public String getName() {
+            return entry.getName();
+        }
+
+        public String getStatus() {
+            return entry.getStatus();
+        }
+
+        public long getStart() {
+            return entry.getStart();
+        }
+
+        public long getDuration() {
+            return entry.getDuration();
+        }
+
+        public int getRetries() {
+            return entry.getRetries();
+        }
+
+        public String getUrl() {
+            return number + SLASH + AllureReportPlugin.URL_PATH + SLASH;
+        }
+    }
+
+    /**
+     * A test together with its status changes and retries over the visited builds, newest first.
+     */
+    public static final class UnstableResult {
+
+        private final String historyId;
+        private final String name;
+        private final String status;
+        private String previousStatus;
+        private int flips;
+        private int retries;
+        private int builds;
+
+        UnstableResult(final AllureTestIndex.Entry newest) {
+            this.historyId = newest.getHistoryId();
+            this.name = newest.getName();
+            this.status = newest.getStatus();
+        }
+
+        void add(final AllureTestIndex.Entry entry) {
+            if (previousStatus != null && !previousStatus.equals(entry.getStatus())) {
+                flips++;
+            }
+            previousStatus = entry.getStatus();
+            retries += entry.getRetries();
+            builds++;
+        }
+
+        public String getHistoryId() {
+            return historyId;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getStatus() {
+            return status;
+        }
+
+        public int getFlips() {
+            return flips;
+        }
+
+        public int getRetries() {
+            return retries;
+        }
+
+        public int getBuilds() {
+            return builds;
+        }
+    }
+}
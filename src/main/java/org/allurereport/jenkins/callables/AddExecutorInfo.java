@@ -20,7 +20,7 @@ import java.util.Map;
 
 public class AddExecutorInfo extends AbstractAddInfo {
 
-    private static final String EXECUTOR_JSON = "executor.json";
+    public static final String EXECUTOR_JSON = "executor.json";
 
     private final String url;
 
@@ -20,14 +20,17 @@ import hudson.remoting.VirtualChannel;
 import jenkins.MasterToSlaveFileCallable;
 
 import org.allurereport.jenkins.utils.TrueZipArchiver;
+import org.allurereport.jenkins.utils.ZipEntryIndex;
 
 import java.io.File;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.file.Files;
 import java.util.Objects;
 
 /**
- * Creates Allure report archive on the build agent.
+ * Creates Allure report archive on the build agent, optionally together with its
+ * {@link ZipEntryIndex} sidecar file.
  */
 public class AllureReportArchive extends MasterToSlaveFileCallable<Void> {
 
@@ -37,11 +40,19 @@ public class AllureReportArchive extends MasterToSlaveFileCallable<Void> {
 
     private final String reportDirectoryPath;
     private final String archiveFileName;
+    private final String indexFileName;
 
     public AllureReportArchive(final String reportDirectoryPath, final String archiveFileName) {
+        this(reportDirectoryPath, archiveFileName, null);
+    }
+
+    public AllureReportArchive(final String reportDirectoryPath,
+                               final String archiveFileName,
+                               final String indexFileName) {
 
         this.reportDirectoryPath = reportDirectoryPath;
         this.archiveFileName = archiveFileName;
+        this.indexFileName = indexFileName;
     }
 
     @Override
@@ -67,6 +78,19 @@ public class AllureReportArchive extends MasterToSlaveFileCallable<Void> {
                 .archive(TrueZipArchiver.FACTORY, outputStream, reportDirectory.getName() + "/**");
         }
 
+        if (indexFileName != null) {
+            writeIndex(new File(archiveFilePath.getRemote()), new File(workspaceDirectory, indexFileName));
+        }
+
         return null;
     }
+
+    private static void writeIndex(final File archiveFile, final File indexFile) throws IOException {
+        try (OutputStream outputStream = Files.newOutputStream(indexFile.toPath())) {
+            ZipEntryIndex.writeSidecar(archiveFile, outputStream);
+        } catch (IOException ignored) {
+            // the index only speeds up reading from remote artifact storage, readers fall back to the archive
+            Files.deleteIfExists(indexFile.toPath());
+        }
+    }
 }
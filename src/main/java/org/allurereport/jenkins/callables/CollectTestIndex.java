@@ -0,0 +1,67 @@
+/*
+ *  Copyright 2016-2023 Qameta Software OÜ
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.allurereport.jenkins.callables;
+
+import hudson.remoting.VirtualChannel;
+import jenkins.MasterToSlaveFileCallable;
+import org.allurereport.jenkins.utils.AllureTestIndex;
+import org.allurereport.jenkins.utils.JsonUtils;
+import org.apache.tools.ant.DirectoryScanner;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Collects the {@link AllureTestIndex} entries of the test results in an Allure results directory on the
+ * build agent, so that only the compact entries are sent to the controller.
+ */
+public class CollectTestIndex extends MasterToSlaveFileCallable<ArrayList<AllureTestIndex.Entry>> {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final Logger LOG = Logger.getLogger(CollectTestIndex.class.getName());
+
+    private static final String RESULTS_GLOB = "**/*-result.json";
+
+    @Override
+    @SuppressWarnings("PMD.AvoidInstantiatingObjectsInLoops")
+    public ArrayList<AllureTestIndex.Entry> invoke(final File resultsDirectory, final VirtualChannel channel)
+            throws IOException, InterruptedException {
+        final DirectoryScanner scanner = new DirectoryScanner();
+        scanner.setBasedir(resultsDirectory);
+        scanner.setIncludes(new String[]{RESULTS_GLOB});
+        scanner.scan();
+
+        final AllureTestIndex.Builder builder = new AllureTestIndex.Builder();
+        for (String path : scanner.getIncludedFiles()) {
+            final File result = new File(resultsDirectory, path);
+            try (InputStream is = Files.newInputStream(result.toPath())) {
+                final AllureTestIndex.Entry entry = JsonUtils.readTestResult(is);
+                if (entry != null) {
+                    builder.add(entry);
+                }
+            } catch (IOException e) {
+                LOG.log(Level.FINE, "Skipping unreadable Allure result " + result, e);
+            }
+        }
+        return new ArrayList<>(builder.build());
+    }
+}
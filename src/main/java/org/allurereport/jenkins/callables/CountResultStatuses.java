@@ -0,0 +1,92 @@
+/*
+ *  Copyright 2016-2023 Qameta Software OÜ
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.allurereport.jenkins.callables;
+
+import hudson.remoting.VirtualChannel;
+import jenkins.MasterToSlaveFileCallable;
+import org.allurereport.jenkins.utils.JsonUtils;
+import org.apache.tools.ant.DirectoryScanner;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Counts the statuses of the test results in an Allure results directory on the build agent. The results are
+ * parsed in parallel, reading only their top-level {@code status}, and only the counters are sent back.
+ */
+public class CountResultStatuses extends MasterToSlaveFileCallable<HashMap<String, Integer>> {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final Logger LOG = Logger.getLogger(CountResultStatuses.class.getName());
+
+    private static final String RESULTS_GLOB = "**/*-result.json";
+
+    private static final String[] STATUSES = {"passed", "failed", "broken", "skipped", "unknown"};
+    private static final int UNKNOWN = STATUSES.length - 1;
+
+    @Override
+    public HashMap<String, Integer> invoke(final File resultsDirectory, final VirtualChannel channel)
+            throws IOException, InterruptedException {
+        final DirectoryScanner scanner = new DirectoryScanner();
+        scanner.setBasedir(resultsDirectory);
+        scanner.setIncludes(new String[]{RESULTS_GLOB});
+        scanner.scan();
+
+        final AtomicIntegerArray counts = new AtomicIntegerArray(STATUSES.length);
+        final ForkJoinPool pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+        try {
+            pool.submit(() -> Arrays.stream(scanner.getIncludedFiles()).parallel()
+                    .forEach(path -> count(new File(resultsDirectory, path), counts))).get();
+        } catch (ExecutionException e) {
+            throw new IOException(e);
+        } finally {
+            pool.shutdownNow();
+        }
+
+        final HashMap<String, Integer> statistics = new HashMap<>(STATUSES.length);
+        for (int i = 0; i < STATUSES.length; i++) {
+            statistics.put(STATUSES[i], counts.get(i));
+        }
+        return statistics;
+    }
+
+    private static void count(final File result, final AtomicIntegerArray counts) {
+        try (InputStream is = Files.newInputStream(result.toPath())) {
+            counts.incrementAndGet(indexOf(JsonUtils.readStatus(is)));
+        } catch (IOException e) {
+            LOG.log(Level.FINE, "Skipping unreadable Allure result " + result, e);
+        }
+    }
+
+    private static int indexOf(final String status) {
+        for (int i = 0; i < UNKNOWN; i++) {
+            if (STATUSES[i].equals(status)) {
+                return i;
+            }
+        }
+        return UNKNOWN;
+    }
+}
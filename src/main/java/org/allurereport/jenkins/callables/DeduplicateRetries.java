@@ -0,0 +1,264 @@
+/*
+ *  Copyright 2016-2023 Qameta Software OÜ
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.allurereport.jenkins.callables;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import hudson.remoting.VirtualChannel;
+import jenkins.MasterToSlaveFileCallable;
+import org.allurereport.jenkins.utils.JsonUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Serializable;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+
+/**
+ * Deduplicates the attempts of retried tests in Allure results directories on the build agent, before the report
+ * is generated. Results sharing a {@code historyId} are grouped and the last attempt, the one that stopped last,
+ * is kept. The earlier attempts are either deleted or rewritten as compact retries without steps, attachments
+ * and traces. Attachments no remaining result or container refers to are deleted.
+ *
+ * <p>The results directories are modified in place.
+ */
+@SuppressWarnings("PMD.LooseCoupling")
+public class DeduplicateRetries extends MasterToSlaveFileCallable<DeduplicateRetries.Stats> {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final Logger LOG = Logger.getLogger(DeduplicateRetries.class.getName());
+
+    private static final String RESULTS_GLOB = "*-result.json";
+    private static final String CONTAINERS_GLOB = "*-container.json";
+
+    private static final String KEY_HISTORY_ID = "historyId";
+    private static final String KEY_START = "start";
+    private static final String KEY_STOP = "stop";
+    private static final String KEY_SOURCE = "source";
+    private static final String KEY_STATUS_DETAILS = "statusDetails";
+    private static final String KEY_MESSAGE = "message";
+    private static final Set<String> RETRY_FIELDS = new HashSet<>(Arrays.asList("uuid", KEY_HISTORY_ID,
+            "testCaseId", "name", "fullName", "status", "stage", KEY_START, KEY_STOP, "labels", "parameters"));
+
+    private static final Comparator<Attempt> ATTEMPT_ORDER = Comparator.<Attempt>comparingLong(a -> a.stop)
+            .thenComparingLong(a -> a.start)
+            .thenComparing(a -> a.file.getFileName().toString());
+
+    private final ArrayList<String> resultsPaths;
+    private final boolean keepRetries;
+
+    /**
+     * @param resultsPaths the remote paths of the results directories
+     * @param keepRetries  whether the earlier attempts are kept as compact retries instead of being deleted
+     */
+    public DeduplicateRetries(final List<String> resultsPaths, final boolean keepRetries) {
+        this.resultsPaths = new ArrayList<>(resultsPaths);
+        this.keepRetries = keepRetries;
+    }
+
+    @Override
+    @SuppressWarnings("PMD.AvoidInstantiatingObjectsInLoops")
+    public Stats invoke(final File workspace, final VirtualChannel channel)
+            throws IOException, InterruptedException {
+        final Stats stats = new Stats();
+        final ForkJoinPool pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+        try {
+            for (String resultsPath : resultsPaths) {
+                deduplicate(new File(resultsPath).toPath().toAbsolutePath().normalize(), pool, stats);
+            }
+        } catch (ExecutionException e) {
+            throw new IOException("Unable to deduplicate Allure results", e);
+        } finally {
+            pool.shutdownNow();
+        }
+        return stats;
+    }
+
+    private void deduplicate(final Path directory, final ForkJoinPool pool, final Stats stats)
+            throws IOException, InterruptedException, ExecutionException {
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        final List<Path> results = list(directory, RESULTS_GLOB);
+        final List<Attempt> attempts = pool.submit(() -> results.parallelStream()
+                .map(DeduplicateRetries::read)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList())).get();
+
+        final Map<String, Attempt> lastAttempts = new HashMap<>();
+        for (Attempt attempt : attempts) {
+            if (attempt.historyId != null) {
+                lastAttempts.merge(attempt.historyId, attempt,
+                        (first, second) -> ATTEMPT_ORDER.compare(first, second) >= 0 ? first : second);
+            }
+        }
+
+        final Set<String> referenced = new HashSet<>();
+        final Set<String> unreferenced = new HashSet<>();
+        final List<Attempt> retries = new ArrayList<>();
+        for (Attempt attempt : attempts) {
+            if (attempt.historyId == null || lastAttempts.get(attempt.historyId) == attempt) {
+                referenced.addAll(attempt.sources);
+            } else {
+                retries.add(attempt);
+                unreferenced.addAll(attempt.sources);
+            }
+        }
+        if (retries.isEmpty()) {
+            return;
+        }
+        final List<Path> containers = list(directory, CONTAINERS_GLOB);
+        referenced.addAll(pool.submit(() -> containers.parallelStream()
+                .map(DeduplicateRetries::read)
+                .filter(Objects::nonNull)
+                .flatMap(container -> container.sources.stream())
+                .collect(Collectors.toSet())).get());
+
+        pool.submit(() -> retries.parallelStream().forEach(this::retire)).get();
+        unreferenced.removeAll(referenced);
+        stats.add(retries.size(), deleteAttachments(directory, unreferenced));
+    }
+
+    private static List<Path> list(final Path directory, final String glob) throws IOException {
+        final List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, glob)) {
+            for (Path file : stream) {
+                files.add(file);
+            }
+        }
+        return files;
+    }
+
+    private static Attempt read(final Path file) {
+        try (InputStream is = Files.newInputStream(file)) {
+            final JsonNode result = JsonUtils.getMapper().readTree(is);
+            if (result == null || !result.isObject()) {
+                return null;
+            }
+            final JsonNode historyId = result.get(KEY_HISTORY_ID);
+            return new Attempt(file,
+                    historyId != null && historyId.isValueNode() && !historyId.isNull() ? historyId.asText() : null,
+                    result.path(KEY_START).asLong(), result.path(KEY_STOP).asLong(),
+                    new HashSet<>(result.findValuesAsText(KEY_SOURCE)));
+        } catch (IOException e) {
+            LOG.log(Level.FINE, "Skipping unreadable Allure result " + file, e);
+            return null;
+        }
+    }
+
+    private void retire(final Attempt attempt) {
+        try {
+            if (keepRetries) {
+                compact(attempt.file);
+            } else {
+                Files.delete(attempt.file);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Rewrites a result as a retry holding only its identity, status, status message and timing.
+     */
+    private static void compact(final Path file) throws IOException {
+        final ObjectNode result;
+        try (InputStream is = Files.newInputStream(file)) {
+            result = (ObjectNode) JsonUtils.getMapper().readTree(is);
+        }
+        final JsonNode message = result.path(KEY_STATUS_DETAILS).get(KEY_MESSAGE);
+        result.retain(RETRY_FIELDS);
+        if (message != null && !message.isNull()) {
+            result.putObject(KEY_STATUS_DETAILS).set(KEY_MESSAGE, message);
+        }
+        JsonUtils.getMapper().writeValue(file.toFile(), result);
+    }
+
+    private static int deleteAttachments(final Path directory, final Set<String> sources) throws IOException {
+        int deleted = 0;
+        for (String source : sources) {
+            final Path attachment = directory.resolve(source).normalize();
+            if (attachment.startsWith(directory) && !attachment.equals(directory)
+                    && Files.isRegularFile(attachment) && Files.deleteIfExists(attachment)) {
+                deleted++;
+            }
+        }
+        return deleted;
+    }
+
+    /**
+     * A test result file with its retry key, timing and the attachments it refers to.
+     */
+    private static final class Attempt {
+
+        private final Path file;
+        private final String historyId;
+        private final long start;
+        private final long stop;
+        private final Set<String> sources;
+
+        Attempt(final Path file, final String historyId, final long start, final long stop,
+                final Set<String> sources) {
+            this.file = file;
+            this.historyId = historyId;
+            this.start = start;
+            this.stop = stop;
+            this.sources = sources;
+        }
+    }
+
+    /**
+     * The number of retried attempts and attachments removed from the results directories.
+     */
+    public static final class Stats implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private int retries;
+        private int deletedAttachments;
+
+        public int getRetries() {
+            return retries;
+        }
+
+        public int getDeletedAttachments() {
+            return deletedAttachments;
+        }
+
+        private void add(final int directoryRetries, final int directoryAttachments) {
+            retries += directoryRetries;
+            deletedAttachments += directoryAttachments;
+        }
+    }
+}
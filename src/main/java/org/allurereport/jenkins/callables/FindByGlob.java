@@ -15,41 +15,63 @@
  */
 package org.allurereport.jenkins.callables;
 
-import hudson.FilePath;
 import hudson.remoting.VirtualChannel;
 import jenkins.MasterToSlaveFileCallable;
+import jenkins.util.SystemProperties;
+import org.allurereport.jenkins.utils.GlobScanner;
+import org.apache.commons.lang.StringUtils;
 import org.apache.tools.ant.DirectoryScanner;
 
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
-public class FindByGlob extends MasterToSlaveFileCallable<List<FilePath>> {
+/**
+ * Finds the results directories matching a pattern in the workspace with a {@link GlobScanner}.
+ *
+ * <p>Ant's default excludes and the comma separated patterns of the system property
+ * {@code org.allurereport.jenkins.callables.FindByGlob.excludes} (e.g. <code>**&#47;node_modules/**</code>) are never
+ * entered.
+ */
+public class FindByGlob extends MasterToSlaveFileCallable<GlobScanner.Result> {
+
+    private static final long serialVersionUID = 1L;
 
     private final String includes;
 
+    private final List<String> excludes;
+
     public FindByGlob(final String includes) {
+        this(includes, configuredExcludes());
+    }
+
+    public FindByGlob(final String includes, final List<String> excludes) {
         this.includes = includes;
+        this.excludes = new ArrayList<>(excludes);
     }
 
-    @Override
-    public List<FilePath> invoke(final File file,
-                                 final VirtualChannel channel) throws IOException, InterruptedException {
-        final FilePath root = new FilePath(file);
-
-        final DirectoryScanner scanner = new DirectoryScanner();
-        scanner.setBasedir(file);
-        scanner.setIncludes(new String[]{includes});
-        scanner.setCaseSensitive(false);
-        scanner.scan();
-
-        final String[] paths = scanner.getIncludedDirectories();
-        final List<FilePath> files = new ArrayList<>();
-        for (String path : paths) {
-            files.add(root.child(path));
+    private static List<String> configuredExcludes() {
+        final String configured = SystemProperties.getString(FindByGlob.class.getName() + ".excludes");
+        final List<String> patterns = new ArrayList<>();
+        if (configured != null) {
+            for (String pattern : configured.split(",")) {
+                if (StringUtils.isNotBlank(pattern)) {
+                    patterns.add(pattern.trim());
+                }
+            }
         }
-        return files;
+        return patterns;
+    }
+
+    @Override
+    public GlobScanner.Result invoke(final File file,
+                                     final VirtualChannel channel) throws IOException, InterruptedException {
+        final List<String> allExcludes = new ArrayList<>(excludes == null ? Collections.emptyList() : excludes);
+        allExcludes.addAll(Arrays.asList(DirectoryScanner.getDefaultExcludes()));
+        return new GlobScanner(includes, allExcludes).scan(file, Runtime.getRuntime().availableProcessors());
     }
 
 }
@@ -0,0 +1,143 @@
+/*
+ *  Copyright 2016-2023 Qameta Software OÜ
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.allurereport.jenkins.callables;
+
+import hudson.remoting.VirtualChannel;
+import jenkins.MasterToSlaveFileCallable;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Computes a fingerprint of the content of Allure results directories on the build agent: the relative name,
+ * size and SHA-256 hash of every file, hashed in parallel.
+ *
+ * <p>The files the plugin writes into the results directories itself, such as the history and executor info,
+ * are left out, so that results reused from a previous build produce the same fingerprint.
+ */
+@SuppressWarnings("PMD.LooseCoupling")
+public class FingerprintResults extends MasterToSlaveFileCallable<String> {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final String SHA_256 = "SHA-256";
+    private static final String HISTORY_DIR = "history";
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final ArrayList<String> resultsPaths;
+    private final HashSet<String> ignoredFiles;
+
+    /**
+     * @param resultsPaths the remote paths of the results directories
+     * @param ignoredFiles the names of files in the root of a results directory that are left out
+     */
+    public FingerprintResults(final List<String> resultsPaths, final Set<String> ignoredFiles) {
+        this.resultsPaths = new ArrayList<>(resultsPaths);
+        this.ignoredFiles = new HashSet<>(ignoredFiles);
+    }
+
+    @Override
+    @SuppressWarnings("PMD.AvoidInstantiatingObjectsInLoops")
+    public String invoke(final File workspace, final VirtualChannel channel)
+            throws IOException, InterruptedException {
+        final MessageDigest fingerprint = digest();
+        final ForkJoinPool pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+        try {
+            for (int i = 0; i < resultsPaths.size(); i++) {
+                final Path root = new File(resultsPaths.get(i)).toPath();
+                final List<String> entries = pool.submit(() -> list(root).parallelStream()
+                        .map(file -> entry(root, file))
+                        .collect(Collectors.toList())).get();
+                fingerprint.update((i + "\n").getBytes(StandardCharsets.UTF_8));
+                for (String entry : entries) {
+                    fingerprint.update(entry.getBytes(StandardCharsets.UTF_8));
+                }
+            }
+        } catch (ExecutionException e) {
+            throw new IOException("Unable to fingerprint Allure results", e);
+        } finally {
+            pool.shutdownNow();
+        }
+        return toHex(fingerprint.digest());
+    }
+
+    /**
+     * Lists the regular files of a results directory sorted by their relative name.
+     */
+    private List<Path> list(final Path root) throws IOException {
+        if (!Files.isDirectory(root)) {
+            return new ArrayList<>();
+        }
+        try (Stream<Path> files = Files.walk(root)) {
+            return files.filter(Files::isRegularFile)
+                    .filter(file -> !isIgnored(root.relativize(file)))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private boolean isIgnored(final Path relative) {
+        final String first = relative.getName(0).toString();
+        return relative.getNameCount() == 1 ? ignoredFiles.contains(first) : HISTORY_DIR.equals(first);
+    }
+
+    private static String entry(final Path root, final Path file) {
+        final MessageDigest digest = digest();
+        final byte[] buffer = new byte[BUFFER_SIZE];
+        long size = 0;
+        try (InputStream is = Files.newInputStream(file)) {
+            for (int read = is.read(buffer); read >= 0; read = is.read(buffer)) {
+                digest.update(buffer, 0, read);
+                size += read;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        final String name = root.relativize(file).toString().replace('\\', '/');
+        return name + '\0' + size + '\0' + toHex(digest.digest()) + '\n';
+    }
+
+    private static MessageDigest digest() {
+        try {
+            return MessageDigest.getInstance(SHA_256);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    static String toHex(final byte[] bytes) {
+        final StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ *  Copyright 2016-2023 Qameta Software OÜ
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.allurereport.jenkins.callables;
+
+import hudson.FilePath;
+import hudson.remoting.VirtualChannel;
+import jenkins.MasterToSlaveFileCallable;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Prepares all Allure results directories of a build on the build agent in a single call: copies the history
+ * of the previous report, moves an Allure 2 {@code testrun.json} aside for Allure 3 and writes the build
+ * metadata files.
+ *
+ * <p>Returns the problems met while copying the history, which do not fail the build.
+ */
+@SuppressWarnings("PMD.LooseCoupling")
+public class PrepareResults extends MasterToSlaveFileCallable<ArrayList<String>> {
+
+    public static final String QUARANTINED_TESTRUN_JSON = "testrun.allure2.bak";
+
+    private static final long serialVersionUID = 1L;
+
+    private final ArrayList<String> resultsPaths;
+    private final LinkedHashMap<String, byte[]> history;
+    private final boolean quarantineTestRun;
+    private final ArrayList<MasterToSlaveFileCallable<FilePath>> infos;
+
+    /**
+     * @param resultsPaths      the remote paths of the results directories
+     * @param history           the history files of the previous report, keyed by their path in a results directory
+     * @param quarantineTestRun whether to move an Allure 2 {@code testrun.json} aside
+     * @param infos             the metadata callables to run in each results directory
+     */
+    public PrepareResults(final List<String> resultsPaths,
+                          final Map<String, byte[]> history,
+                          final boolean quarantineTestRun,
+                          final List<MasterToSlaveFileCallable<FilePath>> infos) {
+        this.resultsPaths = new ArrayList<>(resultsPaths);
+        this.history = new LinkedHashMap<>(history);
+        this.quarantineTestRun = quarantineTestRun;
+        this.infos = new ArrayList<>(infos);
+    }
+
+    @Override
+    @SuppressWarnings("PMD.AvoidInstantiatingObjectsInLoops")
+    public ArrayList<String> invoke(final File workspace, final VirtualChannel channel)
+            throws IOException, InterruptedException {
+        final ArrayList<String> problems = new ArrayList<>();
+        for (String resultsPath : resultsPaths) {
+            final File directory = new File(resultsPath);
+            try {
+                copyHistory(directory.toPath());
+            } catch (IOException e) {
+                problems.add(e.toString());
+            }
+            if (quarantineTestRun) {
+                moveTestRunAside(directory.toPath());
+            }
+            for (MasterToSlaveFileCallable<FilePath> info : infos) {
+                info.invoke(directory, channel);
+            }
+        }
+        return problems;
+    }
+
+    private void copyHistory(final Path directory) throws IOException {
+        final Path root = directory.toAbsolutePath().normalize();
+        for (Map.Entry<String, byte[]> file : history.entrySet()) {
+            final Path target = root.resolve(file.getKey()).normalize();
+            if (!target.startsWith(root)) {
+                throw new IOException("Illegal history file " + file.getKey());
+            }
+            Files.createDirectories(target.getParent());
+            Files.write(target, file.getValue());
+        }
+    }
+
+    private static void moveTestRunAside(final Path directory) throws IOException {
+        final Path legacy = directory.resolve(AddTestRunInfo.TESTRUN_JSON);
+        if (Files.exists(legacy)) {
+            Files.move(legacy, directory.resolve(QUARANTINED_TESTRUN_JSON), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
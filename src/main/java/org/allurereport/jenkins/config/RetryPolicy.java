@@ -0,0 +1,36 @@
+/*
+ *  Copyright 2016-2023 Qameta Software OÜ
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.allurereport.jenkins.config;
+
+/**
+ * How the attempts of retried tests, i.e. results sharing a {@code historyId}, are passed to the report.
+ */
+public enum RetryPolicy {
+
+    KEEP_ALL_ATTEMPTS,
+
+    KEEP_LAST_ATTEMPT_WITH_RETRIES,
+
+    KEEP_LAST_ATTEMPT;
+
+    public boolean isDeduplicating() {
+        return this != KEEP_ALL_ATTEMPTS;
+    }
+
+    public boolean isKeepingRetries() {
+        return this == KEEP_LAST_ATTEMPT_WITH_RETRIES;
+    }
+}
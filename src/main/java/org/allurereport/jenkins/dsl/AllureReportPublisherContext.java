@@ -19,6 +19,7 @@ import org.allurereport.jenkins.AllureReportPublisher;
 import org.allurereport.jenkins.config.PropertyConfig;
 import org.allurereport.jenkins.config.ReportBuildPolicy;
 import org.allurereport.jenkins.config.ResultPolicy;
+import org.allurereport.jenkins.config.RetryPolicy;
 
 import javaposse.jobdsl.dsl.Context;
 
@@ -71,6 +72,9 @@ public class AllureReportPublisherContext implements Context {
     public void resultPolicy(final String policy) {
         getPublisher().setResultPolicy(ResultPolicy.valueOf(policy));
     }
+    public void retryPolicy(final String policy) {
+        getPublisher().setRetryPolicy(RetryPolicy.valueOf(policy));
+    }
     public void unstableThresholdPercent(final int value) {
         getPublisher().setUnstableThresholdPercent(value);
     }
@@ -0,0 +1,392 @@
+/*
+ *  Copyright 2016-2023 Qameta Software OÜ
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.allurereport.jenkins.utils;
+
+import hudson.model.Job;
+import hudson.security.ACL;
+import hudson.security.ACLContext;
+import jenkins.model.Jenkins;
+import jenkins.util.SystemProperties;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Controller-wide index of the newest {@link TrendPoint}s of every job with an Allure report, so that
+ * dashboards above a single job can be served without loading jobs or builds.
+ *
+ * <p>The index is updated incrementally when builds complete or are deleted and when jobs are renamed,
+ * moved or deleted. Changes are appended to {@code allure-aggregate.txt} in the Jenkins home directory,
+ * which is compacted once it holds twice as many lines as live points. A missing file is rebuilt once from
+ * the per-job {@link AllureTrendStore} files that exist. Every job keeps its {@code depth} newest points
+ * (system property {@code org.allurereport.jenkins.utils.AllureAggregateIndex.depth}, 10 by default).
+ */
+@SuppressWarnings({"ClassDataAbstractionCoupling", "PMD.GodClass"})
+public final class AllureAggregateIndex {
+
+    static final String FILE_NAME = "allure-aggregate.txt";
+
+    private static final Logger LOG = Logger.getLogger(AllureAggregateIndex.class.getName());
+
+    private static final String HEADER = "# allure-aggregate 1";
+    private static final String COMMENT = "#";
+    private static final char TAB = '\t';
+    private static final char SEPARATOR = '/';
+    private static final String OP_RECORD = "+";
+    private static final String OP_REMOVE = "-";
+    private static final String OP_REMOVE_JOB = "x";
+    private static final int DEFAULT_DEPTH = 10;
+
+    private final File file;
+    private final int depth;
+    private final Supplier<Map<String, Collection<TrendPoint>>> history;
+
+    private Map<String, NavigableMap<Integer, TrendPoint>> jobs;
+    private long loadedLength = -1L;
+    private int lines;
+
+    AllureAggregateIndex(final File file,
+                         final int depth,
+                         final Supplier<Map<String, Collection<TrendPoint>>> history) {
+        this.file = file;
+        this.depth = Math.max(2, depth);
+        this.history = history;
+    }
+
+    public static AllureAggregateIndex get() {
+        return Holder.INSTANCE;
+    }
+
+    /**
+     * Records the counters of a completed build.
+     *
+     * @param job   the full name of the job
+     * @param point the build counters
+     */
+    public void record(final String job, final TrendPoint point) {
+        if (!isIndexable(job)) {
+            return;
+        }
+        synchronized (this) {
+            if (load()) {
+                put(job, point);
+                append(OP_RECORD + TAB + job + TAB + point.format());
+            }
+        }
+    }
+
+    /**
+     * Removes the record of a deleted build.
+     *
+     * @param job    the full name of the job
+     * @param number the build number
+     */
+    public void remove(final String job, final int number) {
+        synchronized (this) {
+            if (load() && removePoint(job, number)) {
+                append(OP_REMOVE + TAB + job + TAB + number);
+            }
+        }
+    }
+
+    /**
+     * Removes a deleted job, or all jobs within a deleted folder.
+     *
+     * @param item the full name of the job or folder
+     */
+    public void removeJob(final String item) {
+        synchronized (this) {
+            if (load() && !removeItem(item).isEmpty()) {
+                append(OP_REMOVE_JOB + TAB + item);
+            }
+        }
+    }
+
+    /**
+     * Moves the records of a renamed or moved job, or of all jobs within a renamed or moved folder.
+     *
+     * @param oldName the previous full name
+     * @param newName the new full name
+     */
+    public void rename(final String oldName, final String newName) {
+        if (!isIndexable(newName)) {
+            removeJob(oldName);
+            return;
+        }
+        synchronized (this) {
+            if (!load()) {
+                return;
+            }
+            final Map<String, NavigableMap<Integer, TrendPoint>> moved = removeItem(oldName);
+            if (moved.isEmpty()) {
+                return;
+            }
+            final StringBuilder changes = new StringBuilder(OP_REMOVE_JOB).append(TAB).append(oldName);
+            for (Map.Entry<String, NavigableMap<Integer, TrendPoint>> entry : moved.entrySet()) {
+                final String job = newName + entry.getKey().substring(oldName.length());
+                for (TrendPoint point : entry.getValue().values()) {
+                    put(job, point);
+                    changes.append('\n').append(OP_RECORD).append(TAB).append(job).append(TAB).append(point.format());
+                }
+            }
+            append(changes.toString());
+        }
+    }
+
+    /**
+     * Returns the recorded points of the matching jobs.
+     *
+     * @param filter selects jobs by full name
+     * @return the points of every matching job, oldest first, sorted by job name
+     */
+    @SuppressWarnings("PMD.AvoidInstantiatingObjectsInLoops")
+    public SortedMap<String, List<TrendPoint>> read(final Predicate<String> filter) {
+        final SortedMap<String, List<TrendPoint>> result = new TreeMap<>();
+        synchronized (this) {
+            if (!load()) {
+                return result;
+            }
+            for (Map.Entry<String, NavigableMap<Integer, TrendPoint>> entry : jobs.entrySet()) {
+                if (filter.test(entry.getKey())) {
+                    result.put(entry.getKey(), new ArrayList<>(entry.getValue().values()));
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Checks whether any job has recorded points.
+     *
+     * @return {@code true} if the index is empty
+     */
+    public boolean isEmpty() {
+        synchronized (this) {
+            return !load() || jobs.isEmpty();
+        }
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    private static boolean isIndexable(final String job) {
+        return job.indexOf(TAB) < 0 && job.indexOf('\n') < 0 && job.indexOf('\r') < 0;
+    }
+
+    private static boolean isWithin(final String job, final String item) {
+        return job.equals(item) || job.startsWith(item + SEPARATOR);
+    }
+
+    private void put(final String job, final TrendPoint point) {
+        final NavigableMap<Integer, TrendPoint> points = jobs.computeIfAbsent(job, name -> new TreeMap<>());
+        points.put(point.getNumber(), point);
+        while (points.size() > depth) {
+            points.pollFirstEntry();
+        }
+    }
+
+    private boolean removePoint(final String job, final int number) {
+        final NavigableMap<Integer, TrendPoint> points = jobs.get(job);
+        if (points == null || points.remove(number) == null) {
+            return false;
+        }
+        if (points.isEmpty()) {
+            jobs.remove(job);
+        }
+        return true;
+    }
+
+    private Map<String, NavigableMap<Integer, TrendPoint>> removeItem(final String item) {
+        final Map<String, NavigableMap<Integer, TrendPoint>> removed = new HashMap<>();
+        final Iterator<Map.Entry<String, NavigableMap<Integer, TrendPoint>>> iterator = jobs.entrySet().iterator();
+        while (iterator.hasNext()) {
+            final Map.Entry<String, NavigableMap<Integer, TrendPoint>> entry = iterator.next();
+            if (isWithin(entry.getKey(), item)) {
+                removed.put(entry.getKey(), entry.getValue());
+                iterator.remove();
+            }
+        }
+        return removed;
+    }
+
+    private boolean load() {
+        try {
+            if (file.isFile()) {
+                ensureLoaded();
+            } else {
+                rebuild();
+            }
+            return true;
+        } catch (IOException e) {
+            LOG.log(Level.WARNING, "Unable to read Allure aggregate index from " + file, e);
+            return false;
+        }
+    }
+
+    private void ensureLoaded() throws IOException {
+        final long length = file.length();
+        if (jobs != null && length == loadedLength) {
+            return;
+        }
+        jobs = new HashMap<>();
+        lines = 0;
+        try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                if (!line.startsWith(COMMENT) && apply(line)) {
+                    lines++;
+                }
+            }
+        }
+        loadedLength = length;
+        if (lines > 2 * countPoints()) {
+            write();
+        }
+    }
+
+    /**
+     * Replays a line of the index file.
+     *
+     * @return whether the line was well-formed
+     */
+    private boolean apply(final String line) {
+        final String[] fields = line.split(String.valueOf(TAB), -1);
+        if (OP_RECORD.equals(fields[0]) && fields.length == 3) {
+            final TrendPoint point = TrendPoint.parse(fields[2]);
+            if (point != null) {
+                put(fields[1], point);
+                return true;
+            }
+        } else if (OP_REMOVE.equals(fields[0]) && fields.length == 3) {
+            try {
+                removePoint(fields[1], Integer.parseInt(fields[2]));
+                return true;
+            } catch (NumberFormatException ignored) {
+                return false;
+            }
+        } else if (OP_REMOVE_JOB.equals(fields[0]) && fields.length == 2) {
+            removeItem(fields[1]);
+            return true;
+        }
+        return false;
+    }
+
+    private int countPoints() {
+        int count = 0;
+        for (NavigableMap<Integer, TrendPoint> points : jobs.values()) {
+            count += points.size();
+        }
+        return count;
+    }
+
+    private void rebuild() throws IOException {
+        jobs = new HashMap<>();
+        for (Map.Entry<String, Collection<TrendPoint>> entry : history.get().entrySet()) {
+            if (isIndexable(entry.getKey())) {
+                for (TrendPoint point : entry.getValue()) {
+                    put(entry.getKey(), point);
+                }
+            }
+        }
+        write();
+    }
+
+    private void append(final String changes) {
+        try {
+            Files.write(file.toPath(), (changes + '\n').getBytes(StandardCharsets.UTF_8),
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            loadedLength = file.length();
+            lines += changes.split("\n").length;
+            if (lines > 2 * countPoints()) {
+                write();
+            }
+        } catch (IOException e) {
+            LOG.log(Level.WARNING, "Unable to update Allure aggregate index in " + file, e);
+        }
+    }
+
+    private void write() throws IOException {
+        final File parent = file.getAbsoluteFile().getParentFile();
+        Files.createDirectories(parent.toPath());
+        final File temp = File.createTempFile(FILE_NAME, ".tmp", parent);
+        int written = 0;
+        try {
+            try (BufferedWriter writer = Files.newBufferedWriter(temp.toPath(), StandardCharsets.UTF_8)) {
+                writer.write(HEADER);
+                writer.newLine();
+                for (Map.Entry<String, NavigableMap<Integer, TrendPoint>> entry : new TreeMap<>(jobs).entrySet()) {
+                    for (TrendPoint point : entry.getValue().values()) {
+                        writer.write(OP_RECORD + TAB + entry.getKey() + TAB + point.format());
+                        writer.newLine();
+                        written++;
+                    }
+                }
+            }
+            try {
+                Files.move(temp.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException ignored) {
+                Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp.toPath());
+        }
+        loadedLength = file.length();
+        lines = written;
+    }
+
+    /**
+     * Reads the per-job trend files of all jobs that have one, without loading any builds.
+     */
+    @SuppressWarnings("PMD.AvoidInstantiatingObjectsInLoops")
+    private static Map<String, Collection<TrendPoint>> scan(final int depth) {
+        final Map<String, Collection<TrendPoint>> result = new HashMap<>();
+        try (ACLContext ignored = ACL.as2(ACL.SYSTEM2)) {
+            for (Job<?, ?> job : Jenkins.get().allItems(Job.class)) {
+                if (new File(job.getRootDir(), AllureTrendStore.FILE_NAME).isFile()) {
+                    result.put(job.getFullName(), AllureTrendStore.forJob(job).read(Integer.MAX_VALUE, depth));
+                }
+            }
+        }
+        return result;
+    }
+
+    private static final class Holder {
+        private static final int DEPTH = SystemProperties.getInteger(
+                AllureAggregateIndex.class.getName() + ".depth", DEFAULT_DEPTH);
+        private static final AllureAggregateIndex INSTANCE = new AllureAggregateIndex(
+                new File(Jenkins.get().getRootDir(), FILE_NAME), DEPTH, () -> scan(DEPTH));
+    }
+}
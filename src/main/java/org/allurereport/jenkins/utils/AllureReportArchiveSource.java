@@ -40,10 +40,41 @@ public interface AllureReportArchiveSource extends AutoCloseable {
 
     boolean exists() throws IOException, InterruptedException;
 
+    /**
+     * Checks whether the archive contains the given file entry.
+     *
+     * @param entryPath the entry path inside the archive
+     * @return {@code true} if the entry exists and is not a directory
+     */
+    default boolean exists(final String entryPath) throws IOException, InterruptedException {
+        return listEntries(entryPath).contains(entryPath);
+    }
+
     InputStream openEntry(String entryPath) throws IOException, InterruptedException;
 
     List<String> listEntries(String prefix) throws IOException, InterruptedException;
 
+    /**
+     * Returns the metadata used to validate cached copies of an entry.
+     *
+     * @param entryPath the entry path inside the archive
+     * @return the entry metadata, or {@code null} if the entry is missing or the source can not tell
+     */
+    default ArchiveEntryInfo entryInfo(final String entryPath) throws IOException, InterruptedException {
+        return null;
+    }
+
+    /**
+     * Opens the stored bytes of a {@link java.util.zip.ZipEntry#DEFLATED DEFLATED} entry without inflating them.
+     *
+     * @param entryPath the entry path inside the archive
+     * @return the raw DEFLATE data, or {@code null} if the entry is not stored compressed
+     *     or the source can not read it without inflating
+     */
+    default InputStream openStoredEntry(final String entryPath) throws IOException, InterruptedException {
+        return null;
+    }
+
     default AllureReportArchiveSource activeSource() throws IOException, InterruptedException {
         return exists() ? this : null;
     }
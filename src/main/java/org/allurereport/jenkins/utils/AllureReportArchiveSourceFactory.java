@@ -26,7 +26,8 @@ import hudson.model.Run;
  *   <li>Local file: {@code <artifactsDir>/allure-report.zip} — wrapped in
  *       {@link LocalFileArchiveSource}.</li>
  *   <li>Artifact manager: delegates to {@link ArtifactManagerArchiveSource} which reads
- *       via {@link jenkins.model.ArtifactManager} / {@link jenkins.util.VirtualFile}.</li>
+ *       via {@link jenkins.model.ArtifactManager} / {@link jenkins.util.VirtualFile}. Archives held by a
+ *       remote artifact store are read through their {@link RemoteArchiveCache} copy.</li>
  * </ol>
  *
  * <p>Callers should always use a try-with-resources block:
@@ -39,6 +40,7 @@ import hudson.model.Run;
 public final class AllureReportArchiveSourceFactory {
 
     public static final String ALLURE_REPORT_ZIP = "allure-report.zip";
+    public static final String ALLURE_REPORT_INDEX = ALLURE_REPORT_ZIP + ".idx";
 
     private AllureReportArchiveSourceFactory() {
     }
@@ -47,7 +49,7 @@ public final class AllureReportArchiveSourceFactory {
     public static AllureReportArchiveSource forRun(final Run<?, ?> run) {
         final FilePath localPath = new FilePath(run.getArtifactsDir()).child(ALLURE_REPORT_ZIP);
         final AllureReportArchiveSource local = new LocalFileArchiveSource(localPath);
-        final AllureReportArchiveSource remote = new ArtifactManagerArchiveSource(run);
+        final AllureReportArchiveSource remote = new CachingArchiveSource(run);
         return new FallbackArchiveSource(local, remote);
     }
 
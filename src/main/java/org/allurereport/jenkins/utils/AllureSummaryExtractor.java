@@ -15,23 +15,23 @@
  */
 package org.allurereport.jenkins.utils;
 
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import hudson.FilePath;
 import hudson.model.Run;
 import jenkins.util.VirtualFile;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Objects;
+import java.util.NoSuchElementException;
 import java.util.Optional;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
-@SuppressWarnings({"PMD.TooManyMethods", "PMD.NcssCount"})
+@SuppressWarnings({"PMD.TooManyMethods", "PMD.NcssCount", "PMD.GodClass"})
 public final class AllureSummaryExtractor {
 
     private static final Logger LOG = Logger.getLogger(AllureSummaryExtractor.class.getName());
@@ -47,51 +47,54 @@ public final class AllureSummaryExtractor {
     private static final String DIR_AWESOME = "awesome";
     private static final String FILE_SUMMARY = "summary.json";
     private static final String FILE_STATISTIC = "statistic.json";
-    private static final String KEY_STATISTIC = "statistic";
 
     private static final String SEPARATOR = "/";
 
+    private static final int LOCATION_CACHE_SIZE = 256;
+
+    /**
+     * Summary entry found in the archive of a run, keyed by run directory, report path and report kind.
+     */
+    private static final Map<String, String> SUMMARY_LOCATIONS = new LinkedHashMap<String, String>(
+            16, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<String, String> eldest) {
+            return size() > LOCATION_CACHE_SIZE;
+        }
+    };
+
     private AllureSummaryExtractor() {
     }
 
     public static BuildSummary extractFromSummaryJson(final VirtualFile summaryArtifact) throws IOException {
         try (InputStream is = summaryArtifact.open()) {
-            final ObjectMapper mapper = new ObjectMapper();
-            final JsonNode root = mapper.readTree(is);
-            final JsonNode statistic = root != null ? root.get(KEY_STATISTIC) : null;
-            if (statistic == null || statistic.isNull()) {
-                return emptySummary();
-            }
-            final Map<String, Integer> statistics = new HashMap<>(5);
-            statistics.put(KEY_PASSED, readInt(statistic, KEY_PASSED));
-            statistics.put(KEY_FAILED, readInt(statistic, KEY_FAILED));
-            statistics.put(KEY_BROKEN, readInt(statistic, KEY_BROKEN));
-            statistics.put(KEY_SKIPPED, readInt(statistic, KEY_SKIPPED));
-            statistics.put(KEY_UNKNOWN, readInt(statistic, KEY_UNKNOWN));
-            return new BuildSummary().withStatistics(statistics);
+            return JsonUtils.readSummary(is, true);
         }
     }
 
-    private static int readInt(final JsonNode node, final String field) {
-        final JsonNode value = node.get(field);
-        return value != null && value.isNumber() ? value.asInt(0) : 0;
-    }
-
     public static BuildSummary extract(final Run<?, ?> run, final String reportPath, final boolean isAllure3) {
-        BuildSummary summary = extractFromZip(run, reportPath, isAllure3);
-        if (summary != null) {
-            return summary;
-        }
+        return read(run, reportPath, isAllure3).orElseGet(AllureSummaryExtractor::emptySummary);
+    }
 
-        summary = extractFromDirectory(run, reportPath, isAllure3);
+    /**
+     * Reads the summary of a report from its archive, or from its unpacked directory.
+     *
+     * @param run        the build
+     * @param reportPath the report directory name
+     * @param isAllure3  whether this is an Allure 3 report
+     * @return the summary, empty if none could be read
+     */
+    public static Optional<BuildSummary> read(final Run<?, ?> run, final String reportPath, final boolean isAllure3) {
+        final BuildSummary summary = extractFromZip(run, reportPath, isAllure3);
         if (summary != null) {
-            return summary;
+            return Optional.of(summary);
         }
-
-        return emptySummary();
+        return Optional.ofNullable(extractFromDirectory(run, reportPath, isAllure3));
     }
 
-    private static BuildSummary emptySummary() {
+    static BuildSummary emptySummary() {
         final Map<String, Integer> statistics = new HashMap<>(5);
         statistics.put(KEY_PASSED, 0);
         statistics.put(KEY_FAILED, 0);
@@ -102,18 +105,10 @@ public final class AllureSummaryExtractor {
     }
 
     private static BuildSummary extractFromZip(final Run<?, ?> run, final String reportPath, final boolean isAllure3) {
+        final String locationKey = run.getRootDir().getAbsolutePath() + '@' + reportPath + ':' + isAllure3;
         try (AllureReportArchiveSource source = AllureReportArchiveSourceFactory.forRun(run)) {
-            if (!source.exists()) {
-                return null;
-            }
-            final Optional<String> entryName = findSummaryEntryName(source, reportPath, isAllure3);
-            if (entryName.isPresent()) {
-                try (InputStream is = source.openEntry(entryName.get())) {
-                    if (entryName.get().endsWith(SEPARATOR + FILE_STATISTIC)) {
-                        return parseStatisticJson(is);
-                    }
-                    return parseSummaryJson(is);
-                }
+            if (source.exists()) {
+                return readFromArchive(source, locationKey, reportPath, isAllure3);
             }
         } catch (IOException | InterruptedException ex) {
             LOG.log(Level.FINE, "Unable to read Allure summary from ZIP for {0}: {1}",
@@ -122,50 +117,91 @@ public final class AllureSummaryExtractor {
         return null;
     }
 
+    /**
+     * Reads the summary entry remembered for the given location key, or looks it up and remembers it.
+     */
+    static BuildSummary readFromArchive(final AllureReportArchiveSource source,
+                                        final String locationKey,
+                                        final String reportPath,
+                                        final boolean isAllure3) throws IOException, InterruptedException {
+        final String cached = cachedLocation(locationKey);
+        if (cached != null) {
+            try {
+                return readSummaryEntry(source, cached);
+            } catch (NoSuchElementException ex) {
+                forgetLocation(locationKey);
+            }
+        }
+        final Optional<String> entryName = findSummaryEntryName(source, reportPath, isAllure3);
+        if (entryName.isPresent()) {
+            final BuildSummary summary = readSummaryEntry(source, entryName.get());
+            rememberLocation(locationKey, entryName.get());
+            return summary;
+        }
+        return null;
+    }
+
+    private static BuildSummary readSummaryEntry(final AllureReportArchiveSource source, final String entryName)
+            throws IOException {
+        try (InputStream is = source.openEntry(entryName)) {
+            if (entryName.endsWith(SEPARATOR + FILE_STATISTIC)) {
+                return parseStatisticJson(is);
+            }
+            return parseSummaryJson(is);
+        }
+    }
+
+    /**
+     * Resolves the summary entry by looking up the known candidates in order of preference, without listing
+     * the report.
+     */
     private static Optional<String> findSummaryEntryName(final AllureReportArchiveSource source,
                                                          final String reportPath,
                                                          final boolean isAllure3)
             throws IOException, InterruptedException {
-        if (isAllure3) {
-            return firstPresent(
-                    findEntry(source, reportPath, DIR_AWESOME + SEPARATOR + DIR_WIDGETS, FILE_STATISTIC),
-                    findEntry(source, reportPath, DIR_WIDGETS, FILE_STATISTIC),
-                    findEntry(source, reportPath, DIR_AWESOME + SEPARATOR + DIR_EXPORT, FILE_SUMMARY),
-                    findEntry(source, reportPath, DIR_AWESOME + SEPARATOR + DIR_WIDGETS, FILE_SUMMARY),
-                    findEntry(source, reportPath, DIR_EXPORT, FILE_SUMMARY),
-                    findEntry(source, reportPath, DIR_WIDGETS, FILE_SUMMARY)
-            );
-        }
-        return firstPresent(
-                findEntry(source, reportPath, DIR_EXPORT, FILE_SUMMARY),
-                findEntry(source, reportPath, DIR_WIDGETS, FILE_SUMMARY)
-        );
-    }
-
-    private static Optional<String> findEntry(final AllureReportArchiveSource source,
-                                              final String reportPath,
-                                              final String location,
-                                              final String fileName)
-            throws IOException, InterruptedException {
-        final String prefix = reportPath.concat(SEPARATOR).concat(location);
-        final String toSearch = prefix.concat(SEPARATOR).concat(fileName);
-        final List<String> entries = source.listEntries(prefix);
-        return entries.stream()
-                .filter(Objects::nonNull)
-                .filter(name -> name.equals(toSearch))
-                .findFirst();
-    }
-
-    @SafeVarargs
-    private static <T> Optional<T> firstPresent(final Optional<T>... options) {
-        for (Optional<T> o : options) {
-            if (o.isPresent()) {
-                return o;
+        for (String candidate : summaryCandidates(reportPath, isAllure3)) {
+            if (source.exists(candidate)) {
+                return Optional.of(candidate);
             }
         }
         return Optional.empty();
     }
 
+    static List<String> summaryCandidates(final String reportPath, final boolean isAllure3) {
+        final List<String> candidates = new ArrayList<>();
+        if (isAllure3) {
+            candidates.add(entry(reportPath, DIR_AWESOME + SEPARATOR + DIR_WIDGETS, FILE_STATISTIC));
+            candidates.add(entry(reportPath, DIR_WIDGETS, FILE_STATISTIC));
+            candidates.add(entry(reportPath, DIR_AWESOME + SEPARATOR + DIR_EXPORT, FILE_SUMMARY));
+            candidates.add(entry(reportPath, DIR_AWESOME + SEPARATOR + DIR_WIDGETS, FILE_SUMMARY));
+        }
+        candidates.add(entry(reportPath, DIR_EXPORT, FILE_SUMMARY));
+        candidates.add(entry(reportPath, DIR_WIDGETS, FILE_SUMMARY));
+        return candidates;
+    }
+
+    private static String entry(final String reportPath, final String location, final String fileName) {
+        return reportPath + SEPARATOR + location + SEPARATOR + fileName;
+    }
+
+    private static String cachedLocation(final String key) {
+        synchronized (SUMMARY_LOCATIONS) {
+            return SUMMARY_LOCATIONS.get(key);
+        }
+    }
+
+    private static void rememberLocation(final String key, final String entryName) {
+        synchronized (SUMMARY_LOCATIONS) {
+            SUMMARY_LOCATIONS.put(key, entryName);
+        }
+    }
+
+    private static void forgetLocation(final String key) {
+        synchronized (SUMMARY_LOCATIONS) {
+            SUMMARY_LOCATIONS.remove(key);
+        }
+    }
+
     private static BuildSummary extractFromDirectory(
             final Run<?, ?> run, final String reportPath, final boolean isAllure3
     ) {
@@ -232,24 +268,10 @@ public final class AllureSummaryExtractor {
     }
 
     private static BuildSummary getBuildSummary(final InputStream inputStream) throws IOException {
-        final ObjectMapper mapper = new ObjectMapper();
-        final JsonNode root = mapper.readTree(inputStream);
-        final JsonNode statisticNode = root.hasNonNull(KEY_STATISTIC) ? root.get(KEY_STATISTIC) : root;
-
-        final Map<String, Integer> statistics = new HashMap<>(5);
-        statistics.put(KEY_PASSED, nodeAsInt(statisticNode.get(KEY_PASSED)));
-        statistics.put(KEY_FAILED, nodeAsInt(statisticNode.get(KEY_FAILED)));
-        statistics.put(KEY_BROKEN, nodeAsInt(statisticNode.get(KEY_BROKEN)));
-        statistics.put(KEY_SKIPPED, nodeAsInt(statisticNode.get(KEY_SKIPPED)));
-        statistics.put(KEY_UNKNOWN, nodeAsInt(statisticNode.get(KEY_UNKNOWN)));
-        return new BuildSummary().withStatistics(statistics);
+        return JsonUtils.readSummary(inputStream, false);
     }
 
     private static BuildSummary parseStatisticJson(final InputStream inputStream) throws IOException {
         return getBuildSummary(inputStream);
     }
-
-    private static int nodeAsInt(final JsonNode node) {
-        return (node == null || node.isNull()) ? 0 : node.asInt(0);
-    }
 }
@@ -0,0 +1,262 @@
+/*
+ *  Copyright 2016-2023 Qameta Software OÜ
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.allurereport.jenkins.utils;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Compact per-build index of the test results of an Allure report, keyed by the Allure {@code historyId}.
+ *
+ * <p>The index is written next to {@code allure-summary.json} when the report is generated, so that the
+ * history of a single test can be followed across builds without opening the report archives. Entries
+ * are stored sorted by {@code historyId} in a small binary format: a header of {@link #MAGIC},
+ * {@link #VERSION} and the entry count, followed by the {@code historyId}, name, status, start time,
+ * duration and retry count of each test.
+ */
+public final class AllureTestIndex {
+
+    public static final String FILE_NAME = "allure-tests.idx";
+
+    static final int MAGIC = 0x41544958;
+    static final int VERSION = 1;
+
+    private static final int MAX_NAME_LENGTH = 1024;
+    private static final String[] STATUSES = {"unknown", "passed", "failed", "broken", "skipped"};
+
+    private final List<Entry> entries;
+
+    private AllureTestIndex(final List<Entry> entries) {
+        this.entries = Collections.unmodifiableList(entries);
+    }
+
+    public List<Entry> getEntries() {
+        return entries;
+    }
+
+    /**
+     * Writes the entries in index format, sorted by {@code historyId}.
+     *
+     * @param out     the target stream, left open
+     * @param entries the entries to write
+     * @throws IOException if the stream can not be written
+     */
+    public static void write(final OutputStream out, final Collection<Entry> entries) throws IOException {
+        final Map<String, Entry> sorted = new TreeMap<>();
+        for (Entry entry : entries) {
+            sorted.put(entry.getHistoryId(), entry);
+        }
+        final DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(MAGIC);
+        data.writeInt(VERSION);
+        data.writeInt(sorted.size());
+        for (Entry entry : sorted.values()) {
+            data.writeUTF(entry.getHistoryId());
+            data.writeUTF(entry.getName());
+            data.writeByte(statusCode(entry.getStatus()));
+            data.writeLong(entry.getStart());
+            data.writeLong(entry.getDuration());
+            data.writeInt(entry.getRetries());
+        }
+        data.flush();
+    }
+
+    /**
+     * Reads a whole index.
+     *
+     * @param in the index stream
+     * @return the index
+     * @throws IOException if the stream is not a readable index
+     */
+    public static AllureTestIndex read(final InputStream in) throws IOException {
+        final DataInputStream data = new DataInputStream(in);
+        final int count = readHeader(data);
+        final List<Entry> entries = new ArrayList<>(Math.min(count, 1 << 16));
+        for (int i = 0; i < count; i++) {
+            entries.add(readEntry(data));
+        }
+        return new AllureTestIndex(entries);
+    }
+
+    /**
+     * Looks up a single test, reading the index only up to the position where it would be stored.
+     *
+     * @param in        the index stream
+     * @param historyId the test to find
+     * @return the entry, or {@code null} if the index does not contain the test
+     * @throws IOException if the stream is not a readable index
+     */
+    public static Entry find(final InputStream in, final String historyId) throws IOException {
+        final DataInputStream data = new DataInputStream(in);
+        final int count = readHeader(data);
+        for (int i = 0; i < count; i++) {
+            final Entry entry = readEntry(data);
+            final int order = entry.getHistoryId().compareTo(historyId);
+            if (order == 0) {
+                return entry;
+            }
+            if (order > 0) {
+                return null;
+            }
+        }
+        return null;
+    }
+
+    private static int readHeader(final DataInputStream data) throws IOException {
+        if (data.readInt() != MAGIC) {
+            throw new IOException("Not an Allure test index");
+        }
+        final int version = data.readInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported Allure test index version " + version);
+        }
+        final int count = data.readInt();
+        if (count < 0) {
+            throw new EOFException("Corrupt Allure test index");
+        }
+        return count;
+    }
+
+    private static Entry readEntry(final DataInputStream data) throws IOException {
+        final String historyId = data.readUTF();
+        final String name = data.readUTF();
+        final int status = data.readUnsignedByte();
+        final long start = data.readLong();
+        final long duration = data.readLong();
+        final int retries = data.readInt();
+        return new Entry(historyId, name, status < STATUSES.length ? STATUSES[status] : STATUSES[0],
+                start, duration, retries);
+    }
+
+    private static int statusCode(final String status) {
+        for (int i = 0; i < STATUSES.length; i++) {
+            if (STATUSES[i].equals(status)) {
+                return i;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Collects test results into index entries. Results sharing a {@code historyId} are retries of the same
+     * test; the one that started last is kept and the others are counted as its retries.
+     */
+    public static final class Builder {
+
+        private final Map<String, Entry> entries = new TreeMap<>();
+
+        /**
+         * Adds a test result or an entry collected elsewhere. Results with an empty or overly long
+         * {@code historyId} are ignored.
+         *
+         * @param entry the result
+         * @return this builder
+         */
+        public Builder add(final Entry entry) {
+            if (entry.getHistoryId().isEmpty() || entry.getHistoryId().length() > MAX_NAME_LENGTH) {
+                return this;
+            }
+            entries.merge(entry.getHistoryId(), entry, Entry::merge);
+            return this;
+        }
+
+        public Builder addAll(final Collection<Entry> collected) {
+            for (Entry entry : collected) {
+                add(entry);
+            }
+            return this;
+        }
+
+        public List<Entry> build() {
+            return new ArrayList<>(entries.values());
+        }
+    }
+
+    /**
+     * The indexed result of a single test.
+     */
+    public static final class Entry implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final String historyId;
+        private final String name;
+        private final String status;
+        private final long start;
+        private final long duration;
+        private final int retries;
+
+        public Entry(final String historyId,
+                     final String name,
+                     final String status,
+                     final long start,
+                     final long duration,
+                     final int retries) {
+            this.historyId = historyId;
+            this.name = name == null ? historyId : truncate(name);
+            this.status = status == null ? STATUSES[0] : status.toLowerCase(Locale.ROOT);
+            this.start = start;
+            this.duration = duration;
+            this.retries = retries;
+        }
+
+        public String getHistoryId() {
+            return historyId;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getStatus() {
+            return status;
+        }
+
+        public long getStart() {
+            return start;
+        }
+
+        public long getDuration() {
+            return duration;
+        }
+
+        public int getRetries() {
+            return retries;
+        }
+
+        private static Entry merge(final Entry first, final Entry second) {
+            final Entry latest = second.start >= first.start ? second : first;
+            return new Entry(latest.historyId, latest.name, latest.status, latest.start, latest.duration,
+                    first.retries + second.retries + 1);
+        }
+
+        private static String truncate(final String value) {
+            return value.length() > MAX_NAME_LENGTH ? value.substring(0, MAX_NAME_LENGTH) : value;
+        }
+    }
+}
@@ -0,0 +1,357 @@
+/*
+ *  Copyright 2016-2023 Qameta Software OÜ
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.allurereport.jenkins.utils;
+
+import hudson.model.Job;
+import hudson.model.Run;
+import jenkins.util.SystemProperties;
+import jenkins.util.Timer;
+import org.allurereport.jenkins.AllureReportBuildAction;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Per-job record of the {@link TrendPoint} of every build with an Allure report, so that the history trend can
+ * be drawn without loading the builds themselves.
+ *
+ * <p>Points are appended to {@code allure-trend.txt} in the job directory when a report is attached to a build,
+ * and removed when a build is deleted. A missing file, e.g. for jobs built with older plugin versions, is
+ * rebuilt once from the counters stored with the builds. Builds recorded by older plugin versions, which do not
+ * store their counters, are migrated in the background: their summaries are read from their reports once, stored
+ * with the builds and then recorded, so that the rebuild never reads reports while holding the store. The trend
+ * shows the last {@code window} builds (system property
+ * {@code org.allurereport.jenkins.utils.AllureTrendStore.window}, 100 by default, {@code 0} for all builds).
+ * Walks over the build history, such as the rebuild, visit at most {@code maxDepth} builds (system property
+ * {@code org.allurereport.jenkins.utils.AllureTrendStore.maxDepth}, 1000 by default, {@code 0} for all builds).
+ */
+@SuppressWarnings("ClassDataAbstractionCoupling")
+public final class AllureTrendStore {
+
+    static final String FILE_NAME = "allure-trend.txt";
+
+    private static final Logger LOG = Logger.getLogger(AllureTrendStore.class.getName());
+
+    private static final String HEADER = "# allure-trend 1";
+    private static final String COMMENT = "#";
+    private static final int DEFAULT_WINDOW = 100;
+    private static final int DEFAULT_MAX_DEPTH = 1000;
+
+    private static final Map<String, AllureTrendStore> STORES = new ConcurrentHashMap<>();
+
+    private final File file;
+    private final Supplier<Collection<TrendPoint>> history;
+
+    private NavigableMap<Integer, TrendPoint> points;
+    private long loadedLength = -1L;
+    private long version;
+
+    AllureTrendStore(final File file, final Supplier<Collection<TrendPoint>> history) {
+        this.file = file;
+        this.history = history;
+    }
+
+    public static AllureTrendStore forJob(final Job<?, ?> job) {
+        final File file = new File(job.getRootDir(), FILE_NAME);
+        return STORES.compute(job.getFullName(), (name, store) -> store != null && store.file.equals(file)
+                ? store
+                : new AllureTrendStore(file, () -> scan(job)));
+    }
+
+    /**
+     * Drops the cached stores of a deleted or renamed job, or of all jobs in a deleted or renamed folder.
+     *
+     * @param fullName the full name of the job or folder
+     */
+    public static void forget(final String fullName) {
+        final String prefix = fullName + '/';
+        STORES.keySet().removeIf(name -> name.equals(fullName) || name.startsWith(prefix));
+    }
+
+    /**
+     * Returns the number of builds shown in a trend.
+     *
+     * @return the window size, {@link Integer#MAX_VALUE} if unbounded
+     */
+    public static int getWindow() {
+        final int window = SystemProperties.getInteger(AllureTrendStore.class.getName() + ".window", DEFAULT_WINDOW);
+        return window > 0 ? window : Integer.MAX_VALUE;
+    }
+
+    /**
+     * Returns the maximum number of builds visited when walking the build history.
+     *
+     * @return the depth, {@link Integer#MAX_VALUE} if unbounded
+     */
+    public static int getMaxDepth() {
+        final int depth = SystemProperties.getInteger(
+                AllureTrendStore.class.getName() + ".maxDepth", DEFAULT_MAX_DEPTH);
+        return depth > 0 ? depth : Integer.MAX_VALUE;
+    }
+
+    /**
+     * Records the counters of a build, replacing a previous record of the same build.
+     *
+     * @param point the build counters
+     */
+    public void record(final TrendPoint point) {
+        synchronized (this) {
+            try {
+                if (!file.isFile()) {
+                    rebuild();
+                    if (points.containsKey(point.getNumber())) {
+                        return;
+                    }
+                }
+                ensureLoaded();
+                Files.write(file.toPath(), (point.format() + '\n').getBytes(StandardCharsets.UTF_8),
+                        StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+                points.put(point.getNumber(), point);
+                loadedLength = file.length();
+                version++;
+            } catch (IOException e) {
+                LOG.log(Level.WARNING, "Unable to record Allure trend in " + file, e);
+            }
+        }
+    }
+
+    /**
+     * Removes the record of a deleted build.
+     *
+     * @param number the build number
+     */
+    public void remove(final int number) {
+        synchronized (this) {
+            try {
+                if (file.isFile()) {
+                    ensureLoaded();
+                    if (points.remove(number) != null) {
+                        write();
+                        version++;
+                    }
+                }
+            } catch (IOException e) {
+                LOG.log(Level.WARNING, "Unable to update Allure trend in " + file, e);
+            }
+        }
+    }
+
+    /**
+     * Returns the newest points up to the given build, oldest first.
+     *
+     * @param upToNumber the newest build number to include
+     * @param window     the maximum number of points
+     * @return the points
+     */
+    public List<TrendPoint> read(final int upToNumber, final int window) {
+        synchronized (this) {
+            if (!load()) {
+                return new ArrayList<>();
+            }
+            final List<TrendPoint> result = new ArrayList<>();
+            for (TrendPoint point : points.headMap(upToNumber, true).descendingMap().values()) {
+                if (result.size() >= window) {
+                    break;
+                }
+                result.add(0, point);
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Returns the newest point recorded before the given build.
+     *
+     * @param number the build number
+     * @return the point, or {@code null} if there is none
+     */
+    public TrendPoint previous(final int number) {
+        synchronized (this) {
+            if (!load()) {
+                return null;
+            }
+            final Map.Entry<Integer, TrendPoint> entry = points.lowerEntry(number);
+            return entry == null ? null : entry.getValue();
+        }
+    }
+
+    /**
+     * Returns the newest point recorded up to and including the given build.
+     *
+     * @param number the build number
+     * @return the point, or {@code null} if there is none
+     */
+    public TrendPoint latest(final int number) {
+        synchronized (this) {
+            if (!load()) {
+                return null;
+            }
+            final Map.Entry<Integer, TrendPoint> entry = points.floorEntry(number);
+            return entry == null ? null : entry.getValue();
+        }
+    }
+
+    /**
+     * Returns the time the recorded points last changed, for conditional requests of views of the trend.
+     *
+     * @return the modification time in milliseconds, {@code 0} if unknown
+     */
+    public long getLastModified() {
+        synchronized (this) {
+            load();
+            return file.lastModified();
+        }
+    }
+
+    /**
+     * Returns a number that changes whenever the recorded points change, for caching views of the trend.
+     *
+     * @return the version of the recorded points
+     */
+    public long getVersion() {
+        synchronized (this) {
+            load();
+            return version;
+        }
+    }
+
+    private boolean load() {
+        try {
+            if (file.isFile()) {
+                ensureLoaded();
+            } else {
+                rebuild();
+            }
+            return true;
+        } catch (IOException e) {
+            LOG.log(Level.WARNING, "Unable to read Allure trend from " + file, e);
+            return false;
+        }
+    }
+
+    private void ensureLoaded() throws IOException {
+        final long length = file.length();
+        if (points != null && length == loadedLength) {
+            return;
+        }
+        final NavigableMap<Integer, TrendPoint> loaded = new TreeMap<>();
+        int lines = 0;
+        try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                final TrendPoint point = line.startsWith(COMMENT) ? null : TrendPoint.parse(line);
+                if (point != null) {
+                    loaded.put(point.getNumber(), point);
+                    lines++;
+                }
+            }
+        }
+        points = loaded;
+        loadedLength = length;
+        version++;
+        if (lines > 2 * loaded.size()) {
+            write();
+        }
+    }
+
+    private void rebuild() throws IOException {
+        final NavigableMap<Integer, TrendPoint> rebuilt = new TreeMap<>();
+        for (TrendPoint point : history.get()) {
+            rebuilt.put(point.getNumber(), point);
+        }
+        points = rebuilt;
+        write();
+        version++;
+    }
+
+    private void write() throws IOException {
+        final File parent = file.getAbsoluteFile().getParentFile();
+        Files.createDirectories(parent.toPath());
+        final File temp = File.createTempFile(FILE_NAME, ".tmp", parent);
+        try {
+            try (BufferedWriter writer = Files.newBufferedWriter(temp.toPath(), StandardCharsets.UTF_8)) {
+                writer.write(HEADER);
+                writer.newLine();
+                for (TrendPoint point : points.values()) {
+                    writer.write(point.format());
+                    writer.newLine();
+                }
+            }
+            try {
+                Files.move(temp.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException ignored) {
+                Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp.toPath());
+        }
+        loadedLength = file.length();
+    }
+
+    private static Collection<TrendPoint> scan(final Job<?, ?> job) {
+        final List<TrendPoint> result = new ArrayList<>();
+        final List<AllureReportBuildAction> legacy = new ArrayList<>();
+        int depth = getMaxDepth();
+        for (Run<?, ?> run = job.getLastBuild(); run != null && depth > 0; run = run.getPreviousBuild(), depth--) {
+            final AllureReportBuildAction action = run.getAction(AllureReportBuildAction.class);
+            if (action == null) {
+                continue;
+            }
+            if (action.hasSummaryLink()) {
+                result.add(TrendPoint.of(run.getNumber(), action));
+            } else {
+                legacy.add(action);
+            }
+        }
+        if (!legacy.isEmpty()) {
+            Timer.get().submit(() -> migrate(job.getFullName(), legacy));
+        }
+        return result;
+    }
+
+    /**
+     * Reads the summaries of builds recorded by older plugin versions from their reports, newest first. Reading a
+     * summary stores it with its build and records the build in the trend.
+     */
+    @SuppressWarnings("PMD.AvoidCatchingGenericException")
+    private static void migrate(final String fullName, final List<AllureReportBuildAction> legacy) {
+        LOG.log(Level.FINE, "Reading Allure summaries of {0} builds of {1}", new Object[]{legacy.size(), fullName});
+        for (AllureReportBuildAction action : legacy) {
+            try {
+                action.getBuildSummary();
+            } catch (RuntimeException e) {
+                LOG.log(Level.WARNING, "Unable to read Allure summary of " + fullName + " #"
+                        + action.getBuildNumber(), e);
+            }
+        }
+    }
+}
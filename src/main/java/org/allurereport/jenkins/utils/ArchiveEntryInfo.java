@@ -0,0 +1,86 @@
+/*
+ *  Copyright 2016-2023 Qameta Software OÜ
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.allurereport.jenkins.utils;
+
+/**
+ * Metadata of a single entry of an Allure report archive, used to validate cached copies of the entry.
+ *
+ * <p>{@code archiveLastModified} and {@code archiveLength} identify the archive the entry was read from.
+ * {@code size}, {@code compressedSize}, {@code crc} and {@code method} are {@code -1} when the archive
+ * source can not tell them without reading the entry itself.
+ */
+public final class ArchiveEntryInfo {
+
+    private final String name;
+    private final long size;
+    private final long compressedSize;
+    private final long crc;
+    private final int method;
+    private final long archiveLastModified;
+    private final long archiveLength;
+
+    public ArchiveEntryInfo(final String name,
+                            final long size,
+                            final long crc,
+                            final long archiveLastModified,
+                            final long archiveLength) {
+        this(name, size, -1L, crc, -1, archiveLastModified, archiveLength);
+    }
+
+    public ArchiveEntryInfo(final String name,
+                            final long size,
+                            final long compressedSize,
+                            final long crc,
+                            final int method,
+                            final long archiveLastModified,
+                            final long archiveLength) {
+        this.name = name;
+        this.size = size;
+        this.compressedSize = compressedSize;
+        this.crc = crc;
+        this.method = method;
+        this.archiveLastModified = archiveLastModified;
+        this.archiveLength = archiveLength;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public long getCompressedSize() {
+        return compressedSize;
+    }
+
+    public int getMethod() {
+        return method;
+    }
+
+    public long getCrc() {
+        return crc;
+    }
+
+    public long getArchiveLastModified() {
+        return archiveLastModified;
+    }
+
+    public long getArchiveLength() {
+        return archiveLength;
+    }
+}
@@ -15,15 +15,29 @@
  */
 package org.allurereport.jenkins.utils;
 
+import hudson.ProxyConfiguration;
 import hudson.model.Run;
 import jenkins.model.ArtifactManager;
+import jenkins.util.SystemProperties;
 import jenkins.util.VirtualFile;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLConnection;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+import java.util.zip.ZipEntry;
 
 /**
  * {@link AllureReportArchiveSource} implementation that reads from an artifact stored via
@@ -33,14 +47,55 @@ import java.util.NoSuchElementException;
  * file on the master node Ã¢ it delegates all I/O to the {@link VirtualFile} API, which
  * may transparently read from S3, Azure Blob Storage, or any other pluggable back-end.
  *
+ * <p>When the {@link ZipEntryIndex} sidecar ({@code allure-report.zip.idx}) was archived next to the
+ * report, a single entry is read by fetching just its byte range through
+ * {@link VirtualFile#toExternalURL()}, or by skipping to it if the artifact store has no external URLs.
+ * Parsed sidecar indexes are cached per build and archive version. Without a sidecar the archive
+ * is scanned from its start. Whether the archive exists, and its size and timestamp, are looked up once
+ * per source and remembered for completed builds, missing archives included.
+ *
  * <p>Because {@link VirtualFile} streams are opened on demand and closed by the caller,
  * this class itself holds no persistent resources and {@link #close()} is a no-op.
  */
+@SuppressWarnings({"ClassDataAbstractionCoupling", "PMD.GodClass"})
 public final class ArtifactManagerArchiveSource implements AllureReportArchiveSource {
 
+    private static final Logger LOG = Logger.getLogger(ArtifactManagerArchiveSource.class.getName());
+
+    private static final int INDEX_CACHE_SIZE = SystemProperties.getInteger(
+            ArtifactManagerArchiveSource.class.getName() + ".indexCacheSize", 64);
+
+    private static final Map<String, ZipEntryIndex> INDEX_CACHE = new LinkedHashMap<String, ZipEntryIndex>(
+            16, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<String, ZipEntryIndex> eldest) {
+            return size() > INDEX_CACHE_SIZE;
+        }
+    };
+
+    private static final long STATE_TTL_MILLIS = TimeUnit.SECONDS.toMillis(SystemProperties.getLong(
+            ArtifactManagerArchiveSource.class.getName() + ".archiveStateTtlSeconds", 60L));
+
+    private static final Map<String, ArchiveState> STATE_CACHE = new LinkedHashMap<String, ArchiveState>(
+            16, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<String, ArchiveState> eldest) {
+            return size() > INDEX_CACHE_SIZE;
+        }
+    };
+
+    private static final String ZIP_NOT_FOUND = "allure-report.zip not found in artifact store for run: ";
+    private static final String ENTRY_NOT_FOUND = "Entry not found in archive: ";
+    private static final String HEADER_RANGE = "Range";
+
     private final Run<?, ?> run;
 
     private VirtualFile artifactRoot;
+    private ArchiveState archiveState;
 
     public ArtifactManagerArchiveSource(final Run<?, ?> run) {
         this.run = run;
@@ -48,15 +103,31 @@ public final class ArtifactManagerArchiveSource implements AllureReportArchiveSo
 
     @Override
     public boolean exists() throws IOException, InterruptedException {
+        return getArchiveState().isPresent();
+    }
+
+    @Override
+    public boolean exists(final String entryPath) throws IOException, InterruptedException {
         final VirtualFile root = getArtifactRoot();
         if (root == null) {
             return false;
         }
-        final VirtualFile zip = root.child(AllureReportArchiveSourceFactory.ALLURE_REPORT_ZIP);
-        return zip.exists();
+        final ZipEntryIndex.Entry indexed = findIndexed(root, entryPath);
+        if (indexed != null) {
+            return true;
+        }
+        if (root.child(entryPath).isFile()) {
+            return true;
+        }
+        final ArchiveState archive = getArchiveState();
+        if (!archive.isPresent() || loadIndex(root, archive) != null) {
+            return false;
+        }
+        return ZipEntryInputStream.contains(archive.zipBlob.open(), entryPath);
     }
 
     @Override
+    @SuppressWarnings("PMD.CloseResource")
     public InputStream openEntry(final String entryPath) throws IOException, InterruptedException {
 
         final VirtualFile root = getArtifactRoot();
@@ -64,17 +135,38 @@ public final class ArtifactManagerArchiveSource implements AllureReportArchiveSo
             throw new NoSuchElementException("Artifact root not available for run: " + run.getFullDisplayName());
         }
 
+        final ZipEntryIndex.Entry entry = findIndexed(root, entryPath);
+        if (entry != null) {
+            final InputStream stored = openStored(getArchiveState().zipBlob, entry);
+            return entry.getMethod() == ZipEntry.DEFLATED ? inflate(stored) : stored;
+        }
+
         final VirtualFile directChild = root.child(entryPath);
         if (directChild.exists()) {
             return directChild.open();
         }
 
-        final VirtualFile zipBlob = root.child(AllureReportArchiveSourceFactory.ALLURE_REPORT_ZIP);
-        if (!zipBlob.exists()) {
-            throw new NoSuchElementException("allure-report.zip not found in artifact store for run: "
-                    + run.getFullDisplayName());
+        final ArchiveState archive = getArchiveState();
+        if (!archive.isPresent()) {
+            throw new NoSuchElementException(ZIP_NOT_FOUND + run.getFullDisplayName());
         }
-        return ZipEntryInputStream.open(zipBlob.open(), entryPath);
+        if (loadIndex(root, archive) != null) {
+            throw new NoSuchElementException(ENTRY_NOT_FOUND + entryPath);
+        }
+        return ZipEntryInputStream.open(archive.zipBlob.open(), entryPath);
+    }
+
+    @Override
+    public InputStream openStoredEntry(final String entryPath) throws IOException {
+        final VirtualFile root = getArtifactRoot();
+        if (root == null) {
+            return null;
+        }
+        final ZipEntryIndex.Entry entry = findIndexed(root, entryPath);
+        if (entry == null || entry.getMethod() != ZipEntry.DEFLATED) {
+            return null;
+        }
+        return openStored(getArchiveState().zipBlob, entry);
     }
 
     @Override
@@ -91,11 +183,38 @@ public final class ArtifactManagerArchiveSource implements AllureReportArchiveSo
             return result;
         }
 
-        final VirtualFile zipBlob = root.child(AllureReportArchiveSourceFactory.ALLURE_REPORT_ZIP);
-        if (!zipBlob.exists()) {
+        final ArchiveState archive = getArchiveState();
+        if (!archive.isPresent()) {
             return new ArrayList<>();
         }
-        return ZipEntryInputStream.listEntries(zipBlob.open(), prefix);
+        final ZipEntryIndex index = loadIndex(root, archive);
+        if (index == null) {
+            return ZipEntryInputStream.listEntries(archive.zipBlob.open(), prefix);
+        }
+        return index.list(prefix);
+    }
+
+    @Override
+    public ArchiveEntryInfo entryInfo(final String entryPath) throws IOException {
+        final VirtualFile root = getArtifactRoot();
+        if (root == null) {
+            return null;
+        }
+        final ArchiveState archive = getArchiveState();
+        final ZipEntryIndex.Entry entry = findIndexed(root, entryPath);
+        if (entry != null) {
+            return archive.lastModified > 0 ? new ArchiveEntryInfo(entryPath, entry.getSize(),
+                    entry.getCompressedSize(), entry.getCrc(), entry.getMethod(), archive.lastModified,
+                    archive.length) : null;
+        }
+        final VirtualFile directChild = root.child(entryPath);
+        if (directChild.isFile()) {
+            return describe(entryPath, directChild.lastModified(), directChild.length());
+        }
+        if (!archive.isPresent() || loadIndex(root, archive) != null) {
+            return null;
+        }
+        return describe(entryPath, archive.lastModified, archive.length);
     }
 
     @Override
@@ -114,6 +233,130 @@ public final class ArtifactManagerArchiveSource implements AllureReportArchiveSo
         return artifactRoot;
     }
 
+    /**
+     * Returns whether the report archive exists, together with its metadata. The result is resolved once
+     * per source and shared between sources of completed builds for {@code archiveStateTtlSeconds}, so that
+     * serving the assets of a report page does not query the artifact store for every single file.
+     */
+    ArchiveState getArchiveState() throws IOException {
+        if (archiveState == null) {
+            archiveState = lookupArchiveState();
+        }
+        return archiveState;
+    }
+
+    private ArchiveState lookupArchiveState() throws IOException {
+        final String key = run.getRootDir().getAbsolutePath();
+        final long now = System.currentTimeMillis();
+        synchronized (STATE_CACHE) {
+            final ArchiveState cached = STATE_CACHE.get(key);
+            if (cached != null && now - cached.checkedAt < STATE_TTL_MILLIS) {
+                return cached;
+            }
+        }
+        final VirtualFile root = getArtifactRoot();
+        final VirtualFile zipBlob = root != null
+                ? root.child(AllureReportArchiveSourceFactory.ALLURE_REPORT_ZIP)
+                : null;
+        final ArchiveState state = zipBlob != null && zipBlob.isFile()
+                ? new ArchiveState(zipBlob, zipBlob.lastModified(), zipBlob.length(), now)
+                : new ArchiveState(null, -1L, -1L, now);
+        if (!run.isBuilding()) {
+            synchronized (STATE_CACHE) {
+                STATE_CACHE.put(key, state);
+            }
+        }
+        return state;
+    }
+
+    private ZipEntryIndex.Entry findIndexed(final VirtualFile root, final String entryPath) throws IOException {
+        final ArchiveState archive = getArchiveState();
+        final ZipEntryIndex index = archive.isPresent() ? loadIndex(root, archive) : null;
+        final ZipEntryIndex.Entry entry = index != null ? index.find(entryPath) : null;
+        return entry != null && !entry.isDirectory() ? entry : null;
+    }
+
+    private ZipEntryIndex loadIndex(final VirtualFile root, final ArchiveState archive) throws IOException {
+        final long archiveLength = archive.length;
+        final String key = run.getRootDir().getAbsolutePath() + '@' + archive.lastModified + ':' + archiveLength;
+        synchronized (INDEX_CACHE) {
+            final ZipEntryIndex cached = INDEX_CACHE.get(key);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        final VirtualFile sidecar = root.child(AllureReportArchiveSourceFactory.ALLURE_REPORT_INDEX);
+        if (!sidecar.isFile()) {
+            return null;
+        }
+        final ZipEntryIndex index;
+        try (InputStream in = sidecar.open()) {
+            index = ZipEntryIndex.readSidecar(in);
+        } catch (IOException ex) {
+            LOG.log(Level.FINE, "Unable to read archive index of " + run.getFullDisplayName(), ex);
+            return null;
+        }
+        if (index.getArchiveLength() != archiveLength) {
+            return null;
+        }
+        synchronized (INDEX_CACHE) {
+            INDEX_CACHE.put(key, index);
+        }
+        return index;
+    }
+
+    @SuppressWarnings("PMD.CloseResource")
+    private static InputStream openStored(final VirtualFile zipBlob, final ZipEntryIndex.Entry entry)
+            throws IOException {
+        final long length = entry.getCompressedSize();
+        if (length == 0) {
+            return new ByteArrayInputStream(new byte[0]);
+        }
+        final long start = entry.getDataOffset();
+        final URL url = zipBlob.toExternalURL();
+        if (url != null) {
+            final URLConnection connection = ProxyConfiguration.open(url);
+            connection.setRequestProperty(HEADER_RANGE, "bytes=" + start + "-" + (start + length - 1));
+            final InputStream in = connection.getInputStream();
+            final boolean partial = connection instanceof HttpURLConnection
+                    && ((HttpURLConnection) connection).getResponseCode() == HttpURLConnection.HTTP_PARTIAL;
+            return bounded(in, partial ? 0 : start, length);
+        }
+        return bounded(zipBlob.open(), start, length);
+    }
+
+    private static InputStream bounded(final InputStream in, final long skip, final long length) throws IOException {
+        try {
+            BoundedInputStream.skipFully(in, skip);
+        } catch (IOException ex) {
+            in.close();
+            throw ex;
+        }
+        return new BoundedInputStream(in, length);
+    }
+
+    private static InputStream inflate(final InputStream stored) {
+        final Inflater inflater = new Inflater(true);
+        return new InflaterInputStream(stored, inflater) {
+            @Override
+            @SuppressWarnings("PMD.UseTryWithResources")
+            public void close() throws IOException {
+                try {
+                    super.close();
+                } finally {
+                    inflater.end();
+                }
+            }
+        };
+    }
+
+    private static ArchiveEntryInfo describe(final String entryPath, final long lastModified, final long length) {
+        if (lastModified <= 0) {
+            return null;
+        }
+        return new ArchiveEntryInfo(entryPath, -1L, -1L, lastModified, length);
+    }
+
     private static void collectEntries(final VirtualFile dir,
                                        final String currentPath,
                                        final List<String> result)
@@ -127,4 +370,38 @@ public final class ArtifactManagerArchiveSource implements AllureReportArchiveSo
             }
         }
     }
+
+    /**
+     * Presence and metadata of the report archive in the artifact store.
+     */
+    static final class ArchiveState {
+
+        private final VirtualFile zipBlob;
+        private final long lastModified;
+        private final long length;
+        private final long checkedAt;
+
+        ArchiveState(final VirtualFile zipBlob, final long lastModified, final long length, final long checkedAt) {
+            this.zipBlob = zipBlob;
+            this.lastModified = lastModified;
+            this.length = length;
+            this.checkedAt = checkedAt;
+        }
+
+        boolean isPresent() {
+            return zipBlob != null;
+        }
+
+        VirtualFile getZipBlob() {
+            return zipBlob;
+        }
+
+        long getLastModified() {
+            return lastModified;
+        }
+
+        long getLength() {
+            return length;
+        }
+    }
 }
@@ -0,0 +1,96 @@
+/*
+ *  Copyright 2016-2023 Qameta Software OÜ
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.allurereport.jenkins.utils;
+
+import java.io.EOFException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Stream that exposes at most {@code length} bytes of the underlying stream and closes it when closed.
+ */
+final class BoundedInputStream extends FilterInputStream {
+
+    private long remaining;
+
+    BoundedInputStream(final InputStream in, final long length) {
+        super(in);
+        this.remaining = length;
+    }
+
+    /**
+     * Skips exactly {@code count} bytes, also for streams whose {@link InputStream#skip(long)} may skip less.
+     *
+     * @param in    the stream to skip
+     * @param count the number of bytes to skip
+     * @throws IOException if the stream ends before
+     */
+    static void skipFully(final InputStream in, final long count) throws IOException {
+        long toSkip = count;
+        while (toSkip > 0) {
+            final long skipped = in.skip(toSkip);
+            if (skipped > 0) {
+                toSkip -= skipped;
+            } else if (in.read() < 0) {
+                throw new EOFException("Unexpected end of stream, " + toSkip + " bytes left to skip");
+            } else {
+                toSkip--;
+            }
+        }
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (remaining <= 0) {
+            return -1;
+        }
+        final int value = super.read();
+        if (value >= 0) {
+            remaining--;
+        }
+        return value;
+    }
+
+    @Override
+    public int read(final byte[] buffer, final int offset, final int length) throws IOException {
+        if (remaining <= 0) {
+            return -1;
+        }
+        final int read = super.read(buffer, offset, (int) Math.min(length, remaining));
+        if (read > 0) {
+            remaining -= read;
+        }
+        return read;
+    }
+
+    @Override
+    public long skip(final long count) throws IOException {
+        final long skipped = super.skip(Math.min(count, remaining));
+        remaining -= skipped;
+        return skipped;
+    }
+
+    @Override
+    public int available() throws IOException {
+        return (int) Math.min(super.available(), remaining);
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+}
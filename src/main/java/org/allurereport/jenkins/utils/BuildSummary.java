@@ -22,12 +22,18 @@ import java.util.Map;
 public class BuildSummary {
 
     private Map<String, Integer> statistics;
+    private long duration;
 
     public BuildSummary withStatistics(final Map<String, Integer> statistics) {
         this.statistics = statistics;
         return this;
     }
 
+    public BuildSummary withDuration(final long duration) {
+        this.duration = duration;
+        return this;
+    }
+
     public Map<String, Integer> getStatistics() {
         return statistics;
     }
@@ -56,6 +62,15 @@ public class BuildSummary {
         return getStatistic("unknown");
     }
 
+    /**
+     * Returns the total duration of the test run in milliseconds, or {@code 0} if the report does not tell.
+     *
+     * @return the duration in milliseconds
+     */
+    public long getDuration() {
+        return duration;
+    }
+
     public Result getResult() {
         if (getFailedCount() > 0 || getBrokenCount() > 0) {
             return Result.UNSTABLE;
@@ -0,0 +1,97 @@
+/*
+ *  Copyright 2016-2023 Qameta Software OÜ
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.allurereport.jenkins.utils;
+
+import hudson.FilePath;
+import hudson.model.Run;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+
+/**
+ * Reads a remote report archive through its {@link RemoteArchiveCache} copy when one is available,
+ * and directly from the artifact manager otherwise.
+ */
+final class CachingArchiveSource implements AllureReportArchiveSource {
+
+    private final Run<?, ?> run;
+    private final ArtifactManagerArchiveSource remote;
+
+    private AllureReportArchiveSource delegate;
+
+    CachingArchiveSource(final Run<?, ?> run) {
+        this.run = run;
+        this.remote = new ArtifactManagerArchiveSource(run);
+    }
+
+    @Override
+    public boolean exists() throws IOException, InterruptedException {
+        return remote.exists();
+    }
+
+    @Override
+    public boolean exists(final String entryPath) throws IOException, InterruptedException {
+        return resolve().exists(entryPath);
+    }
+
+    @Override
+    public InputStream openEntry(final String entryPath) throws IOException, InterruptedException {
+        return resolve().openEntry(entryPath);
+    }
+
+    @Override
+    public List<String> listEntries(final String prefix) throws IOException, InterruptedException {
+        return resolve().listEntries(prefix);
+    }
+
+    @Override
+    public ArchiveEntryInfo entryInfo(final String entryPath) throws IOException, InterruptedException {
+        return resolve().entryInfo(entryPath);
+    }
+
+    @Override
+    public InputStream openStoredEntry(final String entryPath) throws IOException, InterruptedException {
+        return resolve().openStoredEntry(entryPath);
+    }
+
+    private AllureReportArchiveSource resolve() throws IOException {
+        synchronized (this) {
+            if (delegate == null) {
+                final File cached = RemoteArchiveCache.get().fetch(run, remote.getArchiveState());
+                delegate = cached != null ? new LocalFileArchiveSource(new FilePath(cached)) : remote;
+            }
+            return delegate;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        final AllureReportArchiveSource local;
+        synchronized (this) {
+            local = delegate != remote ? delegate : null;
+            delegate = null;
+        }
+        try {
+            if (local != null) {
+                local.close();
+            }
+        } finally {
+            remote.close();
+        }
+    }
+}
@@ -15,12 +15,13 @@
  */
 package org.allurereport.jenkins.utils;
 
-import hudson.util.ChartUtil;
 import hudson.util.ShiftedCategoryAxis;
 import hudson.util.StackedAreaRenderer2;
-import org.allurereport.jenkins.AllureReportBuildAction;
+import jenkins.util.SystemProperties;
 import org.allurereport.jenkins.Messages;
 import org.jfree.chart.ChartFactory;
+import org.jfree.chart.ChartRenderingInfo;
+import org.jfree.chart.ChartUtilities;
 import org.jfree.chart.JFreeChart;
 import org.jfree.chart.axis.CategoryAxis;
 import org.jfree.chart.axis.CategoryLabelPositions;
@@ -32,10 +33,25 @@ import org.jfree.data.category.CategoryDataset;
 import org.jfree.ui.RectangleInsets;
 import org.kohsuke.stapler.StaplerRequest;
 
+import javax.imageio.ImageIO;
+
 import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 
 public final class ChartUtils {
 
+    private static final String PARAM_WIDTH = "width";
+    private static final String PARAM_HEIGHT = "height";
+    private static final String PARAM_SCALE = "scale";
+
+    private static final int MAX_DIMENSION = 2560;
+    private static final double MIN_SCALE = 1.0;
+    private static final double MAX_SCALE = 3.0;
+    private static final long MAX_AREA = SystemProperties.getLong(ChartUtils.class.getName() + ".maxArea",
+            10_000_000L);
+
     private ChartUtils() {
     }
 
@@ -81,38 +97,35 @@ public final class ChartUtils {
             public String generateURL(final CategoryDataset dataset,
                                       final int row,
                                       final int column) {
-                final ChartUtil.NumberOnlyBuildLabel label = (ChartUtil.NumberOnlyBuildLabel)
-                        dataset.getColumnKey(column);
-                return relPath + label.getRun().getNumber() + "/allure/";
+                final TrendPoint point = (TrendPoint) dataset.getColumnKey(column);
+                return relPath + point.getNumber() + "/allure/";
             }
 
             @Override
             public String generateToolTip(final CategoryDataset dataset,
                                           final int row,
                                           final int column) {
-                final ChartUtil.NumberOnlyBuildLabel label = (ChartUtil.NumberOnlyBuildLabel)
-                        dataset.getColumnKey(column);
-                final AllureReportBuildAction buildAction = label.getRun().getAction(AllureReportBuildAction.class);
-                final String displayName = label.getRun().getDisplayName();
+                final TrendPoint point = (TrendPoint) dataset.getColumnKey(column);
+                final String displayName = point.toString();
                 switch (row) {
                     case 0:
                         return String.valueOf(Messages._AllureReportBuildAction_failed(displayName,
-                                buildAction.getFailedCount()));
+                                point.getFailed()));
                     case 1:
                         return String.valueOf(Messages._AllureReportBuildAction_broken(displayName,
-                                buildAction.getBrokenCount()));
+                                point.getBroken()));
                     case 2:
                         return String.valueOf(Messages.AllureReportBuildAction_passed(displayName,
-                                buildAction.getPassedCount()));
+                                point.getPassed()));
                     case 3:
                         return String.valueOf(Messages.AllureReportBuildAction_skipped(displayName,
-                                buildAction.getSkipCount()));
+                                point.getSkipped()));
                     case 4:
                         return String.valueOf(Messages.AllureReportBuildAction_unknown(displayName,
-                                buildAction.getUnknownCount()));
+                                point.getUnknown()));
                     default:
                         return String.valueOf(Messages.AllureReportBuildAction_total(displayName,
-                                buildAction.getTotalCount()));
+                                point.getTotal()));
                 }
             }
         };
@@ -129,6 +142,70 @@ public final class ChartUtils {
         return chart;
     }
 
+    /**
+     * Renders the chart as a PNG image together with its image map.
+     *
+     * @param req     the graph request
+     * @param dataset the trend data
+     * @param size    the bounded size of the graph, see {@link #graphSize(StaplerRequest, int, int)}
+     * @return the rendered graph
+     * @throws IOException if the image can not be encoded
+     */
+    public static TrendGraph render(final StaplerRequest req,
+                                    final CategoryDataset dataset,
+                                    final GraphSize size) throws IOException {
+        final ChartRenderingInfo info = new ChartRenderingInfo();
+        final BufferedImage image = createChart(req, dataset).createBufferedImage(
+                size.getImageWidth(), size.getImageHeight(), size.getWidth(), size.getHeight(), info);
+        final ByteArrayOutputStream png = new ByteArrayOutputStream();
+        ImageIO.write(image, "PNG", png);
+        return new TrendGraph(png.toByteArray(), ChartUtilities.getImageMap("map", info));
+    }
+
+    /**
+     * Reads the {@code width}, {@code height} and {@code scale} request parameters like {@link hudson.util.Graph}
+     * does, bounded so that a request can not allocate an arbitrarily large image.
+     *
+     * @param req           the graph request
+     * @param defaultWidth  the width used when the request does not specify a valid one
+     * @param defaultHeight the height used when the request does not specify a valid one
+     * @return the bounded size
+     */
+    public static GraphSize graphSize(final StaplerRequest req, final int defaultWidth, final int defaultHeight) {
+        return GraphSize.of(intParameter(req, PARAM_WIDTH, defaultWidth), intParameter(req, PARAM_HEIGHT,
+                defaultHeight), scaleParameter(req), defaultWidth, defaultHeight, MAX_AREA);
+    }
+
+    /**
+     * Returns the request parameters that change the rendered graph, for use in cache keys. These include the
+     * locale, as the tooltips of the image map are localized.
+     *
+     * @param req  the graph request
+     * @param size the bounded size of the graph
+     * @return the normalized parameters
+     */
+    public static String renderParameters(final StaplerRequest req, final GraphSize size) {
+        return size + "@" + req.getLocale() + '@' + getRelPath(req);
+    }
+
+    private static int intParameter(final StaplerRequest req, final String name, final int defaultValue) {
+        final String value = req.getParameter(name);
+        try {
+            return value == null ? defaultValue : Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
+    private static double scaleParameter(final StaplerRequest req) {
+        final String value = req.getParameter(PARAM_SCALE);
+        try {
+            return value == null ? MIN_SCALE : Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            return MIN_SCALE;
+        }
+    }
+
     private static String getRelPath(final StaplerRequest req) {
         final String relPath = req.getParameter("rel");
         if (relPath == null) {
@@ -136,4 +213,56 @@ public final class ChartUtils {
         }
         return relPath;
     }
+
+    /**
+     * The size of a graph in layout units, and the scale of its image. Dimensions are positive and at most
+     * {@code 2560}, the scale is between {@code 1} and {@code 3}, and is lowered further when the image would
+     * have more than {@code maxArea} pixels (system property
+     * {@code org.allurereport.jenkins.utils.ChartUtils.maxArea}, 10000000 by default).
+     */
+    public static final class GraphSize {
+
+        private final int width;
+        private final int height;
+        private final double scale;
+
+        private GraphSize(final int width, final int height, final double scale) {
+            this.width = width;
+            this.height = height;
+            this.scale = scale;
+        }
+
+        static GraphSize of(final int width, final int height, final double scale,
+                            final int defaultWidth, final int defaultHeight, final long maxArea) {
+            final int boundedWidth = width > 0 ? Math.min(width, MAX_DIMENSION) : defaultWidth;
+            final int boundedHeight = height > 0 ? Math.min(height, MAX_DIMENSION) : defaultHeight;
+            double boundedScale = Double.isNaN(scale) ? MIN_SCALE : Math.max(MIN_SCALE, Math.min(scale, MAX_SCALE));
+            final double area = (double) boundedWidth * boundedHeight;
+            if (area * boundedScale * boundedScale > maxArea) {
+                boundedScale = Math.sqrt(Math.max(1L, maxArea) / area);
+            }
+            return new GraphSize(boundedWidth, boundedHeight, boundedScale);
+        }
+
+        public int getWidth() {
+            return width;
+        }
+
+        public int getHeight() {
+            return height;
+        }
+
+        public int getImageWidth() {
+            return Math.max(1, (int) (width * scale));
+        }
+
+        public int getImageHeight() {
+            return Math.max(1, (int) (height * scale));
+        }
+
+        @Override
+        public String toString() {
+            return width + "x" + height + "*" + scale;
+        }
+    }
 }
@@ -26,14 +26,31 @@ final class FallbackArchiveSource implements AllureReportArchiveSource {
     private final AllureReportArchiveSource primary;
     private final AllureReportArchiveSource fallback;
 
+    private AllureReportArchiveSource resolvedSource;
+    private boolean resolved;
+
     FallbackArchiveSource(final AllureReportArchiveSource primary,
                           final AllureReportArchiveSource fallback) {
         this.primary = primary;
         this.fallback = fallback;
     }
 
+    /**
+     * Resolves the source to read from on first use and keeps it for the lifetime of this source,
+     * as each resolution may query a remote artifact store.
+     */
     @Override
     public AllureReportArchiveSource activeSource() throws IOException, InterruptedException {
+        synchronized (this) {
+            if (!resolved) {
+                resolvedSource = resolveActiveSource();
+                resolved = true;
+            }
+            return resolvedSource;
+        }
+    }
+
+    private AllureReportArchiveSource resolveActiveSource() throws IOException, InterruptedException {
         if (primary.exists()) {
             return primary;
         }
@@ -48,6 +65,13 @@ final class FallbackArchiveSource implements AllureReportArchiveSource {
         return activeSource() != null;
     }
 
+    @Override
+    @SuppressWarnings("PMD.CloseResource")
+    public boolean exists(final String entryPath) throws IOException, InterruptedException {
+        final AllureReportArchiveSource active = activeSource();
+        return active != null && active.exists(entryPath);
+    }
+
     @Override
     @SuppressWarnings("PMD.CloseResource")
     public InputStream openEntry(final String entryPath) throws IOException, InterruptedException {
@@ -68,6 +92,20 @@ final class FallbackArchiveSource implements AllureReportArchiveSource {
         return Collections.emptyList();
     }
 
+    @Override
+    @SuppressWarnings("PMD.CloseResource")
+    public ArchiveEntryInfo entryInfo(final String entryPath) throws IOException, InterruptedException {
+        final AllureReportArchiveSource active = activeSource();
+        return active != null ? active.entryInfo(entryPath) : null;
+    }
+
+    @Override
+    @SuppressWarnings("PMD.CloseResource")
+    public InputStream openStoredEntry(final String entryPath) throws IOException, InterruptedException {
+        final AllureReportArchiveSource active = activeSource();
+        return active != null ? active.openStoredEntry(entryPath) : null;
+    }
+
     @Override
     public void close() throws IOException {
         IOException firstException = null;
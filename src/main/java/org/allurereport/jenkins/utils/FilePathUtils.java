@@ -15,29 +15,28 @@
  */
 package org.allurereport.jenkins.utils;
 
-import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import hudson.FilePath;
 import hudson.model.AbstractBuild;
 import hudson.model.Run;
 import jenkins.util.VirtualFile;
+import org.allurereport.jenkins.callables.CountResultStatuses;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.PrintStream;
 import java.util.HashMap;
 import java.util.List;
-import java.util.Locale;
 import java.util.Map;
+import java.util.Optional;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
 
-import static org.allurereport.jenkins.utils.ZipUtils.listEntries;
-
 @SuppressWarnings("PMD.GodClass")
 public final class FilePathUtils {
 
@@ -45,7 +44,6 @@ public final class FilePathUtils {
     private static final String ALLURE_REPORT_ZIP = "allure-report.zip";
     private static final Logger LOG = Logger.getLogger(FilePathUtils.class.getName());
 
-    private static final String KEY_STATUS = "status";
     private static final String KEY_PASSED = "passed";
     private static final String KEY_FAILED = "failed";
     private static final String KEY_BROKEN = "broken";
@@ -58,7 +56,6 @@ public final class FilePathUtils {
     private static final String KEY_STATISTIC = "statistic";
 
     private static final String SUMMARY_ARTIFACT_NAME = "allure-summary.json";
-    private static final int EXPECTED_HISTORY_ENTRY_COUNT = 1;
     private static final String HISTORY_JSON_SUFFIX = "/history/history.json";
 
     private FilePathUtils() {
@@ -82,21 +79,37 @@ public final class FilePathUtils {
         }
     }
 
+    /**
+     * Counts the result statuses on the agent holding the results, one call per results directory. A directory
+     * that can not be counted is left out of the summary.
+     */
     private static BuildSummary buildSummaryFromResults(final List<FilePath> resultsPaths)
             throws IOException, InterruptedException {
         final Map<String, Integer> stats = initStats();
-        final ObjectMapper mapper = new ObjectMapper();
+        final CountResultStatuses countStatuses = new CountResultStatuses();
 
         for (FilePath resultsPath : resultsPaths) {
             if (resultsPath == null || !resultsPath.exists()) {
                 continue;
             }
-            processResultsGlob(resultsPath, "**/*-result.json", mapper, stats);
+            countStatuses(resultsPath, countStatuses, stats);
         }
 
         return new BuildSummary().withStatistics(stats);
     }
 
+    private static void countStatuses(final FilePath resultsPath,
+                                      final CountResultStatuses countStatuses,
+                                      final Map<String, Integer> stats) throws InterruptedException {
+        try {
+            for (Map.Entry<String, Integer> count : resultsPath.act(countStatuses).entrySet()) {
+                stats.merge(count.getKey(), count.getValue(), Integer::sum);
+            }
+        } catch (IOException e) {
+            LOG.log(Level.WARNING, "Unable to count Allure result statuses in " + resultsPath.getRemote(), e);
+        }
+    }
+
     private static Map<String, Integer> initStats() {
         final Map<String, Integer> stats = new HashMap<>(5);
         stats.put(KEY_PASSED, 0);
@@ -107,54 +120,6 @@ public final class FilePathUtils {
         return stats;
     }
 
-    private static void processResultsGlob(final FilePath resultsPath,
-                                           final String glob,
-                                           final ObjectMapper mapper,
-                                           final Map<String, Integer> stats) {
-        try {
-            for (FilePath f : resultsPath.list(glob)) {
-                updateStatsFromResultFile(f, mapper, stats);
-            }
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            logGlobFailure(glob, resultsPath, e);
-        } catch (IOException e) {
-            logGlobFailure(glob, resultsPath, e);
-        }
-    }
-
-    private static void logGlobFailure(final String glob, final FilePath resultsPath, final Exception e) {
-        LOG.log(Level.FINE, "Unable to process Allure results for glob {0} in {1}: {2}",
-                new Object[]{glob, resultsPath.getRemote(), e.toString()});
-    }
-
-    private static void updateStatsFromResultFile(final FilePath file,
-                                                  final ObjectMapper mapper,
-                                                  final Map<String, Integer> stats
-    ) throws IOException, InterruptedException {
-        try (InputStream is = file.read()) {
-            final JsonNode root = mapper.readTree(is);
-            final String status = readStatus(root);
-            increment(stats, status);
-        }
-    }
-
-    private static String readStatus(final JsonNode root) {
-        final JsonNode statusNode = root.get(KEY_STATUS);
-        if (statusNode == null || statusNode.isNull()) {
-            return KEY_UNKNOWN;
-        }
-        return statusNode.asText(KEY_UNKNOWN).toLowerCase(Locale.ROOT);
-    }
-
-    private static void increment(final Map<String, Integer> stats, final String status) {
-        if (stats.containsKey(status)) {
-            stats.put(status, stats.get(status) + 1);
-        } else {
-            stats.put(KEY_UNKNOWN, stats.get(KEY_UNKNOWN) + 1);
-        }
-    }
-
     private static void writeSummaryJson(final FilePath target, final BuildSummary summary)
             throws IOException, InterruptedException {
         final FilePath parent = target.getParent();
@@ -162,7 +127,7 @@ public final class FilePathUtils {
             parent.mkdirs();
         }
 
-        final ObjectMapper mapper = new ObjectMapper();
+        final ObjectMapper mapper = JsonUtils.getMapper();
         final ObjectNode root = mapper.createObjectNode();
         final ObjectNode stat = mapper.createObjectNode();
 
@@ -239,27 +204,23 @@ public final class FilePathUtils {
     private static boolean isRunHistoryNotEmpty(final AllureReportArchiveSource source,
         final String reportPath) throws IOException, InterruptedException {
         final String historyEntry = reportPath + HISTORY_JSON_SUFFIX;
-        final List<String> entries = source.listEntries(reportPath + "/history");
-        if (!entries.contains(historyEntry)) {
+        if (!source.exists(historyEntry)) {
             return false;
         }
         try (InputStream is = source.openEntry(historyEntry)) {
-            final ObjectMapper mapper = new ObjectMapper();
-            final JsonNode historyJson = mapper.readTree(is);
-            return historyJson.elements().hasNext();
+            return JsonUtils.hasElements(is);
         }
     }
 
+    @SuppressWarnings("PMD.CloseResource")
     private static boolean isHistoryNotEmpty(final FilePath previousReport,
         final String reportPath) throws IOException {
-        try (ZipFile archive = new ZipFile(previousReport.getRemote())) {
-            final List<ZipEntry> entries = listEntries(archive, reportPath + HISTORY_JSON_SUFFIX);
-            if (entries.size() == EXPECTED_HISTORY_ENTRY_COUNT) {
-                final ZipEntry historyEntry = entries.get(0);
+        try (ZipFilePool.Lease lease = ZipFilePool.get().acquire(new File(previousReport.getRemote()))) {
+            final ZipFile archive = lease.getZipFile();
+            final ZipEntry historyEntry = archive.getEntry(reportPath + HISTORY_JSON_SUFFIX);
+            if (historyEntry != null && !historyEntry.isDirectory()) {
                 try (InputStream is = archive.getInputStream(historyEntry)) {
-                    final ObjectMapper mapper = new ObjectMapper();
-                    final JsonNode historyJson = mapper.readTree(is);
-                    return historyJson.elements().hasNext();
+                    return JsonUtils.hasElements(is);
                 }
             }
         }
@@ -286,14 +247,29 @@ public final class FilePathUtils {
      * @return the build summary
      */
     public static BuildSummary extractSummary(final Run<?, ?> run, final String reportPath, final boolean isAllure3) {
+        return readSummary(run, reportPath, isAllure3).orElseGet(AllureSummaryExtractor::emptySummary);
+    }
+
+    /**
+     * Reads the build summary from the summary artifact or the Allure report. Unlike
+     * {@link #extractSummary(Run, String, boolean)}, a summary that can not be read is reported as missing
+     * instead of as all zero counters.
+     *
+     * @param run the build run
+     * @param reportPath the path to the report
+     * @param isAllure3 whether this is an Allure 3 report
+     * @return the build summary, empty if none could be read
+     */
+    public static Optional<BuildSummary> readSummary(final Run<?, ?> run, final String reportPath,
+                                                     final boolean isAllure3) {
         try {
             final VirtualFile summary = run.getArtifactManager().root().child(SUMMARY_ARTIFACT_NAME);
             if (summary.exists()) {
-                return AllureSummaryExtractor.extractFromSummaryJson(summary);
+                return Optional.of(AllureSummaryExtractor.extractFromSummaryJson(summary));
             }
         } catch (IOException e) {
             LOG.log(Level.FINE, "Failed to extract summary from artifact", e);
         }
-        return AllureSummaryExtractor.extract(run, reportPath, isAllure3);
+        return AllureSummaryExtractor.read(run, reportPath, isAllure3);
     }
 }
@@ -0,0 +1,351 @@
+/*
+ *  Copyright 2016-2023 Qameta Software OÜ
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.allurereport.jenkins.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.regex.Pattern;
+
+/**
+ * Finds the directories matching an Ant-style pattern with {@link Files#walkFileTree}.
+ *
+ * <p>Unlike Ant's {@code DirectoryScanner}, subtrees that can not contain a match of the include pattern, or that
+ * are completely excluded, are never entered, and the top-level directories are walked in parallel on a fork-join
+ * pool. Patterns are matched case-insensitively and support {@code *}, {@code ?} and {@code **}; a trailing
+ * {@code /} stands for {@code /**}, as in Ant.
+ */
+public final class GlobScanner {
+
+    private static final String ANY_DIRECTORIES = "**";
+    private static final String SEPARATOR = "/";
+    private static final int SEQUENTIAL = 1;
+
+    private final Glob include;
+    private final List<Glob> excludes;
+
+    @SuppressWarnings("PMD.AvoidInstantiatingObjectsInLoops")
+    public GlobScanner(final String include, final List<String> excludes) {
+        this.include = new Glob(include);
+        this.excludes = new ArrayList<>(excludes.size());
+        for (String exclude : excludes) {
+            this.excludes.add(new Glob(exclude));
+        }
+    }
+
+    /**
+     * Walks the given directory.
+     *
+     * @param base        the directory to scan
+     * @param parallelism the number of top-level directories walked at once
+     * @return the matching directories relative to {@code base}, sorted, with the number of visited entries
+     * @throws IOException          if {@code base} can not be listed
+     * @throws InterruptedException if the scan is interrupted
+     */
+    public Result scan(final File base, final int parallelism) throws IOException, InterruptedException {
+        final Path root = base.toPath();
+        final Result result = new Result();
+        result.visitedDirectories++;
+        visit(Collections.emptyList(), result);
+
+        final List<Walker> walks = new ArrayList<>();
+        try (DirectoryStream<Path> children = Files.newDirectoryStream(root)) {
+            for (Path child : children) {
+                if (Files.isDirectory(child)) {
+                    walks.add(new Walker(root, child));
+                } else {
+                    result.visitedFiles++;
+                }
+            }
+        }
+        if (couldMatchBelow(Collections.emptyList())) {
+            for (Result walked : run(walks, parallelism)) {
+                result.add(walked);
+            }
+        }
+        Collections.sort(result.directories);
+        return result;
+    }
+
+    private static List<Result> run(final List<Walker> walks, final int parallelism)
+            throws IOException, InterruptedException {
+        final List<Result> results = new ArrayList<>(walks.size());
+        final int threads = Math.min(parallelism, walks.size());
+        if (threads <= SEQUENTIAL) {
+            for (Walker walk : walks) {
+                results.add(walk.call());
+            }
+            return results;
+        }
+        final ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            for (Future<Result> walked : pool.invokeAll(walks)) {
+                results.add(get(walked));
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        return results;
+    }
+
+    private static Result get(final Future<Result> walked) throws IOException, InterruptedException {
+        try {
+            return walked.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException(e);
+        }
+    }
+
+    private void visit(final List<String> segments, final Result result) {
+        if (include.matches(segments) && !isExcluded(segments)) {
+            result.directories.add(String.join(SEPARATOR, segments));
+        }
+    }
+
+    private boolean isExcluded(final List<String> segments) {
+        for (Glob exclude : excludes) {
+            if (exclude.matches(segments)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Whether the directory itself or one of its subdirectories may still be included.
+     */
+    private boolean couldMatchBelow(final List<String> segments) {
+        for (Glob exclude : excludes) {
+            if (exclude.matchesAllBelow(segments)) {
+                return false;
+            }
+        }
+        return include.matchesStart(segments);
+    }
+
+    private static List<String> segments(final Path relative) {
+        final List<String> segments = new ArrayList<>(relative.getNameCount());
+        for (Path name : relative) {
+            segments.add(name.toString());
+        }
+        return segments;
+    }
+
+    /**
+     * Walks one top-level directory, entering only the subdirectories that may still hold a match.
+     */
+    private final class Walker extends SimpleFileVisitor<Path> implements Callable<Result> {
+
+        private final Path root;
+        private final Path directory;
+        private final Result result = new Result();
+
+        Walker(final Path root, final Path directory) {
+            this.root = root;
+            this.directory = directory;
+        }
+
+        @Override
+        public Result call() throws IOException {
+            Files.walkFileTree(directory, EnumSet.of(FileVisitOption.FOLLOW_LINKS), Integer.MAX_VALUE, this);
+            return result;
+        }
+
+        @Override
+        public FileVisitResult preVisitDirectory(final Path dir, final BasicFileAttributes attrs) {
+            result.visitedDirectories++;
+            final List<String> segments = segments(root.relativize(dir));
+            visit(segments, result);
+            return couldMatchBelow(segments) ? FileVisitResult.CONTINUE : FileVisitResult.SKIP_SUBTREE;
+        }
+
+        @Override
+        public FileVisitResult visitFile(final Path file, final BasicFileAttributes attrs) {
+            result.visitedFiles++;
+            return FileVisitResult.CONTINUE;
+        }
+
+        @Override
+        public FileVisitResult visitFileFailed(final Path file, final IOException exc) {
+            return Files.isDirectory(file, LinkOption.NOFOLLOW_LINKS)
+                    ? FileVisitResult.SKIP_SUBTREE : FileVisitResult.CONTINUE;
+        }
+    }
+
+    /**
+     * The directories found by a scan together with the number of directories and files visited.
+     */
+    public static final class Result implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final List<String> directories = new ArrayList<>();
+        private long visitedDirectories;
+        private long visitedFiles;
+
+        public List<String> getDirectories() {
+            return directories;
+        }
+
+        public long getVisitedDirectories() {
+            return visitedDirectories;
+        }
+
+        public long getVisitedFiles() {
+            return visitedFiles;
+        }
+
+        private void add(final Result other) {
+            directories.addAll(other.directories);
+            visitedDirectories += other.visitedDirectories;
+            visitedFiles += other.visitedFiles;
+        }
+    }
+
+    /**
+     * An Ant-style pattern split into path segments.
+     */
+    private static final class Glob {
+
+        private final String[] tokens;
+        private final Pattern[] patterns;
+
+        Glob(final String pattern) {
+            String normalized = pattern.replace('\\', '/');
+            if (normalized.endsWith(SEPARATOR)) {
+                normalized += ANY_DIRECTORIES;
+            }
+            final List<String> parts = new ArrayList<>();
+            for (String part : normalized.split(SEPARATOR)) {
+                if (!part.isEmpty()) {
+                    parts.add(part);
+                }
+            }
+            this.tokens = parts.toArray(new String[0]);
+            this.patterns = new Pattern[tokens.length];
+            for (int i = 0; i < tokens.length; i++) {
+                patterns[i] = compile(tokens[i]);
+            }
+        }
+
+        boolean matches(final List<String> path) {
+            return matchFrom(0, path, 0);
+        }
+
+        boolean matchesStart(final List<String> path) {
+            return startFrom(0, path, 0);
+        }
+
+        boolean matchesAllBelow(final List<String> path) {
+            return allBelowFrom(0, path, 0);
+        }
+
+        private boolean matchFrom(final int token, final List<String> path, final int segment) {
+            if (token == tokens.length) {
+                return segment == path.size();
+            }
+            if (isAnyDirectories(token)) {
+                return matchFrom(token + 1, path, segment)
+                        || segment < path.size() && matchFrom(token, path, segment + 1);
+            }
+            return segment < path.size() && matchesToken(token, path.get(segment))
+                    && matchFrom(token + 1, path, segment + 1);
+        }
+
+        private boolean startFrom(final int token, final List<String> path, final int segment) {
+            if (segment == path.size()) {
+                return true;
+            }
+            if (token == tokens.length) {
+                return false;
+            }
+            if (isAnyDirectories(token)) {
+                return true;
+            }
+            return matchesToken(token, path.get(segment)) && startFrom(token + 1, path, segment + 1);
+        }
+
+        private boolean allBelowFrom(final int token, final List<String> path, final int segment) {
+            if (segment == path.size()) {
+                for (int i = token; i < tokens.length; i++) {
+                    if (!isAnyDirectories(i)) {
+                        return false;
+                    }
+                }
+                return token < tokens.length;
+            }
+            if (token == tokens.length) {
+                return false;
+            }
+            if (isAnyDirectories(token)) {
+                return allBelowFrom(token + 1, path, segment) || allBelowFrom(token, path, segment + 1);
+            }
+            return matchesToken(token, path.get(segment)) && allBelowFrom(token + 1, path, segment + 1);
+        }
+
+        private boolean isAnyDirectories(final int token) {
+            return ANY_DIRECTORIES.equals(tokens[token]);
+        }
+
+        private boolean matchesToken(final int token, final String name) {
+            return patterns[token] == null ? tokens[token].equalsIgnoreCase(name)
+                    : patterns[token].matcher(name).matches();
+        }
+
+        private static Pattern compile(final String token) {
+            if (ANY_DIRECTORIES.equals(token) || token.indexOf('*') < 0 && token.indexOf('?') < 0) {
+                return null;
+            }
+            final StringBuilder regex = new StringBuilder();
+            for (char c : token.toCharArray()) {
+                switch (c) {
+                    case '*':
+                        regex.append(".*");
+                        break;
+                    case '?':
+                        regex.append('.');
+                        break;
+                    default:
+                        if (!Character.isLetterOrDigit(c)) {
+                            regex.append('\\');
+                        }
+                        regex.append(c);
+                        break;
+                }
+            }
+            return Pattern.compile(regex.toString(), Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE | Pattern.DOTALL);
+        }
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ *  Copyright 2016-2023 Qameta Software OÜ
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.allurereport.jenkins.utils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Locale;
+
+/**
+ * Wraps the raw DEFLATE data of a zip entry into a gzip member (RFC 1952), so that a compressed
+ * entry can be sent with {@code Content-Encoding: gzip} without being inflated and compressed again.
+ *
+ * <p>The gzip trailer needs the CRC-32 and the length of the uncompressed data, both of which are
+ * already stored in the zip central directory.
+ */
+public final class GzipFraming {
+
+    /**
+     * Length of the fixed gzip header and trailer around the DEFLATE data.
+     */
+    public static final int OVERHEAD = 18;
+
+    private static final String GZIP = "gzip";
+    private static final String QUALITY = "q=";
+    private static final byte[] HEADER = {
+        0x1f, (byte) 0x8b, 8, 0, 0, 0, 0, 0, 0, (byte) 0xff,
+    };
+    private static final int BUFFER_SIZE = 8192;
+
+    private GzipFraming() {
+    }
+
+    /**
+     * Checks whether the client accepts a gzip encoded response.
+     *
+     * @param acceptEncoding the raw {@code Accept-Encoding} header, or {@code null}
+     * @return {@code true} if gzip is listed and not explicitly refused with {@code q=0}
+     */
+    public static boolean acceptsGzip(final String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            final String[] parts = coding.split(";");
+            if (GZIP.equals(parts[0].trim().toLowerCase(Locale.ROOT))) {
+                return parts.length < 2 || !isZeroQuality(parts[1].trim());
+            }
+        }
+        return false;
+    }
+
+    private static boolean isZeroQuality(final String parameter) {
+        if (!parameter.startsWith(QUALITY)) {
+            return false;
+        }
+        try {
+            return Double.parseDouble(parameter.substring(QUALITY.length())) <= 0;
+        } catch (NumberFormatException ignored) {
+            return false;
+        }
+    }
+
+    /**
+     * Writes a complete gzip member around raw DEFLATE data.
+     *
+     * @param rawDeflate the stored bytes of a DEFLATE compressed zip entry
+     * @param crc        the CRC-32 of the uncompressed entry
+     * @param size       the uncompressed size of the entry
+     * @param out        the target stream, left open
+     * @throws IOException if reading or writing fails
+     */
+    public static void write(final InputStream rawDeflate,
+                             final long crc,
+                             final long size,
+                             final OutputStream out) throws IOException {
+        out.write(HEADER);
+        final byte[] buffer = new byte[BUFFER_SIZE];
+        int read = rawDeflate.read(buffer);
+        while (read >= 0) {
+            out.write(buffer, 0, read);
+            read = rawDeflate.read(buffer);
+        }
+        writeIntLittleEndian(out, crc);
+        writeIntLittleEndian(out, size);
+    }
+
+    private static void writeIntLittleEndian(final OutputStream out, final long value) throws IOException {
+        out.write((int) (value & 0xFF));
+        out.write((int) (value >>> 8 & 0xFF));
+        out.write((int) (value >>> 16 & 0xFF));
+        out.write((int) (value >>> 24 & 0xFF));
+    }
+}
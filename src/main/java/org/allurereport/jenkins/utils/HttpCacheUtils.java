@@ -0,0 +1,101 @@
+/*
+ *  Copyright 2016-2023 Qameta Software OÜ
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.allurereport.jenkins.utils;
+
+/**
+ * Helpers for HTTP conditional requests (RFC 7232) on archived report entries.
+ */
+public final class HttpCacheUtils {
+
+    public static final String HEADER_ETAG = "ETag";
+    public static final String HEADER_LAST_MODIFIED = "Last-Modified";
+    public static final String HEADER_IF_NONE_MATCH = "If-None-Match";
+    public static final String HEADER_IF_MODIFIED_SINCE = "If-Modified-Since";
+
+    private static final String WEAK_PREFIX = "W/";
+    private static final String ANY = "*";
+    private static final char QUOTE = '"';
+    private static final char DASH = '-';
+    private static final String GZIP_SUFFIX = "-gzip";
+    private static final long SECOND = 1000L;
+
+    private HttpCacheUtils() {
+    }
+
+    /**
+     * Builds a strong entity tag for an archive entry. The tag changes whenever the archive is rewritten,
+     * and differs between entries of the same archive unless their content is identical.
+     *
+     * @param info the entry metadata
+     * @return the quoted entity tag
+     */
+    public static String entityTag(final ArchiveEntryInfo info) {
+        return entityTag(info, false);
+    }
+
+    /**
+     * Builds a strong entity tag for an archive entry. The gzip encoded representation of an entry
+     * gets its own tag, as its bytes differ from the identity representation.
+     *
+     * @param info        the entry metadata
+     * @param gzipEncoded whether the tag is for the gzip encoded representation
+     * @return the quoted entity tag
+     */
+    public static String entityTag(final ArchiveEntryInfo info, final boolean gzipEncoded) {
+        final long contentHash = info.getCrc() >= 0 ? info.getCrc() : info.getName().hashCode() & 0xFFFFFFFFL;
+        return QUOTE + Long.toHexString(info.getArchiveLastModified())
+                + DASH + Long.toHexString(info.getArchiveLength())
+                + DASH + Long.toHexString(contentHash)
+                + DASH + Long.toHexString(info.getSize())
+                + (gzipEncoded ? GZIP_SUFFIX : "")
+                + QUOTE;
+    }
+
+    /**
+     * Checks whether the client copy is still valid. {@code If-None-Match} takes precedence over
+     * {@code If-Modified-Since}, as required by RFC 7232.
+     *
+     * @param ifNoneMatch     the raw {@code If-None-Match} header, or {@code null}
+     * @param ifModifiedSince the {@code If-Modified-Since} date in milliseconds, or {@code -1}
+     * @param entityTag       the current entity tag of the resource
+     * @param lastModified    the modification date of the resource in milliseconds, or {@code 0} if unknown
+     * @return {@code true} if a {@code 304 Not Modified} response can be sent
+     */
+    public static boolean isNotModified(final String ifNoneMatch,
+                                        final long ifModifiedSince,
+                                        final String entityTag,
+                                        final long lastModified) {
+        if (ifNoneMatch != null) {
+            return matchesEntityTag(ifNoneMatch, entityTag);
+        }
+        return ifModifiedSince >= 0 && lastModified > 0
+                && lastModified / SECOND <= ifModifiedSince / SECOND;
+    }
+
+    static boolean matchesEntityTag(final String header, final String entityTag) {
+        for (String candidate : header.split(",")) {
+            final String tag = candidate.trim();
+            if (ANY.equals(tag) || stripWeak(tag).equals(stripWeak(entityTag))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String stripWeak(final String tag) {
+        return tag.startsWith(WEAK_PREFIX) ? tag.substring(WEAK_PREFIX.length()) : tag;
+    }
+}
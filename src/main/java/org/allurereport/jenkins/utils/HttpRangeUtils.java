@@ -0,0 +1,334 @@
+/*
+ *  Copyright 2016-2023 Qameta Software OÜ
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.allurereport.jenkins.utils;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Helpers for HTTP range requests (RFC 7233) on report files of a known length.
+ *
+ * <p>Ranges are served from a sequential stream, so requested ranges are sorted and overlapping
+ * or adjacent ranges are merged before they are sent.
+ */
+@SuppressWarnings("PMD.GodClass")
+public final class HttpRangeUtils {
+
+    public static final String HEADER_RANGE = "Range";
+    public static final String HEADER_IF_RANGE = "If-Range";
+    public static final String HEADER_ACCEPT_RANGES = "Accept-Ranges";
+    public static final String HEADER_CONTENT_RANGE = "Content-Range";
+    public static final String BYTES = "bytes";
+
+    private static final String BYTES_PREFIX = BYTES + "=";
+    private static final String CRLF = "\r\n";
+    private static final String BOUNDARY_DELIMITER = "--";
+    private static final String MULTIPART_BYTERANGES = "multipart/byteranges; boundary=";
+    private static final String WEAK_PREFIX = "W/";
+    private static final char QUOTE = '"';
+    private static final int MAX_RANGES = 32;
+    private static final int SINGLE_RANGE = 1;
+    private static final int BUFFER_SIZE = 8192;
+    private static final long SECOND = 1000L;
+
+    private HttpRangeUtils() {
+    }
+
+    /**
+     * Returns the ranges to serve for a request, taking {@code If-Range} into account.
+     *
+     * @param req          the request
+     * @param length       the length of the full representation
+     * @param entityTag    the strong entity tag of the representation, or {@code null}
+     * @param lastModified the modification date of the representation, or {@code 0} if unknown
+     * @return the ranges to serve, an empty list if none is satisfiable,
+     *     or {@code null} if the full representation should be sent
+     */
+    @SuppressWarnings("PMD.ReturnEmptyCollectionRatherThanNull")
+    public static List<Range> requestedRanges(final HttpServletRequest req,
+                                              final long length,
+                                              final String entityTag,
+                                              final long lastModified) {
+        final String range = req.getHeader(HEADER_RANGE);
+        if (range == null) {
+            return null;
+        }
+        final String ifRange = req.getHeader(HEADER_IF_RANGE);
+        if (ifRange != null && !ifRangeMatches(ifRange, ifRangeDate(req, ifRange), entityTag, lastModified)) {
+            return null;
+        }
+        return parse(range, length);
+    }
+
+    private static long ifRangeDate(final HttpServletRequest req, final String ifRange) {
+        if (isEntityTag(ifRange)) {
+            return -1L;
+        }
+        try {
+            return req.getDateHeader(HEADER_IF_RANGE);
+        } catch (IllegalArgumentException ignored) {
+            return -1L;
+        }
+    }
+
+    /**
+     * Checks an {@code If-Range} precondition. Entity tags are compared strongly, dates must match
+     * the modification date to the second.
+     *
+     * @param ifRange      the raw header value
+     * @param ifRangeDate  the header parsed as a date in milliseconds, or {@code -1}
+     * @param entityTag    the strong entity tag of the representation, or {@code null}
+     * @param lastModified the modification date of the representation, or {@code 0} if unknown
+     * @return {@code true} if the range request may be honoured
+     */
+    public static boolean ifRangeMatches(final String ifRange,
+                                         final long ifRangeDate,
+                                         final String entityTag,
+                                         final long lastModified) {
+        if (isEntityTag(ifRange)) {
+            return ifRange.trim().equals(entityTag);
+        }
+        return ifRangeDate >= 0 && lastModified > 0 && ifRangeDate / SECOND == lastModified / SECOND;
+    }
+
+    private static boolean isEntityTag(final String value) {
+        final String trimmed = value.trim();
+        return !trimmed.isEmpty() && (trimmed.charAt(0) == QUOTE || trimmed.startsWith(WEAK_PREFIX));
+    }
+
+    /**
+     * Parses a {@code Range} header.
+     *
+     * @param header the raw header value
+     * @param length the length of the full representation
+     * @return the sorted and merged satisfiable ranges, an empty list if none is satisfiable,
+     *     or {@code null} if the header is malformed or should be ignored
+     */
+    @SuppressWarnings("PMD.ReturnEmptyCollectionRatherThanNull")
+    public static List<Range> parse(final String header, final long length) {
+        if (!header.toLowerCase(Locale.ROOT).startsWith(BYTES_PREFIX)) {
+            return null;
+        }
+        final String[] specs = header.substring(BYTES_PREFIX.length()).split(",");
+        if (specs.length > MAX_RANGES) {
+            return null;
+        }
+        final List<Range> ranges = new ArrayList<>(specs.length);
+        for (String spec : specs) {
+            final Range range = parseSpec(spec.trim(), length);
+            if (range == null) {
+                return null;
+            }
+            if (range.getStart() < length && range.getStart() <= range.getEnd()) {
+                ranges.add(range);
+            }
+        }
+        return merge(ranges);
+    }
+
+    private static Range parseSpec(final String spec, final long length) {
+        final int dash = spec.indexOf('-');
+        if (dash < 0) {
+            return null;
+        }
+        final String first = spec.substring(0, dash).trim();
+        final String last = spec.substring(dash + 1).trim();
+        try {
+            if (first.isEmpty()) {
+                final long suffix = Long.parseLong(last);
+                if (suffix < 0) {
+                    return null;
+                }
+                return suffix == 0 ? new Range(length, length) : new Range(Math.max(0, length - suffix), length - 1);
+            }
+            final long start = Long.parseLong(first);
+            final long end = last.isEmpty() ? Long.MAX_VALUE : Long.parseLong(last);
+            if (start < 0 || end < start) {
+                return null;
+            }
+            return new Range(start, Math.min(end, length - 1));
+        } catch (NumberFormatException ignored) {
+            return null;
+        }
+    }
+
+    @SuppressWarnings("PMD.AvoidInstantiatingObjectsInLoops")
+    private static List<Range> merge(final List<Range> ranges) {
+        ranges.sort(Comparator.comparingLong(Range::getStart));
+        final List<Range> merged = new ArrayList<>(ranges.size());
+        for (Range range : ranges) {
+            final int lastIndex = merged.size() - 1;
+            if (lastIndex >= 0 && range.getStart() <= merged.get(lastIndex).getEnd() + 1) {
+                final Range previous = merged.get(lastIndex);
+                merged.set(lastIndex, new Range(previous.getStart(), Math.max(previous.getEnd(), range.getEnd())));
+            } else {
+                merged.add(range);
+            }
+        }
+        return merged;
+    }
+
+    /**
+     * Sends a {@code 206 Partial Content} response, or {@code 416} if no range is satisfiable.
+     *
+     * @param rsp         the response
+     * @param in          the full representation, positioned at its start
+     * @param length      the length of the full representation
+     * @param ranges      the ranges as returned by {@link #parse(String, long)}
+     * @param contentType the content type of the representation
+     * @throws IOException if reading or writing fails
+     */
+    public static void serve(final HttpServletResponse rsp,
+                             final InputStream in,
+                             final long length,
+                             final List<Range> ranges,
+                             final String contentType) throws IOException {
+        rsp.setHeader(HEADER_ACCEPT_RANGES, BYTES);
+        if (ranges.isEmpty()) {
+            rsp.setHeader(HEADER_CONTENT_RANGE, BYTES + " */" + length);
+            rsp.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+            return;
+        }
+        rsp.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+        if (ranges.size() == SINGLE_RANGE) {
+            final Range range = ranges.get(0);
+            rsp.setContentType(contentType);
+            rsp.setHeader(HEADER_CONTENT_RANGE, range.toContentRange(length));
+            rsp.setContentLengthLong(range.getLength());
+            BoundedInputStream.skipFully(in, range.getStart());
+            copy(in, rsp.getOutputStream(), range.getLength());
+            return;
+        }
+        final String boundary = Long.toHexString(ThreadLocalRandom.current().nextLong());
+        rsp.setContentType(MULTIPART_BYTERANGES + boundary);
+        rsp.setContentLengthLong(multipartLength(length, ranges, contentType, boundary));
+        writeMultipart(in, length, ranges, contentType, boundary, rsp.getOutputStream());
+    }
+
+    /**
+     * Sends the full representation with an exact {@code Content-Length} and advertises range support.
+     *
+     * @param rsp         the response
+     * @param in          the full representation, positioned at its start
+     * @param length      the length of the full representation
+     * @param contentType the content type of the representation
+     * @throws IOException if reading or writing fails
+     */
+    public static void serveFull(final HttpServletResponse rsp,
+                                 final InputStream in,
+                                 final long length,
+                                 final String contentType) throws IOException {
+        rsp.setHeader(HEADER_ACCEPT_RANGES, BYTES);
+        rsp.setContentType(contentType);
+        rsp.setContentLengthLong(length);
+        copy(in, rsp.getOutputStream(), length);
+    }
+
+    static long multipartLength(final long length,
+                                final List<Range> ranges,
+                                final String contentType,
+                                final String boundary) {
+        long total = closingDelimiter(boundary).length;
+        for (Range range : ranges) {
+            total += partHeader(length, range, contentType, boundary).length + range.getLength();
+        }
+        return total;
+    }
+
+    static void writeMultipart(final InputStream in,
+                               final long length,
+                               final List<Range> ranges,
+                               final String contentType,
+                               final String boundary,
+                               final OutputStream out) throws IOException {
+        long position = 0;
+        for (Range range : ranges) {
+            out.write(partHeader(length, range, contentType, boundary));
+            BoundedInputStream.skipFully(in, range.getStart() - position);
+            copy(in, out, range.getLength());
+            position = range.getEnd() + 1;
+        }
+        out.write(closingDelimiter(boundary));
+    }
+
+    private static byte[] partHeader(final long length,
+                                     final Range range,
+                                     final String contentType,
+                                     final String boundary) {
+        return (CRLF + BOUNDARY_DELIMITER + boundary + CRLF
+                + "Content-Type: " + contentType + CRLF
+                + HEADER_CONTENT_RANGE + ": " + range.toContentRange(length) + CRLF
+                + CRLF).getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static byte[] closingDelimiter(final String boundary) {
+        return (CRLF + BOUNDARY_DELIMITER + boundary + BOUNDARY_DELIMITER + CRLF).getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static void copy(final InputStream in, final OutputStream out, final long count) throws IOException {
+        final byte[] buffer = new byte[(int) Math.min(BUFFER_SIZE, Math.max(1, count))];
+        long remaining = count;
+        while (remaining > 0) {
+            final int read = in.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+            if (read < 0) {
+                throw new EOFException("Unexpected end of stream while copying range");
+            }
+            out.write(buffer, 0, read);
+            remaining -= read;
+        }
+    }
+
+    /**
+     * An inclusive byte range of a representation.
+     */
+    public static final class Range {
+
+        private final long start;
+        private final long end;
+
+        public Range(final long start, final long end) {
+            this.start = start;
+            this.end = end;
+        }
+
+        public long getStart() {
+            return start;
+        }
+
+        public long getEnd() {
+            return end;
+        }
+
+        public long getLength() {
+            return end - start + 1;
+        }
+
+        String toContentRange(final long length) {
+            return BYTES + ' ' + start + '-' + end + '/' + length;
+        }
+    }
+}
@@ -0,0 +1,274 @@
+/*
+ *  Copyright 2016-2023 Qameta Software OÜ
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.allurereport.jenkins.utils;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Shared JSON support for the Allure report files read by the plugin.
+ *
+ * <p>Report files such as {@code history.json} or {@code *-result.json} can be several megabytes large,
+ * while only a few fields of them are needed. The readers here therefore pull tokens from a
+ * {@link JsonParser} instead of building a tree, and stop as soon as the requested value is known.
+ * The shared {@link ObjectMapper} is thread safe and must not be reconfigured.
+ */
+@SuppressWarnings("PMD.GodClass")
+public final class JsonUtils {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private static final String KEY_STATISTIC = "statistic";
+    private static final String KEY_TIME = "time";
+    private static final String KEY_DURATION = "duration";
+    private static final String KEY_UNKNOWN = "unknown";
+    private static final String KEY_STATUS = "status";
+    private static final String KEY_HISTORY_ID = "historyId";
+    private static final String KEY_NAME = "name";
+    private static final String KEY_FULL_NAME = "fullName";
+    private static final String KEY_START = "start";
+    private static final String KEY_STOP = "stop";
+    private static final Set<String> TEST_FIELDS = new HashSet<>(Arrays.asList(
+            KEY_HISTORY_ID, KEY_NAME, KEY_FULL_NAME, KEY_STATUS, KEY_START, KEY_STOP));
+    private static final String[] STATUSES = {"passed", "failed", "broken", "skipped", KEY_UNKNOWN};
+
+    private JsonUtils() {
+    }
+
+    public static ObjectMapper getMapper() {
+        return MAPPER;
+    }
+
+    public static JsonFactory getFactory() {
+        return MAPPER.getFactory();
+    }
+
+    /**
+     * Checks whether the JSON document is a non-empty object or array, reading only its first element.
+     *
+     * @param is the document
+     * @return {@code true} if the root has at least one element
+     * @throws IOException if the document can not be read
+     */
+    public static boolean hasElements(final InputStream is) throws IOException {
+        try (JsonParser parser = getFactory().createParser(is)) {
+            final JsonToken root = parser.nextToken();
+            if (root == JsonToken.START_OBJECT) {
+                return parser.nextToken() == JsonToken.FIELD_NAME;
+            }
+            if (root == JsonToken.START_ARRAY) {
+                final JsonToken first = parser.nextToken();
+                return first != null && first != JsonToken.END_ARRAY;
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Reads the lower-cased top-level {@code status} field of a test result, skipping all other fields.
+     *
+     * @param is the test result document
+     * @return the status, {@code unknown} if it is missing
+     * @throws IOException if the document can not be read
+     */
+    public static String readStatus(final InputStream is) throws IOException {
+        try (JsonParser parser = getFactory().createParser(is)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return KEY_UNKNOWN;
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                final String name = parser.currentName();
+                final JsonToken value = parser.nextToken();
+                if (KEY_STATUS.equals(name)) {
+                    return value.isScalarValue() && value != JsonToken.VALUE_NULL
+                            ? parser.getValueAsString(KEY_UNKNOWN).toLowerCase(Locale.ROOT)
+                            : KEY_UNKNOWN;
+                }
+                parser.skipChildren();
+            }
+            return KEY_UNKNOWN;
+        }
+    }
+
+    /**
+     * Reads the index entry of an Allure test result, skipping steps, attachments and other nested fields.
+     *
+     * @param is the {@code *-result.json} document
+     * @return the entry, or {@code null} if the result has no {@code historyId}
+     * @throws IOException if the document can not be read
+     */
+    public static AllureTestIndex.Entry readTestResult(final InputStream is) throws IOException {
+        try (JsonParser parser = getFactory().createParser(is)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return null;
+            }
+            final Map<String, String> fields = new HashMap<>();
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                final String name = parser.currentName();
+                final JsonToken value = parser.nextToken();
+                if (value.isScalarValue() && value != JsonToken.VALUE_NULL && TEST_FIELDS.contains(name)) {
+                    fields.put(name, parser.getValueAsString());
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            final String historyId = fields.get(KEY_HISTORY_ID);
+            if (historyId == null) {
+                return null;
+            }
+            final long start = parseLong(fields.get(KEY_START));
+            final long stop = parseLong(fields.get(KEY_STOP));
+            final String name = fields.containsKey(KEY_FULL_NAME) ? fields.get(KEY_FULL_NAME) : fields.get(KEY_NAME);
+            return new AllureTestIndex.Entry(historyId, name, fields.get(KEY_STATUS), start,
+                    stop > start && start > 0 ? stop - start : 0L, 0);
+        }
+    }
+
+    private static long parseLong(final String value) {
+        if (value == null) {
+            return 0L;
+        }
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            return 0L;
+        }
+    }
+
+    /**
+     * Reads the status counters and the duration of an Allure summary or statistic document.
+     * Counters are taken from the {@code statistic} object, or from the root if there is none.
+     * The duration is taken from {@code time.duration}, or from a top-level {@code duration}.
+     *
+     * @param is                the document
+     * @param statisticRequired whether a document without a {@code statistic} object counts as empty
+     * @return the summary, all zero if the document holds no counters
+     * @throws IOException if the document can not be read
+     */
+    public static BuildSummary readSummary(final InputStream is, final boolean statisticRequired)
+            throws IOException {
+        try (JsonParser parser = getFactory().createParser(is)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return new BuildSummary().withStatistics(emptyStatistics());
+            }
+            final SummaryFields fields = new SummaryFields();
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                readSummaryField(parser, fields, statisticRequired);
+            }
+            if (fields.statistic == null) {
+                return statisticRequired
+                        ? new BuildSummary().withStatistics(emptyStatistics())
+                        : new BuildSummary().withStatistics(fields.root).withDuration(fields.duration());
+            }
+            return new BuildSummary().withStatistics(fields.statistic).withDuration(fields.duration());
+        }
+    }
+
+    private static void readSummaryField(final JsonParser parser,
+                                         final SummaryFields fields,
+                                         final boolean strict) throws IOException {
+        final String name = parser.currentName();
+        final JsonToken value = parser.nextToken();
+        if (KEY_STATISTIC.equals(name) && value != JsonToken.VALUE_NULL) {
+            fields.statistic = value == JsonToken.START_OBJECT ? readCounters(parser, strict) : emptyStatistics();
+        } else if (KEY_TIME.equals(name) && value == JsonToken.START_OBJECT) {
+            fields.timeObject = true;
+            fields.timeDuration = readDuration(parser);
+        } else if (KEY_DURATION.equals(name)) {
+            fields.rootDuration = value.isNumeric() ? parser.getValueAsLong(0L) : 0L;
+        } else if (fields.root.containsKey(name)) {
+            fields.root.put(name, readInt(parser, strict));
+        } else {
+            parser.skipChildren();
+        }
+    }
+
+    private static Map<String, Integer> readCounters(final JsonParser parser, final boolean strict)
+            throws IOException {
+        final Map<String, Integer> counters = emptyStatistics();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            final String name = parser.currentName();
+            parser.nextToken();
+            if (counters.containsKey(name)) {
+                counters.put(name, readInt(parser, strict));
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return counters;
+    }
+
+    private static long readDuration(final JsonParser parser) throws IOException {
+        long duration = 0L;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            final String name = parser.currentName();
+            final JsonToken value = parser.nextToken();
+            if (KEY_DURATION.equals(name)) {
+                duration = value.isNumeric() ? parser.getValueAsLong(0L) : 0L;
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return duration;
+    }
+
+    private static int readInt(final JsonParser parser, final boolean strict) throws IOException {
+        final JsonToken token = parser.currentToken();
+        if (token.isNumeric()) {
+            return parser.getValueAsInt(0);
+        }
+        if (token.isStructStart()) {
+            parser.skipChildren();
+            return 0;
+        }
+        return strict ? 0 : parser.getValueAsInt(0);
+    }
+
+    private static Map<String, Integer> emptyStatistics() {
+        final Map<String, Integer> statistics = new HashMap<>(STATUSES.length);
+        for (String status : STATUSES) {
+            statistics.put(status, 0);
+        }
+        return statistics;
+    }
+
+    /**
+     * The summary fields collected while reading a document.
+     */
+    private static final class SummaryFields {
+
+        private final Map<String, Integer> root = emptyStatistics();
+        private Map<String, Integer> statistic;
+        private boolean timeObject;
+        private long timeDuration;
+        private long rootDuration;
+
+        long duration() {
+            return timeObject ? timeDuration : rootDuration;
+        }
+    }
+}
@@ -17,10 +17,9 @@ package org.allurereport.jenkins.utils;
 
 import hudson.FilePath;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.ArrayList;
-import java.util.Enumeration;
 import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.zip.ZipEntry;
@@ -30,15 +29,17 @@ import java.util.zip.ZipFile;
  * {@link AllureReportArchiveSource} implementation that reads from a local
  * {@code allure-report.zip} file accessible via a {@link FilePath} on the Jenkins master.
  *
- * <p>The underlying {@link ZipFile} is opened lazily on the first call to
- * {@link #openEntry(String)} or {@link #listEntries(String)} and is closed when
- * {@link #close()} is called.
+ * <p>The underlying {@link ZipFile} is borrowed lazily from the shared {@link ZipFilePool} on the
+ * first call to {@link #openEntry(String)} or {@link #listEntries(String)} and is returned to the
+ * pool when {@link #close()} is called. Streams returned by {@link #openEntry(String)} must be
+ * closed before the source itself. Listings and existence checks use the sorted {@link ZipEntryIndex}
+ * cached with the pooled handle.
  */
 public final class LocalFileArchiveSource implements AllureReportArchiveSource {
 
     private final FilePath archivePath;
 
-    private ZipFile zipFile;
+    private ZipFilePool.Lease lease;
 
     public LocalFileArchiveSource(final FilePath archivePath) {
         this.archivePath = archivePath;
@@ -49,6 +50,12 @@ public final class LocalFileArchiveSource implements AllureReportArchiveSource {
         return archivePath.exists();
     }
 
+    @Override
+    public boolean exists(final String entryPath) throws IOException {
+        final ZipEntryIndex.Entry entry = entryIndex().find(entryPath);
+        return entry != null && !entry.isDirectory();
+    }
+
     @Override
     @SuppressWarnings("PMD.CloseResource")
     public InputStream openEntry(final String entryPath) throws IOException {
@@ -61,32 +68,47 @@ public final class LocalFileArchiveSource implements AllureReportArchiveSource {
     }
 
     @Override
-    @SuppressWarnings("PMD.CloseResource")
     public List<String> listEntries(final String prefix) throws IOException {
-        final ZipFile zip = getOrOpenZip();
-        final Enumeration<? extends ZipEntry> entries = zip.entries();
-        final List<String> result = new ArrayList<>();
-        while (entries.hasMoreElements()) {
-            final ZipEntry entry = entries.nextElement();
-            if (entry.getName().startsWith(prefix) && !entry.isDirectory()) {
-                result.add(entry.getName());
-            }
+        return entryIndex().list(prefix);
+    }
+
+    @Override
+    public ArchiveEntryInfo entryInfo(final String entryPath) throws IOException {
+        final ZipEntry entry = getOrOpenZip().getEntry(entryPath);
+        if (entry == null || entry.isDirectory()) {
+            return null;
         }
-        return result;
+        final File archive = new File(archivePath.getRemote());
+        return new ArchiveEntryInfo(entryPath, entry.getSize(), entry.getCompressedSize(), entry.getCrc(),
+                entry.getMethod(), archive.lastModified(), archive.length());
+    }
+
+    @Override
+    public InputStream openStoredEntry(final String entryPath) throws IOException {
+        final ZipEntryIndex.Entry entry = entryIndex().find(entryPath);
+        if (entry == null || entry.getMethod() != ZipEntry.DEFLATED) {
+            return null;
+        }
+        return ZipEntryIndex.openStored(lease.getArchive(), entry);
     }
 
     @Override
     public void close() throws IOException {
-        if (zipFile != null) {
-            zipFile.close();
-            zipFile = null;
+        if (lease != null) {
+            lease.close();
+            lease = null;
         }
     }
 
     private ZipFile getOrOpenZip() throws IOException {
-        if (zipFile == null) {
-            zipFile = new ZipFile(archivePath.getRemote());
+        if (lease == null) {
+            lease = ZipFilePool.get().acquire(new File(archivePath.getRemote()));
         }
-        return zipFile;
+        return lease.getZipFile();
+    }
+
+    private ZipEntryIndex entryIndex() throws IOException {
+        getOrOpenZip();
+        return lease.getEntryIndex();
     }
 }
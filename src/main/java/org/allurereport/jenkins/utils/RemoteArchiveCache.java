@@ -0,0 +1,228 @@
+/*
+ *  Copyright 2016-2023 Qameta Software OÜ
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.allurereport.jenkins.utils;
+
+import hudson.Util;
+import hudson.model.Run;
+import jenkins.model.Jenkins;
+import jenkins.util.SystemProperties;
+import jenkins.util.VirtualFile;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Controller-side copy of {@code allure-report.zip} archives that live only in a remote artifact store.
+ *
+ * <p>The first access to a remote archive downloads it once into {@code $JENKINS_HOME/caches/allure-reports},
+ * after which it is served by {@link LocalFileArchiveSource}. Concurrent requests for the same archive wait
+ * for a single download. The cache is bounded by {@code maxBytes} (system property
+ * {@code org.allurereport.jenkins.utils.RemoteArchiveCache.maxBytes}, 1 GiB by default, {@code 0} disables it);
+ * least recently used archives are evicted first.
+ */
+public final class RemoteArchiveCache {
+
+    private static final Logger LOG = Logger.getLogger(RemoteArchiveCache.class.getName());
+
+    private static final long DEFAULT_MAX_BYTES = 1024L * 1024L * 1024L;
+    private static final String CACHE_DIR = "caches/allure-reports";
+    private static final String ARCHIVE_SUFFIX = ".zip";
+    private static final String FILE_SCHEME = "file";
+
+    private final File directory;
+    private final long maxBytes;
+    private final LongSupplier clock;
+
+    private final Map<String, CompletableFuture<File>> downloads = new ConcurrentHashMap<>();
+    private final Map<String, Long> lastAccess = new ConcurrentHashMap<>();
+    private final Object evictionLock = new Object();
+
+    RemoteArchiveCache(final File directory, final long maxBytes, final LongSupplier clock) {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+        this.clock = clock;
+    }
+
+    public static RemoteArchiveCache get() {
+        return Holder.INSTANCE;
+    }
+
+    /**
+     * Returns a local copy of the report archive of the given build, downloading it if needed.
+     *
+     * @param run     the build whose archive is stored via its {@link jenkins.model.ArtifactManager}
+     * @param archive the archive as seen by the artifact store
+     * @return the local copy, or {@code null} if the archive is missing, already local, does not fit
+     *     into the cache or can not be downloaded
+     */
+    File fetch(final Run<?, ?> run, final ArtifactManagerArchiveSource.ArchiveState archive) {
+        if (maxBytes <= 0 || !archive.isPresent() || isLocal(archive.getZipBlob())) {
+            return null;
+        }
+        final String key = Util.getDigestOf(run.getRootDir().getAbsolutePath()
+                + '@' + archive.getLastModified() + ':' + archive.getLength());
+        return fetch(key, archive.getLength(), archive.getLastModified(), archive.getZipBlob()::open);
+    }
+
+    /**
+     * Returns the cached copy for the given key, downloading it once if needed.
+     *
+     * @param key          the identity of the archive version
+     * @param length       the archive length in bytes
+     * @param lastModified the modification time of the remote archive, given to the copy so that responses served
+     *                     from it carry the same validators as responses served from the artifact store
+     * @param download     opens the remote archive
+     * @return the local copy, or {@code null} if the archive does not fit into the cache or can not be downloaded
+     */
+    File fetch(final String key, final long length, final long lastModified, final Download download) {
+        if (length <= 0 || length > maxBytes) {
+            return null;
+        }
+        final File target = new File(directory, key + ARCHIVE_SUFFIX);
+        if (target.isFile()) {
+            lastAccess.put(target.getName(), clock.getAsLong());
+            return target;
+        }
+        final CompletableFuture<File> pending = new CompletableFuture<>();
+        final CompletableFuture<File> running = downloads.putIfAbsent(key, pending);
+        if (running != null) {
+            return running.join();
+        }
+        try {
+            pending.complete(target.isFile() ? target : download(target, length, lastModified, download));
+        } finally {
+            pending.complete(null);
+            downloads.remove(key, pending);
+        }
+        return pending.join();
+    }
+
+    /**
+     * Downloads the archive into the cache. Artifact stores may fail with unchecked exceptions, which are handled
+     * like I/O errors so that waiting requests are never left hanging.
+     */
+    @SuppressWarnings("PMD.AvoidCatchingGenericException")
+    private File download(final File target, final long length, final long lastModified, final Download download) {
+        File temp = null;
+        try {
+            Files.createDirectories(directory.toPath());
+            temp = File.createTempFile(target.getName(), ".tmp", directory);
+            try (InputStream in = download.open()) {
+                Files.copy(in, temp.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+            if (temp.length() != length) {
+                throw new IOException("Downloaded " + temp.length() + " bytes instead of " + length);
+            }
+            if (lastModified > 0 && !temp.setLastModified(lastModified)) {
+                LOG.log(Level.FINE, "Unable to set the modification time of {0}", temp);
+            }
+            moveInPlace(temp, target);
+            lastAccess.put(target.getName(), clock.getAsLong());
+            evict(target);
+            return target;
+        } catch (IOException | RuntimeException ex) {
+            LOG.log(Level.WARNING, "Unable to cache remote Allure report archive " + target.getName(), ex);
+            return null;
+        } finally {
+            deleteQuietly(temp);
+        }
+    }
+
+    private static void moveInPlace(final File source, final File target) throws IOException {
+        try {
+            Files.move(source.toPath(), target.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException ignored) {
+            Files.move(source.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private void evict(final File keep) {
+        synchronized (evictionLock) {
+            final File[] cached = directory.listFiles((dir, name) -> name.endsWith(ARCHIVE_SUFFIX));
+            if (cached == null) {
+                return;
+            }
+            long total = 0;
+            for (File file : cached) {
+                total += file.length();
+            }
+            final List<File> candidates = new ArrayList<>(Arrays.asList(cached));
+            candidates.sort(Comparator.comparingLong(this::lastUsed));
+            for (File file : candidates) {
+                if (total <= maxBytes) {
+                    break;
+                }
+                if (!file.equals(keep)) {
+                    final long size = file.length();
+                    ZipFilePool.get().invalidate(file);
+                    if (file.delete()) {
+                        lastAccess.remove(file.getName());
+                        total -= size;
+                    }
+                }
+            }
+        }
+    }
+
+    private long lastUsed(final File file) {
+        return lastAccess.getOrDefault(file.getName(), file.lastModified());
+    }
+
+    private static boolean isLocal(final VirtualFile file) {
+        final URI uri = file.toURI();
+        return uri != null && FILE_SCHEME.equals(uri.getScheme());
+    }
+
+    private static void deleteQuietly(final File file) {
+        if (file != null && file.exists() && !file.delete()) {
+            LOG.log(Level.FINE, "Unable to delete {0}", file);
+        }
+    }
+
+    /**
+     * Opens the remote archive for download.
+     */
+    @FunctionalInterface
+    interface Download {
+        InputStream open() throws IOException;
+    }
+
+    /**
+     * Lazily creates the instance, as {@code JENKINS_HOME} is not known when the class is loaded in tests.
+     */
+    private static final class Holder {
+        private static final RemoteArchiveCache INSTANCE = new RemoteArchiveCache(
+                new File(Jenkins.get().getRootDir(), CACHE_DIR),
+                SystemProperties.getLong(RemoteArchiveCache.class.getName() + ".maxBytes", DEFAULT_MAX_BYTES),
+                System::currentTimeMillis
+        );
+    }
+}
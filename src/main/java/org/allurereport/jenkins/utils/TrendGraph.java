@@ -0,0 +1,46 @@
+/*
+ *  Copyright 2016-2023 Qameta Software OÜ
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.allurereport.jenkins.utils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * A rendered trend graph: the PNG image together with its HTML image map.
+ */
+public final class TrendGraph {
+
+    private final byte[] png;
+    private final String imageMap;
+
+    public TrendGraph(final byte[] png, final String imageMap) {
+        this.png = Arrays.copyOf(png, png.length);
+        this.imageMap = imageMap;
+    }
+
+    public int getPngLength() {
+        return png.length;
+    }
+
+    public void writePng(final OutputStream out) throws IOException {
+        out.write(png);
+    }
+
+    public String getImageMap() {
+        return imageMap;
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ *  Copyright 2016-2023 Qameta Software OÜ
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.allurereport.jenkins.utils;
+
+import jenkins.util.SystemProperties;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Controller-wide cache of rendered trend graphs.
+ *
+ * <p>The trend graph and its image map are requested separately, and usually concurrently, by every project
+ * page view, and rendering the chart dominates the cost of both. A graph is therefore rendered once, together
+ * with its image map, by the first caller; concurrent callers for the same key wait for that rendering. It is
+ * kept until it is evicted in LRU order. Callers include everything that determines the
+ * graph in the key, notably the {@link AllureTrendStore#getVersion() trend version}, so that recording a
+ * new build makes the cached graphs of its job unreachable. The cache holds up to {@code maxEntries}
+ * graphs (system property {@code org.allurereport.jenkins.utils.TrendGraphCache.maxEntries}, 64 by default).
+ */
+public final class TrendGraphCache {
+
+    private static final int DEFAULT_MAX_ENTRIES = 64;
+    private static final String RENDER_FAILED = "Unable to render trend graph ";
+
+    private static final TrendGraphCache INSTANCE = new TrendGraphCache(
+            SystemProperties.getInteger(TrendGraphCache.class.getName() + ".maxEntries", DEFAULT_MAX_ENTRIES));
+
+    private final Map<String, CompletableFuture<TrendGraph>> graphs;
+
+    TrendGraphCache(final int maxEntries) {
+        this.graphs = new LinkedHashMap<String, CompletableFuture<TrendGraph>>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<String, CompletableFuture<TrendGraph>> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    public static TrendGraphCache get() {
+        return INSTANCE;
+    }
+
+    /**
+     * Returns the cached graph for the given key, rendering it if needed.
+     *
+     * @param key      identifies the graph
+     * @param renderer renders the graph on a cache miss
+     * @return the graph
+     * @throws IOException if the graph can not be rendered
+     */
+    @SuppressWarnings("PMD.CompareObjectsWithEquals")
+    public TrendGraph get(final String key, final Renderer renderer) throws IOException {
+        final CompletableFuture<TrendGraph> created = new CompletableFuture<>();
+        final CompletableFuture<TrendGraph> graph;
+        synchronized (graphs) {
+            graph = graphs.computeIfAbsent(key, k -> created);
+        }
+        if (graph == created) {
+            render(key, created, renderer);
+        }
+        try {
+            return graph.join();
+        } catch (CompletionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException(RENDER_FAILED + key, e);
+        }
+    }
+
+    /**
+     * Renders the graph of a new entry. A failed rendering is removed again, so the next caller retries it.
+     */
+    private void render(final String key, final CompletableFuture<TrendGraph> graph, final Renderer renderer) {
+        try {
+            graph.complete(renderer.render());
+        } catch (IOException | RuntimeException e) {
+            graph.completeExceptionally(e);
+        } finally {
+            if (!graph.isDone()) {
+                graph.completeExceptionally(new IOException(RENDER_FAILED + key));
+            }
+            if (graph.isCompletedExceptionally()) {
+                synchronized (graphs) {
+                    graphs.remove(key, graph);
+                }
+            }
+        }
+    }
+
+    int size() {
+        synchronized (graphs) {
+            return graphs.size();
+        }
+    }
+
+    /**
+     * Renders a graph on a cache miss.
+     */
+    @FunctionalInterface
+    public interface Renderer {
+        TrendGraph render() throws IOException;
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ *  Copyright 2016-2023 Qameta Software OÜ
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.allurereport.jenkins.utils;
+
+import org.allurereport.jenkins.AllureReportBuildAction;
+
+/**
+ * Status counters of one build, as shown in the Allure history trend.
+ *
+ * <p>Points are ordered and compared by build number only, so they can serve as the column keys of a
+ * trend chart.
+ */
+public final class TrendPoint implements Comparable<TrendPoint> {
+
+    private static final String SEPARATOR = " ";
+    private static final int FIELD_COUNT = 7;
+
+    private final int number;
+    private final long failed;
+    private final long broken;
+    private final long passed;
+    private final long skipped;
+    private final long unknown;
+    private final long duration;
+
+    public TrendPoint(final int number, final long failed, final long broken, final long passed,
+                      final long skipped, final long unknown, final long duration) {
+        this.number = number;
+        this.failed = failed;
+        this.broken = broken;
+        this.passed = passed;
+        this.skipped = skipped;
+        this.unknown = unknown;
+        this.duration = duration;
+    }
+
+    public static TrendPoint of(final int number, final AllureReportBuildAction action) {
+        return new TrendPoint(number, action.getFailedCount(), action.getBrokenCount(), action.getPassedCount(),
+                action.getSkipCount(), action.getUnknownCount(), action.getDuration());
+    }
+
+    public int getNumber() {
+        return number;
+    }
+
+    public long getFailed() {
+        return failed;
+    }
+
+    public long getBroken() {
+        return broken;
+    }
+
+    public long getPassed() {
+        return passed;
+    }
+
+    public long getSkipped() {
+        return skipped;
+    }
+
+    public long getUnknown() {
+        return unknown;
+    }
+
+    public long getTotal() {
+        return failed + broken + passed + skipped + unknown;
+    }
+
+    public long getDuration() {
+        return duration;
+    }
+
+    String format() {
+        return String.join(SEPARATOR, String.valueOf(number), String.valueOf(failed), String.valueOf(broken),
+                String.valueOf(passed), String.valueOf(skipped), String.valueOf(unknown), String.valueOf(duration));
+    }
+
+    /**
+     * Parses a line written by {@link #format()}.
+     *
+     * @param line the line
+     * @return the point, or {@code null} if the line is malformed
+     */
+    static TrendPoint parse(final String line) {
+        final String[] fields = line.trim().split(SEPARATOR);
+        if (fields.length != FIELD_COUNT) {
+            return null;
+        }
+        try {
+            return new TrendPoint(Integer.parseInt(fields[0]), Long.parseLong(fields[1]), Long.parseLong(fields[2]),
+                    Long.parseLong(fields[3]), Long.parseLong(fields[4]), Long.parseLong(fields[5]),
+                    Long.parseLong(fields[6]));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public int compareTo(final TrendPoint other) {
+        return Integer.compare(number, other.number);
+    }
+
+    @Override
+    public boolean equals(final Object other) {
+        return other instanceof TrendPoint && ((TrendPoint) other).number == number;
+    }
+
+    @Override
+    public int hashCode() {
+        return number;
+    }
+
+    @Override
+    public String toString() {
+        return "#" + number;
+    }
+}
@@ -0,0 +1,497 @@
+/*
+ *  Copyright 2016-2023 Qameta Software OÜ
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.allurereport.jenkins.utils;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.zip.ZipException;
+
+/**
+ * Sorted view of the central directory of a zip archive that also knows where the stored
+ * bytes of each entry start, so that compressed entries can be streamed without inflating them.
+ *
+ * <p>{@link java.util.zip.ZipFile} does not expose entry offsets, hence the central directory is
+ * parsed here directly. ZIP64 archives are supported, encrypted and multi-disk archives are not.
+ *
+ * <p>The index can also be stored as a compact sidecar file next to the archive (see
+ * {@link #writeSidecar(File, OutputStream)}), so that a reader that can only fetch byte ranges of the
+ * archive, such as a remote artifact store, can locate the data of an entry without reading the archive.
+ */
+@SuppressWarnings({"ClassDataAbstractionCoupling", "PMD.GodClass"})
+public final class ZipEntryIndex {
+
+    private static final int EOCD_SIGNATURE = 0x06054b50;
+    private static final int ZIP64_EOCD_LOCATOR_SIGNATURE = 0x07064b50;
+    private static final int ZIP64_EOCD_SIGNATURE = 0x06064b50;
+    private static final int CENTRAL_HEADER_SIGNATURE = 0x02014b50;
+    private static final int LOCAL_HEADER_SIGNATURE = 0x04034b50;
+
+    private static final int EOCD_LENGTH = 22;
+    private static final int ZIP64_EOCD_LOCATOR_LENGTH = 20;
+    private static final int ZIP64_EOCD_LENGTH = 56;
+    private static final int CENTRAL_HEADER_LENGTH = 46;
+    private static final int LOCAL_HEADER_LENGTH = 30;
+    private static final int MAX_COMMENT_LENGTH = 0xFFFF;
+    private static final int ZIP64_EXTRA_ID = 0x0001;
+
+    private static final String NO_ZIP64_LOCATOR = "ZIP64 end of central directory locator not found";
+    private static final String UNEXPECTED_EOF = "Unexpected end of archive at offset ";
+
+    private static final int U16_MASK = 0xFFFF;
+    private static final long U32_MASK = 0xFFFFFFFFL;
+
+    private static final int SIDECAR_MAGIC = 0x414C5249;
+    private static final int SIDECAR_VERSION = 1;
+    private static final long UNKNOWN = -1L;
+
+    private static final Comparator<Entry> BY_NAME = Comparator.comparing(Entry::getName);
+
+    private final long archiveLength;
+    private final Entry[] entries;
+
+    private ZipEntryIndex(final long archiveLength, final Entry... entries) {
+        this.archiveLength = archiveLength;
+        this.entries = entries;
+        Arrays.sort(this.entries, BY_NAME);
+    }
+
+    /**
+     * Reads the central directory of the given archive.
+     *
+     * @param archive the zip archive
+     * @return the index of all archive entries
+     * @throws IOException if the archive can not be read or is not a supported zip archive
+     */
+    public static ZipEntryIndex read(final File archive) throws IOException {
+        try (FileChannel channel = FileChannel.open(archive.toPath(), StandardOpenOption.READ)) {
+            final long eocdOffset = findEndOfCentralDirectory(channel);
+            final ByteBuffer eocd = readFully(channel, eocdOffset, EOCD_LENGTH);
+            long count = eocd.getShort(10) & U16_MASK;
+            long size = eocd.getInt(12) & U32_MASK;
+            long offset = eocd.getInt(16) & U32_MASK;
+            if (count == U16_MASK || size == U32_MASK || offset == U32_MASK) {
+                final ByteBuffer zip64 = readZip64EndOfCentralDirectory(channel, eocdOffset);
+                count = zip64.getLong(32);
+                size = zip64.getLong(40);
+                offset = zip64.getLong(48);
+            }
+            if (size > Integer.MAX_VALUE || count > Integer.MAX_VALUE) {
+                throw new ZipException("Central directory is too large: " + archive);
+            }
+            return new ZipEntryIndex(channel.size(),
+                    parseCentralDirectory(readFully(channel, offset, (int) size), (int) count));
+        }
+    }
+
+    /**
+     * Writes the sidecar index of an archive, including the offset of the data of each entry.
+     *
+     * @param archive the zip archive
+     * @param out     the target stream, left open
+     * @throws IOException if the archive can not be read or is not a supported zip archive
+     */
+    public static void writeSidecar(final File archive, final OutputStream out) throws IOException {
+        final ZipEntryIndex index = read(archive);
+        try (FileChannel channel = FileChannel.open(archive.toPath(), StandardOpenOption.READ)) {
+            final DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out));
+            data.writeInt(SIDECAR_MAGIC);
+            data.writeByte(SIDECAR_VERSION);
+            data.writeLong(index.archiveLength);
+            data.writeInt(index.entries.length);
+            for (Entry entry : index.entries) {
+                data.writeUTF(entry.getName());
+                data.writeShort(entry.getMethod());
+                data.writeInt((int) entry.getCrc());
+                data.writeLong(entry.getCompressedSize());
+                data.writeLong(entry.getSize());
+                data.writeLong(entry.isDirectory() ? UNKNOWN : dataOffset(channel, entry));
+            }
+            data.flush();
+        }
+    }
+
+    /**
+     * Reads a sidecar index written by {@link #writeSidecar(File, OutputStream)}.
+     *
+     * @param in the sidecar content, left open
+     * @return the index, with data offsets but without local header offsets
+     * @throws IOException if the content is not a supported sidecar index
+     */
+    @SuppressWarnings("PMD.AvoidInstantiatingObjectsInLoops")
+    public static ZipEntryIndex readSidecar(final InputStream in) throws IOException {
+        final DataInputStream data = new DataInputStream(new BufferedInputStream(in));
+        if (data.readInt() != SIDECAR_MAGIC || data.readByte() != SIDECAR_VERSION) {
+            throw new ZipException("Unsupported archive index format");
+        }
+        final long archiveLength = data.readLong();
+        final int count = data.readInt();
+        final Entry[] entries = new Entry[count];
+        for (int i = 0; i < count; i++) {
+            final String name = data.readUTF();
+            final int method = data.readShort() & U16_MASK;
+            final long crc = data.readInt() & U32_MASK;
+            final long compressedSize = data.readLong();
+            final long size = data.readLong();
+            entries[i] = new Entry(name, method, crc, compressedSize, size, UNKNOWN, data.readLong());
+        }
+        return new ZipEntryIndex(archiveLength, entries);
+    }
+
+    /**
+     * Finds an entry by its exact name.
+     *
+     * @param name the entry name
+     * @return the entry, or {@code null} if the archive has no such entry
+     */
+    public Entry find(final String name) {
+        final int position = lowerBound(name);
+        if (position < entries.length && entries[position].getName().equals(name)) {
+            return entries[position];
+        }
+        return null;
+    }
+
+    /**
+     * Lists the names of all file entries starting with the given prefix, in name order.
+     *
+     * @param prefix the name prefix
+     * @return the matching entry names, without directory entries
+     */
+    public List<String> list(final String prefix) {
+        final List<String> result = new ArrayList<>();
+        for (int i = lowerBound(prefix); i < entries.length && entries[i].getName().startsWith(prefix); i++) {
+            if (!entries[i].isDirectory()) {
+                result.add(entries[i].getName());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the position of the first entry whose name is not less than the given one.
+     */
+    private int lowerBound(final String name) {
+        int low = 0;
+        int high = entries.length;
+        while (low < high) {
+            final int middle = (low + high) >>> 1;
+            if (entries[middle].getName().compareTo(name) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    public List<Entry> getEntries() {
+        return Collections.unmodifiableList(Arrays.asList(entries));
+    }
+
+    public int size() {
+        return entries.length;
+    }
+
+    /**
+     * Returns the length of the archive this index was read from, used to detect a stale sidecar index.
+     *
+     * @return the archive length in bytes
+     */
+    public long getArchiveLength() {
+        return archiveLength;
+    }
+
+    /**
+     * Opens the stored, still compressed bytes of an entry.
+     *
+     * @param archive the archive this index was read from
+     * @param entry   the entry to read
+     * @return a stream of exactly {@link Entry#getCompressedSize()} bytes
+     * @throws IOException if the local header of the entry is invalid
+     */
+    @SuppressWarnings("PMD.CloseResource")
+    public static InputStream openStored(final File archive, final Entry entry) throws IOException {
+        final FileChannel channel = FileChannel.open(archive.toPath(), StandardOpenOption.READ);
+        try {
+            final long dataOffset = entry.getDataOffset() >= 0 ? entry.getDataOffset() : dataOffset(channel, entry);
+            return new ChannelInputStream(channel, dataOffset, entry.getCompressedSize());
+        } catch (IOException | RuntimeException ex) {
+            channel.close();
+            throw ex;
+        }
+    }
+
+    private static long dataOffset(final FileChannel channel, final Entry entry) throws IOException {
+        final ByteBuffer header = readFully(channel, entry.getLocalHeaderOffset(), LOCAL_HEADER_LENGTH);
+        if (header.getInt(0) != LOCAL_HEADER_SIGNATURE) {
+            throw new ZipException("Invalid local header for entry: " + entry.getName());
+        }
+        return entry.getLocalHeaderOffset() + LOCAL_HEADER_LENGTH
+                + (header.getShort(26) & U16_MASK) + (header.getShort(28) & U16_MASK);
+    }
+
+    private static long findEndOfCentralDirectory(final FileChannel channel) throws IOException {
+        final long fileSize = channel.size();
+        if (fileSize < EOCD_LENGTH) {
+            throw new ZipException("Archive is too small");
+        }
+        final int tailLength = (int) Math.min(fileSize, EOCD_LENGTH + MAX_COMMENT_LENGTH);
+        final long tailOffset = fileSize - tailLength;
+        final ByteBuffer tail = readFully(channel, tailOffset, tailLength);
+        for (int position = tailLength - EOCD_LENGTH; position >= 0; position--) {
+            if (tail.getInt(position) == EOCD_SIGNATURE) {
+                return tailOffset + position;
+            }
+        }
+        throw new ZipException("End of central directory not found");
+    }
+
+    private static ByteBuffer readZip64EndOfCentralDirectory(final FileChannel channel,
+                                                             final long eocdOffset) throws IOException {
+        if (eocdOffset < ZIP64_EOCD_LOCATOR_LENGTH) {
+            throw new ZipException(NO_ZIP64_LOCATOR);
+        }
+        final ByteBuffer locator = readFully(channel, eocdOffset - ZIP64_EOCD_LOCATOR_LENGTH,
+                ZIP64_EOCD_LOCATOR_LENGTH);
+        if (locator.getInt(0) != ZIP64_EOCD_LOCATOR_SIGNATURE) {
+            throw new ZipException(NO_ZIP64_LOCATOR);
+        }
+        final ByteBuffer zip64 = readFully(channel, locator.getLong(8), ZIP64_EOCD_LENGTH);
+        if (zip64.getInt(0) != ZIP64_EOCD_SIGNATURE) {
+            throw new ZipException("Invalid ZIP64 end of central directory");
+        }
+        return zip64;
+    }
+
+    private static Entry[] parseCentralDirectory(final ByteBuffer directory, final int count) throws IOException {
+        final List<Entry> result = new ArrayList<>(count);
+        int position = 0;
+        while (position + CENTRAL_HEADER_LENGTH <= directory.limit()
+                && directory.getInt(position) == CENTRAL_HEADER_SIGNATURE) {
+            result.add(parseCentralHeader(directory, position));
+            position += CENTRAL_HEADER_LENGTH
+                    + (directory.getShort(position + 28) & U16_MASK)
+                    + (directory.getShort(position + 30) & U16_MASK)
+                    + (directory.getShort(position + 32) & U16_MASK);
+        }
+        if (result.size() != count) {
+            throw new ZipException("Central directory is truncated: expected " + count
+                    + " entries, found " + result.size());
+        }
+        return result.toArray(new Entry[0]);
+    }
+
+    private static Entry parseCentralHeader(final ByteBuffer directory, final int position) {
+        long compressedSize = directory.getInt(position + 20) & U32_MASK;
+        long size = directory.getInt(position + 24) & U32_MASK;
+        long localHeaderOffset = directory.getInt(position + 42) & U32_MASK;
+        final int nameLength = directory.getShort(position + 28) & U16_MASK;
+        final int extraLength = directory.getShort(position + 30) & U16_MASK;
+
+        final byte[] nameBytes = new byte[nameLength];
+        directory.position(position + CENTRAL_HEADER_LENGTH);
+        directory.get(nameBytes);
+
+        final int extraStart = position + CENTRAL_HEADER_LENGTH + nameLength;
+        int field = findExtra(directory, extraStart, extraStart + extraLength, ZIP64_EXTRA_ID);
+        if (field >= 0 && size == U32_MASK) {
+            size = directory.getLong(field);
+            field += Long.BYTES;
+        }
+        if (field >= 0 && compressedSize == U32_MASK) {
+            compressedSize = directory.getLong(field);
+            field += Long.BYTES;
+        }
+        if (field >= 0 && localHeaderOffset == U32_MASK) {
+            localHeaderOffset = directory.getLong(field);
+        }
+        return new Entry(
+                new String(nameBytes, StandardCharsets.UTF_8),
+                directory.getShort(position + 10) & U16_MASK,
+                directory.getInt(position + 16) & U32_MASK,
+                compressedSize,
+                size,
+                localHeaderOffset,
+                UNKNOWN
+        );
+    }
+
+    private static int findExtra(final ByteBuffer directory, final int start, final int end, final int id) {
+        int position = start;
+        while (position + 4 <= end) {
+            if ((directory.getShort(position) & U16_MASK) == id) {
+                return position + 4;
+            }
+            position += 4 + (directory.getShort(position + 2) & U16_MASK);
+        }
+        return -1;
+    }
+
+    private static ByteBuffer readFully(final FileChannel channel,
+                                        final long offset,
+                                        final int length) throws IOException {
+        final ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        long position = offset;
+        while (buffer.hasRemaining()) {
+            final int read = channel.read(buffer, position);
+            if (read < 0) {
+                throw new EOFException(UNEXPECTED_EOF + position);
+            }
+            position += read;
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * A single archive entry as described by the central directory.
+     */
+    public static final class Entry {
+
+        private final String name;
+        private final int method;
+        private final long crc;
+        private final long compressedSize;
+        private final long size;
+        private final long localHeaderOffset;
+        private final long dataOffset;
+
+        Entry(final String name,
+              final int method,
+              final long crc,
+              final long compressedSize,
+              final long size,
+              final long localHeaderOffset,
+              final long dataOffset) {
+            this.name = name;
+            this.method = method;
+            this.crc = crc;
+            this.compressedSize = compressedSize;
+            this.size = size;
+            this.localHeaderOffset = localHeaderOffset;
+            this.dataOffset = dataOffset;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getMethod() {
+            return method;
+        }
+
+        public long getCrc() {
+            return crc;
+        }
+
+        public long getCompressedSize() {
+            return compressedSize;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        public long getLocalHeaderOffset() {
+            return localHeaderOffset;
+        }
+
+        /**
+         * Returns the offset of the stored entry data, known only for entries read from a sidecar index.
+         *
+         * @return the data offset, or {@code -1} if it has to be read from the local header
+         */
+        public long getDataOffset() {
+            return dataOffset;
+        }
+
+        public boolean isDirectory() {
+            return name.endsWith("/");
+        }
+    }
+
+    /**
+     * Reads a fixed region of a file channel and closes the channel when done.
+     */
+    private static final class ChannelInputStream extends InputStream {
+
+        private final FileChannel channel;
+        private long position;
+        private long remaining;
+
+        ChannelInputStream(final FileChannel channel, final long position, final long length) {
+            this.channel = channel;
+            this.position = position;
+            this.remaining = length;
+        }
+
+        @Override
+        public int read() throws IOException {
+            final byte[] single = new byte[1];
+            return read(single, 0, 1) < 0 ? -1 : single[0] & 0xFF;
+        }
+
+        @Override
+        public int read(final byte[] buffer, final int offset, final int length) throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            final int toRead = (int) Math.min(length, remaining);
+            final int read = channel.read(ByteBuffer.wrap(buffer, offset, toRead), position);
+            if (read < 0) {
+                throw new EOFException(UNEXPECTED_EOF + position);
+            }
+            position += read;
+            remaining -= read;
+            return read;
+        }
+
+        @Override
+        public long skip(final long count) {
+            final long skipped = Math.max(0, Math.min(count, remaining));
+            position += skipped;
+            remaining -= skipped;
+            return skipped;
+        }
+
+        @Override
+        public int available() {
+            return (int) Math.min(Integer.MAX_VALUE, remaining);
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+}
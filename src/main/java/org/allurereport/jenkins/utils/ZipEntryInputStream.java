@@ -76,4 +76,17 @@ final class ZipEntryInputStream {
         }
         return result;
     }
+
+    static boolean contains(final InputStream zipStream, final String entryPath) throws IOException {
+        try (ZipInputStream zipInputStream = new ZipInputStream(zipStream)) {
+            ZipEntry entry = zipInputStream.getNextEntry();
+            while (entry != null) {
+                if (entry.getName().equals(entryPath) && !entry.isDirectory()) {
+                    return true;
+                }
+                entry = zipInputStream.getNextEntry();
+            }
+        }
+        return false;
+    }
 }
@@ -0,0 +1,310 @@
+/*
+ *  Copyright 2016-2023 Qameta Software OÜ
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.allurereport.jenkins.utils;
+
+import hudson.init.Terminator;
+import jenkins.util.SystemProperties;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.ZipFile;
+
+/**
+ * Controller-wide cache of open {@link ZipFile} handles for {@code allure-report.zip} archives.
+ *
+ * <p>Opening a {@link ZipFile} parses the whole central directory, which dominates the cost of
+ * serving a single report asset from a large archive. Handles are therefore kept open and shared
+ * between requests. Each handle is keyed by the absolute archive path together with its size and
+ * modification time, so a rewritten archive is never served from a stale handle.
+ *
+ * <p>Callers borrow a handle with {@link #acquire(File)} and must close the returned {@link Lease}
+ * once they no longer read from it. Idle handles are evicted in LRU order when more than
+ * {@code maxOpen} archives are open, or when they have not been used for {@code idleTimeoutSeconds}.
+ * A handle is never closed while it is leased. The parsed {@link ZipEntryIndex} of an archive is
+ * cached together with its handle.
+ */
+public final class ZipFilePool {
+
+    private static final Logger LOG = Logger.getLogger(ZipFilePool.class.getName());
+
+    private static final int DEFAULT_MAX_OPEN = 32;
+    private static final long DEFAULT_IDLE_TIMEOUT_SECONDS = 300L;
+
+    private static final ZipFilePool INSTANCE = new ZipFilePool(
+            SystemProperties.getInteger(ZipFilePool.class.getName() + ".maxOpen", DEFAULT_MAX_OPEN),
+            TimeUnit.SECONDS.toMillis(SystemProperties.getLong(
+                    ZipFilePool.class.getName() + ".idleTimeoutSeconds", DEFAULT_IDLE_TIMEOUT_SECONDS)),
+            System::currentTimeMillis
+    );
+
+    private final int maxOpen;
+    private final long idleTimeoutMillis;
+    private final LongSupplier clock;
+
+    private final Map<String, PooledZip> handles = new LinkedHashMap<>(16, 0.75f, true);
+
+    ZipFilePool(final int maxOpen, final long idleTimeoutMillis, final LongSupplier clock) {
+        this.maxOpen = Math.max(1, maxOpen);
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.clock = clock;
+    }
+
+    public static ZipFilePool get() {
+        return INSTANCE;
+    }
+
+    /**
+     * Borrows an open handle for the given archive, opening it if no valid handle is cached.
+     *
+     * @param archive the zip archive on the controller file system
+     * @return a lease that must be closed when the caller is done with the handle
+     * @throws IOException if the archive can not be opened
+     */
+    public Lease acquire(final File archive) throws IOException {
+        final String path = archive.getAbsolutePath();
+        final String key = path + '@' + archive.lastModified() + ':' + archive.length();
+        final List<PooledZip> toClose = new ArrayList<>();
+        final PooledZip pooled;
+        synchronized (this) {
+            PooledZip existing = handles.get(key);
+            if (existing == null) {
+                retirePath(path, toClose);
+                existing = new PooledZip(key, path);
+                handles.put(key, existing);
+            }
+            existing.references++;
+            existing.lastUsed = clock.getAsLong();
+            collectEvictable(toClose);
+            pooled = existing;
+        }
+        closeAll(toClose);
+
+        try {
+            return new Lease(pooled, pooled.open(archive));
+        } catch (IOException | RuntimeException ex) {
+            release(pooled);
+            throw ex;
+        }
+    }
+
+    /**
+     * Closes all cached handles for the given archive. Leased handles are closed once released.
+     * Must be called before an archive is deleted or replaced, as open handles prevent deletion on Windows.
+     *
+     * @param archive the zip archive on the controller file system
+     */
+    public void invalidate(final File archive) {
+        final List<PooledZip> toClose = new ArrayList<>();
+        synchronized (this) {
+            retirePath(archive.getAbsolutePath(), toClose);
+        }
+        closeAll(toClose);
+    }
+
+    /**
+     * Closes all idle handles and retires the leased ones.
+     */
+    public void clear() {
+        final List<PooledZip> toClose = new ArrayList<>();
+        synchronized (this) {
+            final Iterator<PooledZip> iterator = handles.values().iterator();
+            while (iterator.hasNext()) {
+                retire(iterator.next(), toClose);
+                iterator.remove();
+            }
+        }
+        closeAll(toClose);
+    }
+
+    int size() {
+        synchronized (this) {
+            return handles.size();
+        }
+    }
+
+    @Terminator
+    public static void shutdown() {
+        INSTANCE.clear();
+    }
+
+    private void release(final PooledZip pooled) {
+        final List<PooledZip> toClose = new ArrayList<>();
+        synchronized (this) {
+            pooled.references--;
+            pooled.lastUsed = clock.getAsLong();
+            if (pooled.references == 0 && (pooled.retired || !pooled.isOpen())) {
+                handles.remove(pooled.key, pooled);
+                toClose.add(pooled);
+            }
+            collectEvictable(toClose);
+        }
+        closeAll(toClose);
+    }
+
+    private void retirePath(final String path, final List<PooledZip> toClose) {
+        final Iterator<PooledZip> iterator = handles.values().iterator();
+        while (iterator.hasNext()) {
+            final PooledZip pooled = iterator.next();
+            if (pooled.path.equals(path)) {
+                retire(pooled, toClose);
+                iterator.remove();
+            }
+        }
+    }
+
+    private static void retire(final PooledZip pooled, final List<PooledZip> toClose) {
+        pooled.retired = true;
+        if (pooled.references == 0) {
+            toClose.add(pooled);
+        }
+    }
+
+    private void collectEvictable(final List<PooledZip> toClose) {
+        final long now = clock.getAsLong();
+        int open = handles.size();
+        final Iterator<PooledZip> iterator = handles.values().iterator();
+        while (iterator.hasNext()) {
+            final PooledZip pooled = iterator.next();
+            if (pooled.references > 0) {
+                continue;
+            }
+            if (open > maxOpen || now - pooled.lastUsed >= idleTimeoutMillis) {
+                iterator.remove();
+                toClose.add(pooled);
+                open--;
+            }
+        }
+    }
+
+    private static void closeAll(final List<PooledZip> toClose) {
+        for (PooledZip pooled : toClose) {
+            pooled.close();
+        }
+    }
+
+    /**
+     * A borrowed {@link ZipFile} handle. Closing the lease returns the handle to the pool.
+     */
+    public final class Lease implements Closeable {
+
+        private final PooledZip pooled;
+        private final ZipFile zipFile;
+        private boolean released;
+
+        private Lease(final PooledZip pooled, final ZipFile zipFile) {
+            this.pooled = pooled;
+            this.zipFile = zipFile;
+        }
+
+        public ZipFile getZipFile() {
+            return zipFile;
+        }
+
+        /**
+         * Returns the central directory index of the leased archive, reading it on first use.
+         *
+         * @return the entry index, shared by all leases of the same handle
+         * @throws IOException if the central directory can not be read
+         */
+        public ZipEntryIndex getEntryIndex() throws IOException {
+            return pooled.entryIndex();
+        }
+
+        public File getArchive() {
+            return new File(pooled.path);
+        }
+
+        @Override
+        public void close() {
+            synchronized (this) {
+                if (released) {
+                    return;
+                }
+                released = true;
+            }
+            release(pooled);
+        }
+    }
+
+    /**
+     * A cached handle together with its reference count.
+     */
+    private static final class PooledZip {
+
+        private final String key;
+        private final String path;
+
+        private ZipFile zipFile;
+        private ZipEntryIndex index;
+        private int references;
+        private long lastUsed;
+        private boolean retired;
+
+        PooledZip(final String key, final String path) {
+            this.key = key;
+            this.path = path;
+        }
+
+        ZipFile open(final File archive) throws IOException {
+            synchronized (this) {
+                if (zipFile == null) {
+                    zipFile = new ZipFile(archive);
+                }
+                return zipFile;
+            }
+        }
+
+        ZipEntryIndex entryIndex() throws IOException {
+            synchronized (this) {
+                if (index == null) {
+                    index = ZipEntryIndex.read(new File(path));
+                }
+                return index;
+            }
+        }
+
+        boolean isOpen() {
+            synchronized (this) {
+                return zipFile != null;
+            }
+        }
+
+        void close() {
+            synchronized (this) {
+                if (zipFile == null) {
+                    return;
+                }
+                try {
+                    zipFile.close();
+                } catch (IOException ex) {
+                    LOG.log(Level.FINE, "Unable to close cached archive " + path, ex);
+                }
+                zipFile = null;
+                index = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Draws the Allure history trend from trend.json as a stacked area chart, without server-side rendering.
+ */
+(function () {
+    var SVG = "http://www.w3.org/2000/svg";
+    var SERIES = [
+        {key: "failed", color: "#fd5a3e"},
+        {key: "broken", color: "#ffd050"},
+        {key: "passed", color: "#97cc64"},
+        {key: "skipped", color: "#aaaaaa"},
+        {key: "unknown", color: "#d35ebe"}
+    ];
+    var PADDING = {top: 24, right: 8, bottom: 36, left: 40};
+
+    function element(name, attributes, parent) {
+        var node = document.createElementNS(SVG, name);
+        Object.keys(attributes).forEach(function (key) {
+            node.setAttribute(key, attributes[key]);
+        });
+        if (parent) {
+            parent.appendChild(node);
+        }
+        return node;
+    }
+
+    function draw(container, builds) {
+        var width = container.clientWidth || 600;
+        var height = container.clientHeight || 300;
+        var plotWidth = width - PADDING.left - PADDING.right;
+        var plotHeight = height - PADDING.top - PADDING.bottom;
+        var max = 1;
+        builds.forEach(function (build) {
+            max = Math.max(max, build.total);
+        });
+        var step = builds.length > 1 ? plotWidth / (builds.length - 1) : plotWidth;
+        var x = function (i) {
+            return PADDING.left + i * step;
+        };
+        var y = function (value) {
+            return PADDING.top + plotHeight - value * plotHeight / max;
+        };
+
+        var svg = element("svg", {width: width, height: height, role: "img"});
+        var title = element("text", {x: width / 2, y: 16, "text-anchor": "middle", "font-size": 12}, svg);
+        title.textContent = container.getAttribute("data-title");
+
+        [0, max].forEach(function (value) {
+            element("line", {x1: PADDING.left, x2: width - PADDING.right, y1: y(value), y2: y(value),
+                stroke: "#000", "stroke-opacity": 0.3}, svg);
+            var label = element("text", {x: PADDING.left - 4, y: y(value) + 4, "text-anchor": "end",
+                "font-size": 10}, svg);
+            label.textContent = String(value);
+        });
+
+        var lower = builds.map(function () {
+            return 0;
+        });
+        SERIES.forEach(function (series) {
+            var upper = builds.map(function (build, i) {
+                return lower[i] + (build[series.key] || 0);
+            });
+            var points = upper.map(function (value, i) {
+                return x(i) + "," + y(value);
+            });
+            for (var i = lower.length - 1; i >= 0; i--) {
+                points.push(x(i) + "," + y(lower[i]));
+            }
+            element("polygon", {points: points.join(" "), fill: series.color, "fill-opacity": 0.8}, svg);
+            lower = upper;
+        });
+
+        builds.forEach(function (build, i) {
+            var link = element("a", {href: build.url}, svg);
+            var hit = element("rect", {x: x(i) - step / 2, y: PADDING.top, width: Math.max(step, 1),
+                height: plotHeight, fill: "transparent"}, link);
+            var tooltip = element("title", {}, hit);
+            tooltip.textContent = ["#" + build.number].concat(SERIES.map(function (series) {
+                return series.key + ": " + build[series.key];
+            })).join("\n");
+            var label = element("text", {x: x(i), y: height - PADDING.bottom + 12, "text-anchor": "middle",
+                "font-size": 10}, svg);
+            label.textContent = i % Math.ceil(builds.length / 20) === 0 ? "#" + build.number : "";
+        });
+
+        container.textContent = "";
+        container.appendChild(svg);
+    }
+
+    function load(container) {
+        fetch(container.getAttribute("data-trend-url"), {credentials: "same-origin"})
+            .then(function (response) {
+                if (!response.ok) {
+                    throw new Error(response.statusText);
+                }
+                return response.json();
+            })
+            .then(function (trend) {
+                draw(container, trend.builds);
+            })
+            .catch(function (error) {
+                container.textContent = "Unable to load the Allure trend: " + error.message;
+            });
+    }
+
+    function init() {
+        document.querySelectorAll(".allure-trend[data-trend-url]").forEach(load);
+    }
+
+    if (document.readyState === "loading") {
+        document.addEventListener("DOMContentLoaded", init);
+    } else {
+        init();
+    }
+})();
@@ -15,6 +15,8 @@
  */
 package org.allurereport.jenkins;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import hudson.model.FreeStyleBuild;
 import hudson.model.FreeStyleProject;
 import org.allurereport.jenkins.testdata.TestUtils;
@@ -34,6 +36,8 @@ import java.io.File;
 import java.io.InputStream;
 import java.net.URL;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Map;
 
 import static org.allurereport.jenkins.ArchivedReportTestSupport.buildArchivedReportWithEntries;
@@ -52,6 +56,7 @@ public class AllureReportBuildActionIT {
     private static final String ENCODED_ASSET_ENTRY = REPORT_DIR + "/data/space file.txt";
     private static final String ENCODED_ASSET_CONTENT = "decoded asset";
     private static final String LEGACY_INDEX_CONTENT = "<html>legacy</html>";
+    private static final String REPORT_URL = "reportUrl";
 
     @ClassRule
     public static BuildWatcher buildWatcher = new BuildWatcher();
@@ -183,6 +188,71 @@ public class AllureReportBuildActionIT {
         assertThat(graphMap.getContentAsString()).contains("<area");
     }
 
+    @Test
+    public void shouldKeepSummaryCountersWithoutReadingArchiveAfterReload() throws Exception {
+        final FreeStyleBuild build = buildSingleReportBuild();
+        final AllureReportBuildAction action = build.getAction(AllureReportBuildAction.class);
+        final long total = action.getTotalCount();
+        final long failed = action.getFailedCount();
+        assertThat(total).isPositive();
+
+        Files.delete(new File(build.getArtifactsDir(), AllureReportArchiveSourceFactory.ALLURE_REPORT_ZIP).toPath());
+        Files.delete(new File(build.getArtifactsDir(), "allure-summary.json").toPath());
+        build.reload();
+
+        final AllureReportBuildAction reloaded = build.getAction(AllureReportBuildAction.class);
+        assertThat(reloaded).isNotSameAs(action);
+        assertThat(reloaded.getTotalCount()).isEqualTo(total);
+        assertThat(reloaded.getFailedCount()).isEqualTo(failed);
+    }
+
+    @Test
+    public void shouldReadMissingLegacySummaryOnlyOnce() throws Exception {
+        final FreeStyleBuild build = buildSingleReportBuild();
+        final Path buildXml = build.getRootDir().toPath().resolve("build.xml");
+        final String xml = new String(Files.readAllBytes(buildXml), StandardCharsets.UTF_8);
+        Files.write(buildXml, xml.replace("<summaryStored>true</summaryStored>", "")
+                .getBytes(StandardCharsets.UTF_8));
+        final Path artifacts = build.getArtifactsDir().toPath();
+        final Path moved = Files.move(artifacts, build.getRootDir().toPath().resolve("moved-archive"));
+        build.reload();
+
+        final AllureReportBuildAction legacy = build.getAction(AllureReportBuildAction.class);
+        assertThat(legacy.getTotalCount()).isZero();
+
+        Files.move(moved, artifacts);
+        assertThat(legacy.getTotalCount()).isZero();
+        assertThat(legacy.hasSummaryLink()).isFalse();
+
+        build.reload();
+        assertThat(build.getAction(AllureReportBuildAction.class).getTotalCount()).isPositive();
+    }
+
+    @Test
+    public void shouldExportSummaryThroughRemoteApi() throws Exception {
+        final FreeStyleBuild build = buildSingleReportBuild();
+        final AllureReportBuildAction action = build.getAction(AllureReportBuildAction.class);
+
+        try (JenkinsRule.WebClient webClient = jRule.createWebClient()) {
+            final String content = webClient.goTo(build.getParent().getUrl()
+                    + "api/json?tree=builds[number,actions[failedCount,passedCount,totalCount,reportUrl,"
+                    + "allureVersion,singleFile]]", "application/json").getWebResponse().getContentAsString();
+            JsonNode exported = null;
+            for (JsonNode node : new ObjectMapper().readTree(content).get("builds").get(0).get("actions")) {
+                if (node.has(REPORT_URL)) {
+                    exported = node;
+                }
+            }
+
+            assertThat(exported).isNotNull();
+            assertThat(exported.get("passedCount").asLong()).isEqualTo(action.getPassedCount());
+            assertThat(exported.get("totalCount").asLong()).isPositive();
+            assertThat(exported.get(REPORT_URL).asText()).isEqualTo(build.getUrl() + "allure/");
+            assertThat(exported.get("allureVersion").asInt()).isEqualTo(action.getAllureVersion());
+            assertThat(exported.get("singleFile").asBoolean()).isEqualTo(action.isSingleFile());
+        }
+    }
+
     private FreeStyleBuild buildSingleReportBuild() throws Exception {
         final FreeStyleProject project = createProject();
         project.getPublishersList().add(createAllurePublisher(jdk, commandline, RESULTS_DIR));
@@ -15,9 +15,17 @@
  */
 package org.allurereport.jenkins;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import hudson.model.FreeStyleBuild;
 import hudson.model.FreeStyleProject;
+import hudson.model.Run;
 import org.allurereport.jenkins.testdata.TestUtils;
+import org.allurereport.jenkins.utils.AllureTestIndex;
+import org.allurereport.jenkins.utils.AllureTrendStore;
+import org.allurereport.jenkins.utils.TrendPoint;
+import org.htmlunit.WebRequest;
+import org.htmlunit.WebResponse;
 import org.junit.BeforeClass;
 import org.junit.ClassRule;
 import org.junit.Test;
@@ -25,6 +33,13 @@ import org.junit.rules.TemporaryFolder;
 import org.jvnet.hudson.test.BuildWatcher;
 import org.jvnet.hudson.test.JenkinsRule;
 
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
 import static org.allurereport.jenkins.testdata.TestUtils.createAllurePublisher;
 import static org.allurereport.jenkins.testdata.TestUtils.getSimpleFileScm;
 import static org.assertj.core.api.Assertions.assertThat;
@@ -32,6 +47,11 @@ import static org.assertj.core.api.Assertions.assertThat;
 public class AllureReportProjectActionIT {
 
     private static final String RESULTS_DIR = "allure-results";
+    private static final String BUILDS = "builds";
+    private static final String NUMBER = "number";
+    private static final String NEXT = "next";
+    private static final String HISTORY_ID = "sample-history-id";
+    private static final String SUITES = "data/suites.json?v=1";
 
     @ClassRule
     public static BuildWatcher buildWatcher = new BuildWatcher();
@@ -78,6 +98,158 @@ public class AllureReportProjectActionIT {
         assertThat(action.isCanBuildGraph()).isTrue();
     }
 
+    @Test
+    public void shouldTrackLastAllureBuildsAcrossBuildsWithoutReportAndDeletion() throws Exception {
+        final FreeStyleProject project = createProject();
+        project.getPublishersList().add(createAllurePublisher(jdk, commandline, RESULTS_DIR));
+
+        final FreeStyleBuild first = jRule.buildAndAssertSuccess(project);
+        final FreeStyleBuild second = jRule.buildAndAssertSuccess(project);
+        project.getPublishersList().clear();
+        jRule.buildAndAssertSuccess(project);
+        final AllureReportProjectAction action = new AllureReportProjectAction(project);
+
+        assertThat(action.getLastAllureBuildAction().getBuildNumber()).isEqualTo(second.getId());
+        assertThat(action.isCanBuildGraph()).isTrue();
+
+        second.delete();
+
+        assertThat(action.getLastAllureBuildAction().getBuildNumber()).isEqualTo(first.getId());
+        assertThat(action.isCanBuildGraph()).isFalse();
+    }
+
+    @Test
+    public void shouldServeTrendJsonPages() throws Exception {
+        final FreeStyleProject project = createProject();
+        project.getPublishersList().add(createAllurePublisher(jdk, commandline, RESULTS_DIR));
+
+        jRule.buildAndAssertSuccess(project);
+        final FreeStyleBuild second = jRule.buildAndAssertSuccess(project);
+
+        try (JenkinsRule.WebClient webClient = jRule.createWebClient()) {
+            final String trendUrl = project.getUrl() + AllureReportPlugin.URL_PATH + "/trend.json";
+            final JsonNode page = readJson(webClient, trendUrl + "?limit=1");
+            assertThat(page.get(BUILDS)).hasSize(1);
+            assertThat(page.get(BUILDS).get(0).get(NUMBER).asInt()).isEqualTo(second.getNumber());
+            assertThat(page.get(BUILDS).get(0).get("total").asLong()).isPositive();
+            assertThat(page.get(NEXT).asInt()).isEqualTo(second.getNumber());
+
+            final JsonNode older = readJson(webClient, trendUrl + "?limit=1&before=" + page.get(NEXT).asInt());
+            assertThat(older.get(BUILDS)).hasSize(1);
+            assertThat(older.get(BUILDS).get(0).get(NUMBER).asInt()).isEqualTo(second.getNumber() - 1);
+            assertThat(older.get(NEXT).isNull()).isTrue();
+        }
+    }
+
+    @Test
+    public void shouldRedirectProjectReportToLastBuildReport() throws Exception {
+        final FreeStyleProject project = createProject();
+        project.getPublishersList().add(createAllurePublisher(jdk, commandline, RESULTS_DIR));
+
+        jRule.buildAndAssertSuccess(project);
+        final FreeStyleBuild second = jRule.buildAndAssertSuccess(project);
+
+        try (JenkinsRule.WebClient webClient = jRule.createWebClient()) {
+            webClient.getOptions().setRedirectEnabled(false);
+            webClient.setThrowExceptionOnFailingStatusCode(false);
+            final String reportUrl = project.getUrl() + AllureReportPlugin.URL_PATH + '/';
+            final String buildReportUrl = jRule.getURL() + second.getUrl() + AllureReportPlugin.URL_PATH + '/';
+
+            assertThat(redirect(webClient, reportUrl)).isEqualTo(buildReportUrl);
+            assertThat(redirect(webClient, reportUrl + SUITES)).isEqualTo(buildReportUrl + SUITES);
+        }
+    }
+
+    private static String redirect(final JenkinsRule.WebClient webClient, final String url) throws Exception {
+        final WebResponse response = webClient.loadWebResponse(new WebRequest(new URL(jRule.getURL(), url)));
+        assertThat(response.getStatusCode()).isEqualTo(HttpURLConnection.HTTP_MOVED_TEMP);
+        return response.getResponseHeaderValue("Location");
+    }
+
+    @Test
+    public void shouldServeTestHistoryFromArchivedIndex() throws Exception {
+        final FreeStyleProject project = jRule.createFreeStyleProject();
+        project.setScm(getSimpleFileScm("sample-result.json", RESULTS_DIR + "/sample-result.json"));
+        project.getPublishersList().add(createAllurePublisher(jdk, commandline, RESULTS_DIR));
+
+        final FreeStyleBuild first = jRule.buildAndAssertSuccess(project);
+        final FreeStyleBuild second = jRule.buildAndAssertSuccess(project);
+
+        assertThat(second.getArtifacts()).extracting(Run.Artifact::getFileName).contains(AllureTestIndex.FILE_NAME);
+        try (JenkinsRule.WebClient webClient = jRule.createWebClient()) {
+            final JsonNode history = readJson(webClient, project.getUrl() + AllureReportPlugin.URL_PATH
+                    + "/tests/history.json?id=" + HISTORY_ID);
+            assertThat(history.get("historyId").asText()).isEqualTo(HISTORY_ID);
+            assertThat(history.get(BUILDS)).extracting(build -> build.get(NUMBER).asInt())
+                    .containsExactly(second.getNumber(), first.getNumber());
+            assertThat(history.get(BUILDS).get(0).get("status").asText()).isEqualTo("passed");
+        }
+    }
+
+    @Test
+    public void shouldRebuildTrendOfUpgradedJob() throws Exception {
+        final FreeStyleProject project = createProject();
+        project.getPublishersList().add(createAllurePublisher(jdk, commandline, RESULTS_DIR));
+        jRule.buildAndAssertSuccess(project);
+        jRule.buildAndAssertSuccess(project);
+
+        final FreeStyleProject upgraded = upgrade(project);
+        final AllureTrendStore store = AllureTrendStore.forJob(upgraded);
+        final long deadline = System.currentTimeMillis() + TimeUnit.MINUTES.toMillis(1);
+        while (store.read(Integer.MAX_VALUE, 10).size() < 2 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(100L);
+        }
+
+        assertThat(store.read(Integer.MAX_VALUE, 10)).extracting(TrendPoint::getTotal).allMatch(total -> total > 0);
+        assertThat(new AllureReportProjectAction(upgraded).isCanBuildGraph()).isTrue();
+        for (FreeStyleBuild build : upgraded.getBuilds()) {
+            build.reload();
+            assertThat(build.getAction(AllureReportBuildAction.class).hasSummaryLink()).isTrue();
+        }
+    }
+
+    @Test
+    public void shouldRedirectToLastReportOfUpgradedJob() throws Exception {
+        final FreeStyleProject project = createProject();
+        project.getPublishersList().add(createAllurePublisher(jdk, commandline, RESULTS_DIR));
+        jRule.buildAndAssertSuccess(project);
+        final FreeStyleBuild last = jRule.buildAndAssertSuccess(project);
+
+        final FreeStyleProject upgraded = upgrade(project);
+        final AllureReportProjectAction action = new AllureReportProjectAction(upgraded);
+
+        assertThat(action.getLastAllureBuildAction()).isNotNull();
+        assertThat(action.getLastAllureBuildAction().getBuildNumber()).isEqualTo(last.getId());
+        try (JenkinsRule.WebClient webClient = jRule.createWebClient()) {
+            webClient.getOptions().setRedirectEnabled(false);
+            webClient.setThrowExceptionOnFailingStatusCode(false);
+            assertThat(redirect(webClient, upgraded.getUrl() + AllureReportPlugin.URL_PATH + '/'))
+                    .isEqualTo(jRule.getURL() + last.getUrl() + AllureReportPlugin.URL_PATH + '/');
+        }
+    }
+
+    /**
+     * Turns the builds of the project into builds recorded by an older plugin version, which neither stored their
+     * counters nor kept a trend file, and reloads Jenkins.
+     */
+    private static FreeStyleProject upgrade(final FreeStyleProject project) throws Exception {
+        for (FreeStyleBuild build : project.getBuilds()) {
+            final Path buildXml = build.getRootDir().toPath().resolve("build.xml");
+            final String xml = new String(Files.readAllBytes(buildXml), StandardCharsets.UTF_8);
+            Files.write(buildXml, xml.replace("<summaryStored>true</summaryStored>", "")
+                    .getBytes(StandardCharsets.UTF_8));
+        }
+        Files.deleteIfExists(project.getRootDir().toPath().resolve("allure-trend.txt"));
+        AllureTrendStore.forget(project.getFullName());
+        jRule.jenkins.reload();
+        return jRule.jenkins.getItemByFullName(project.getFullName(), FreeStyleProject.class);
+    }
+
+    private static JsonNode readJson(final JenkinsRule.WebClient webClient, final String url) throws Exception {
+        final String content = webClient.goTo(url, "application/json").getWebResponse().getContentAsString();
+        return new ObjectMapper().readTree(content);
+    }
+
     private FreeStyleProject createProject() throws Exception {
         final FreeStyleProject project = jRule.createFreeStyleProject();
         project.setScm(getSimpleFileScm("sample-testsuite.xml", RESULTS_DIR + "/sample-testsuite.xml"));
@@ -32,6 +32,7 @@ import org.junit.rules.TemporaryFolder;
 import org.jvnet.hudson.test.BuildWatcher;
 import org.jvnet.hudson.test.JenkinsRule;
 
+import java.io.File;
 import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.List;
@@ -125,6 +126,26 @@ public class AllureReportPublisherIT {
         assertThat(secondHistoryItems).isGreaterThan(firstHistoryItems);
     }
 
+    @Test
+    public void shouldReuseReportOfUnchangedResultsWhenEnabled() throws Exception {
+        final FreeStyleProject project = createProject(SAMPLE_PASSED);
+        final AllureReportPublisher publisher = createAllurePublisher(jdk, commandline, RESULTS_DIR);
+        publisher.setReuseUnchangedReport(true);
+        project.getPublishersList().add(publisher);
+
+        final FreeStyleBuild first = jRule.buildAndAssertSuccess(project);
+        final FreeStyleBuild second = jRule.buildAndAssertSuccess(project);
+
+        final AllureReportBuildAction firstAction = first.getAction(AllureReportBuildAction.class);
+        final AllureReportBuildAction secondAction = second.getAction(AllureReportBuildAction.class);
+        assertThat(secondAction.getResultsFingerprint()).isNotNull().isEqualTo(firstAction.getResultsFingerprint());
+        assertThat(secondAction.getTotalCount()).isEqualTo(firstAction.getTotalCount());
+        assertThat(historyItems(second)).isEqualTo(historyItems(first));
+        jRule.assertLogContains("reusing its report", second);
+        assertThat(new File(second.getRootDir(), "allure-reuse")).doesNotExist();
+        assertThat(second.getWorkspace().child("allure-report.zip").exists()).isFalse();
+    }
+
     @Test
     public void shouldUseDisplayUrlForBuildLinksAndClassicUrlForReportLinks() throws Exception {
         final FreeStyleProject project = createProject(SAMPLE_PASSED);
@@ -22,6 +22,7 @@ import hudson.util.DescribableList;
 import org.allurereport.jenkins.config.PropertyConfig;
 import org.allurereport.jenkins.config.ResultPolicy;
 import org.allurereport.jenkins.config.ResultsConfig;
+import org.allurereport.jenkins.config.RetryPolicy;
 import org.apache.commons.io.IOUtils;
 import org.junit.Rule;
 import org.junit.Test;
@@ -74,6 +75,7 @@ public class JobDslIT {
 
         assertThat(allureReportPublisher.getConfigPath()).isEqualTo(null);
         assertThat(allureReportPublisher.getResultPolicy()).isEqualTo(ResultPolicy.FAILURE_IF_FAILED_OR_BROKEN);
+        assertThat(allureReportPublisher.getRetryPolicy()).isEqualTo(RetryPolicy.KEEP_LAST_ATTEMPT_WITH_RETRIES);
         assertThat(allureReportPublisher.getUnstableThresholdPercent()).isEqualTo(50);
         assertThat(allureReportPublisher.getFailureThresholdCount()).isEqualTo(2);
         assertThat(allureReportPublisher.getReportName()).isEqualTo("Team Allure");
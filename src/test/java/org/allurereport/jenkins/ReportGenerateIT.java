@@ -91,9 +91,10 @@ public class ReportGenerateIT {
         final FreeStyleBuild build = jRule.buildAndAssertSuccess(project);
 
         assertThat(build.getArtifacts())
-                .as("Allure report and summary artifacts should be archived for the build")
+                .as("Allure report, its index, summary and test index artifacts should be archived for the build")
                 .extracting(Run.Artifact::getFileName)
-                .containsExactlyInAnyOrder("allure-report.zip", "allure-summary.json");
+                .containsExactlyInAnyOrder("allure-report.zip", "allure-report.zip.idx", "allure-summary.json",
+                        "allure-tests.idx");
     }
 
     @Test
@@ -0,0 +1,53 @@
+/*
+ *  Copyright 2016-2023 Qameta Software OÜ
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.allurereport.jenkins.benchmark;
+
+import jenkins.benchmark.jmh.BenchmarkFinder;
+import org.junit.Test;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the {@link jenkins.benchmark.jmh.JmhBenchmark} classes of this plugin. Executed with
+ * {@code mvn test -Pbenchmark}; the GC profiler reports the allocation per call as {@code gc.alloc.rate.norm}.
+ */
+public class BenchmarkRunner {
+
+    @Test
+    public void runJmhBenchmarks() throws Exception {
+        final ChainedOptionsBuilder options = new OptionsBuilder()
+                .mode(Mode.AverageTime)
+                .warmupIterations(2)
+                .measurementIterations(5)
+                .timeUnit(TimeUnit.MICROSECONDS)
+                .threads(1)
+                .forks(1)
+                .shouldFailOnError(true)
+                .shouldDoGC(true)
+                .addProfiler(GCProfiler.class)
+                .resultFormat(ResultFormatType.JSON)
+                .result("jmh-report.json");
+
+        new BenchmarkFinder(getClass()).findBenchmarks(options);
+        new Runner(options.build()).run();
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ *  Copyright 2016-2023 Qameta Software OÜ
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.allurereport.jenkins.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jenkins.benchmark.jmh.JmhBenchmark;
+import org.allurereport.jenkins.utils.JsonUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Compares reading a large {@code history.json} and test result through a {@code JsonNode} tree with the
+ * token-level readers of {@link JsonUtils}.
+ */
+@JmhBenchmark
+@State(Scope.Benchmark)
+public class JsonParsingBenchmark {
+
+    private static final int HISTORY_ENTRIES = 5000;
+    private static final int RESULT_STEPS = 5000;
+
+    private byte[] history;
+    private byte[] result;
+
+    @Setup
+    public void setUp() {
+        final StringBuilder historyJson = new StringBuilder("{");
+        for (int i = 0; i < HISTORY_ENTRIES; i++) {
+            if (i > 0) {
+                historyJson.append(',');
+            }
+            historyJson.append("\"uid").append(i).append("\":{\"statistic\":{\"passed\":1,\"total\":1},")
+                    .append("\"items\":[{\"uid\":\"").append(i).append("\",\"status\":\"passed\",\"time\":")
+                    .append("{\"start\":1,\"stop\":2,\"duration\":1}}]}");
+        }
+        history = historyJson.append('}').toString().getBytes(StandardCharsets.UTF_8);
+
+        final StringBuilder resultJson = new StringBuilder("{\"name\":\"test\",\"steps\":[");
+        for (int i = 0; i < RESULT_STEPS; i++) {
+            if (i > 0) {
+                resultJson.append(',');
+            }
+            resultJson.append("{\"name\":\"step ").append(i).append("\",\"status\":\"passed\",\"steps\":[]}");
+        }
+        result = resultJson.append("],\"status\":\"failed\"}").toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public boolean historyTree() throws IOException {
+        return new ObjectMapper().readTree(new ByteArrayInputStream(history)).elements().hasNext();
+    }
+
+    @Benchmark
+    public boolean historyStreaming() throws IOException {
+        return JsonUtils.hasElements(new ByteArrayInputStream(history));
+    }
+
+    @Benchmark
+    public String statusTree() throws IOException {
+        return new ObjectMapper().readTree(new ByteArrayInputStream(result)).get("status").asText();
+    }
+
+    @Benchmark
+    public String statusStreaming() throws IOException {
+        return JsonUtils.readStatus(new ByteArrayInputStream(result));
+    }
+}
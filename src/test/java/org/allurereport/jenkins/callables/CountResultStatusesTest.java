@@ -0,0 +1,65 @@
+/*
+ *  Copyright 2016-2023 Qameta Software OÜ
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.allurereport.jenkins.callables;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CountResultStatusesTest {
+
+    private static final String PASSED = "passed";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void shouldCountTopLevelStatusesOfAllResults() throws Exception {
+        final File results = folder.newFolder();
+        for (int i = 0; i < 20; i++) {
+            write(results, "p" + i + "-result.json", "{\"steps\":[{\"status\":\"failed\"}],\"status\":\"passed\"}");
+        }
+        write(results, "f-result.json", "{\"status\":\"FAILED\"}");
+        write(results, "nested/b-result.json", "{\"name\":\"b\",\"status\":\"broken\"}");
+        write(results, "s-result.json", "{\"status\":\"skipped\"}");
+        write(results, "u-result.json", "{\"status\":\"interrupted\"}");
+        write(results, "n-result.json", "{\"name\":\"no status\"}");
+        write(results, "c-container.json", "{\"status\":\"passed\"}");
+
+        final Map<String, Integer> counts = new CountResultStatuses().invoke(results, null);
+
+        assertThat(counts)
+                .containsEntry(PASSED, 20)
+                .containsEntry("failed", 1)
+                .containsEntry("broken", 1)
+                .containsEntry("skipped", 1)
+                .containsEntry("unknown", 2)
+                .hasSize(5);
+    }
+
+    private static void write(final File directory, final String name, final String content) throws Exception {
+        final File file = new File(directory, name);
+        Files.createDirectories(file.getParentFile().toPath());
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ *  Copyright 2016-2023 Qameta Software OÜ
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.allurereport.jenkins.callables;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.StringJoiner;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class DeduplicateRetriesTest {
+
+    private static final String FIRST_ATTEMPT = "a-result.json";
+    private static final String LAST_ATTEMPT = "b-result.json";
+    private static final String OTHER_TEST = "c-result.json";
+    private static final String CONTAINER = "d-container.json";
+    private static final String RETRY_ATTACHMENT = "a-attachment.txt";
+    private static final String SHARED_ATTACHMENT = "shared-attachment.txt";
+    private static final String FIXTURE_ATTACHMENT = "fixture-attachment.txt";
+    private static final String LAST_ATTACHMENT = "b-attachment.txt";
+    private static final String END = "}";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File results;
+
+    @Before
+    public void setUp() throws Exception {
+        results = folder.newFolder();
+        write(FIRST_ATTEMPT, "{\"uuid\":\"a\",\"historyId\":\"h1\",\"status\":\"failed\",\"start\":1,\"stop\":2,"
+                + "\"statusDetails\":{\"message\":\"boom\",\"trace\":\"at Test\"},"
+                + "\"steps\":[{\"name\":\"step\"," + attachments(RETRY_ATTACHMENT) + "}],"
+                + attachments(SHARED_ATTACHMENT, FIXTURE_ATTACHMENT) + END);
+        write(LAST_ATTEMPT, "{\"uuid\":\"b\",\"historyId\":\"h1\",\"status\":\"passed\",\"start\":3,\"stop\":4,"
+                + attachments(LAST_ATTACHMENT, SHARED_ATTACHMENT) + END);
+        write(OTHER_TEST, "{\"uuid\":\"c\",\"historyId\":\"h2\",\"status\":\"passed\",\"start\":1,\"stop\":2}");
+        write(CONTAINER, "{\"uuid\":\"d\",\"children\":[\"a\",\"b\"],"
+                + "\"befores\":[{" + attachments(FIXTURE_ATTACHMENT) + "}]}");
+        write(RETRY_ATTACHMENT, "retry");
+        write(SHARED_ATTACHMENT, "shared");
+        write(FIXTURE_ATTACHMENT, "fixture");
+        write(LAST_ATTACHMENT, "last");
+    }
+
+    @Test
+    public void shouldDeleteEarlierAttemptsAndTheirAttachments() throws Exception {
+        final DeduplicateRetries.Stats stats = deduplicate(false);
+
+        assertThat(stats.getRetries()).isEqualTo(1);
+        assertThat(stats.getDeletedAttachments()).isEqualTo(1);
+        assertThat(results.list()).containsExactlyInAnyOrder(LAST_ATTEMPT, OTHER_TEST, CONTAINER,
+                SHARED_ATTACHMENT, FIXTURE_ATTACHMENT, LAST_ATTACHMENT);
+    }
+
+    @Test
+    public void shouldKeepEarlierAttemptsAsCompactRetries() throws Exception {
+        final DeduplicateRetries.Stats stats = deduplicate(true);
+
+        assertThat(stats.getRetries()).isEqualTo(1);
+        assertThat(new File(results, RETRY_ATTACHMENT)).doesNotExist();
+        assertThat(read(FIRST_ATTEMPT))
+                .contains("\"historyId\":\"h1\"", "\"status\":\"failed\"", "\"statusDetails\":{\"message\":\"boom\"}")
+                .doesNotContain("steps", "attachments", "trace");
+        assertThat(read(LAST_ATTEMPT)).contains(LAST_ATTACHMENT);
+    }
+
+    @Test
+    public void shouldLeaveResultsWithoutRetriesUntouched() throws Exception {
+        Files.delete(new File(results, FIRST_ATTEMPT).toPath());
+
+        final DeduplicateRetries.Stats stats = deduplicate(false);
+
+        assertThat(stats.getRetries()).isZero();
+        assertThat(new File(results, RETRY_ATTACHMENT)).exists();
+    }
+
+    private DeduplicateRetries.Stats deduplicate(final boolean keepRetries) throws Exception {
+        return new DeduplicateRetries(Collections.singletonList(results.getAbsolutePath()), keepRetries)
+                .invoke(folder.getRoot(), null);
+    }
+
+    private static String attachments(final String... sources) {
+        final StringJoiner attachments = new StringJoiner(",", "\"attachments\":[", "]");
+        for (String source : sources) {
+            attachments.add("{\"source\":\"" + source + "\"}");
+        }
+        return attachments.toString();
+    }
+
+    private String read(final String name) throws Exception {
+        return new String(Files.readAllBytes(new File(results, name).toPath()), StandardCharsets.UTF_8);
+    }
+
+    private void write(final String name, final String content) throws Exception {
+        Files.write(new File(results, name).toPath(), content.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ *  Copyright 2016-2023 Qameta Software OÜ
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.allurereport.jenkins.callables;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class FingerprintResultsTest {
+
+    private static final String RESULT = "a-result.json";
+    private static final String RESULT_CONTENT = "{\"status\":\"passed\"}";
+    private static final Set<String> IGNORED = Collections.singleton(AddExecutorInfo.EXECUTOR_JSON);
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void shouldIgnoreFilesWrittenByThePlugin() throws Exception {
+        final File results = folder.newFolder();
+        write(results, RESULT, RESULT_CONTENT);
+        final String before = fingerprint(results);
+
+        write(results, AddExecutorInfo.EXECUTOR_JSON, "{\"buildOrder\":\"2\"}");
+        write(results, "history/history.json", "{}");
+
+        assertThat(fingerprint(results)).isEqualTo(before);
+    }
+
+    @Test
+    public void shouldChangeWithResultContentAndNames() throws Exception {
+        final File results = folder.newFolder();
+        write(results, RESULT, RESULT_CONTENT);
+        final String before = fingerprint(results);
+
+        write(results, RESULT, "{\"status\":\"failed\"}");
+        final String changed = fingerprint(results);
+        Files.move(new File(results, RESULT).toPath(), new File(results, "b-result.json").toPath());
+
+        assertThat(changed).isNotEqualTo(before);
+        assertThat(fingerprint(results)).isNotEqualTo(changed);
+    }
+
+    private String fingerprint(final File results) throws Exception {
+        return new FingerprintResults(Collections.singletonList(results.getAbsolutePath()), IGNORED)
+                .invoke(folder.getRoot(), null);
+    }
+
+    private static void write(final File directory, final String name, final String content) throws Exception {
+        final File file = new File(directory, name);
+        Files.createDirectories(file.getParentFile().toPath());
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+    }
+}
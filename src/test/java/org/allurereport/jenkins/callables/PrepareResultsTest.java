@@ -0,0 +1,85 @@
+/*
+ *  Copyright 2016-2023 Qameta Software OÜ
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.allurereport.jenkins.callables;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PrepareResultsTest {
+
+    private static final String HISTORY_JSON = "history/history.json";
+    private static final String HISTORY_CONTENT = "[{\"uid\":\"a\"}]";
+    private static final String BUILD_NAME = "some-build-name";
+    private static final String LEGACY_CONTENT = "{}";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void shouldPrepareAllResultsDirectoriesInOneCall() throws Exception {
+        final File first = folder.newFolder();
+        final File second = folder.newFolder();
+        Files.write(second.toPath().resolve(AddTestRunInfo.TESTRUN_JSON),
+                LEGACY_CONTENT.getBytes(StandardCharsets.UTF_8));
+        final Map<String, byte[]> history = new LinkedHashMap<>();
+        history.put(HISTORY_JSON, HISTORY_CONTENT.getBytes(StandardCharsets.UTF_8));
+
+        final List<String> problems = new PrepareResults(
+                Arrays.asList(first.getAbsolutePath(), second.getAbsolutePath()),
+                history,
+                true,
+                Collections.singletonList(new AddEnvironmentInfo(BUILD_NAME, 1L, 2L))
+        ).invoke(folder.getRoot(), null);
+
+        assertThat(problems).isEmpty();
+        for (File directory : Arrays.asList(first, second)) {
+            assertThat(directory.toPath().resolve(HISTORY_JSON)).hasContent(HISTORY_CONTENT);
+            assertThat(directory.toPath().resolve(AddEnvironmentInfo.ENV_PROPERTIES)).exists();
+            assertThat(directory.toPath().resolve(AddTestRunInfo.TESTRUN_JSON)).doesNotExist();
+        }
+        assertThat(second.toPath().resolve(PrepareResults.QUARANTINED_TESTRUN_JSON)).hasContent(LEGACY_CONTENT);
+    }
+
+    @Test
+    public void shouldReportHistoryFilesOutsideOfResultsDirectory() throws Exception {
+        final File results = folder.newFolder();
+        final Map<String, byte[]> history = Collections.singletonMap(
+                "../escaped.json", HISTORY_CONTENT.getBytes(StandardCharsets.UTF_8));
+
+        final List<String> problems = new PrepareResults(
+                Collections.singletonList(results.getAbsolutePath()),
+                history,
+                false,
+                Collections.singletonList(new AddTestRunInfo(BUILD_NAME, 1L, 2L))
+        ).invoke(folder.getRoot(), null);
+
+        assertThat(problems).hasSize(1);
+        assertThat(new File(results.getParentFile(), "escaped.json")).doesNotExist();
+        assertThat(results.toPath().resolve(AddTestRunInfo.TESTRUN_JSON)).exists();
+    }
+}
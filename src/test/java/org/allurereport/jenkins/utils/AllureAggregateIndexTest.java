@@ -0,0 +1,107 @@
+/*
+ *  Copyright 2016-2023 Qameta Software OÜ
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.allurereport.jenkins.utils;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class AllureAggregateIndexTest {
+
+    private static final String JOB = "folder/job";
+    private static final String OTHER = "folder/other";
+    private static final String MOVED = "moved/job";
+    private static final String FOLDER = "folder";
+    private static final String LOOSE = "folderless";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final AtomicInteger scans = new AtomicInteger();
+
+    private AllureAggregateIndex index(final Map<String, Collection<TrendPoint>> history) {
+        return new AllureAggregateIndex(new File(folder.getRoot(), AllureAggregateIndex.FILE_NAME), 3, () -> {
+            scans.incrementAndGet();
+            return history;
+        });
+    }
+
+    private AllureAggregateIndex index() {
+        return index(Collections.emptyMap());
+    }
+
+    private static TrendPoint point(final int number) {
+        return new TrendPoint(number, 1L, 0L, number, 0L, 0L, 10L);
+    }
+
+    @Test
+    public void missingFileIsRebuiltOnce() {
+        final Map<String, Collection<TrendPoint>> history = new HashMap<>();
+        history.put(JOB, Arrays.asList(point(1), point(2)));
+
+        assertThat(index(history).read(name -> true).get(JOB)).containsExactly(point(1), point(2));
+        assertThat(index(history).read(name -> true)).containsOnlyKeys(JOB);
+        assertThat(scans).hasValue(1);
+    }
+
+    @Test
+    public void recordKeepsNewestPointsWithinDepth() {
+        final AllureAggregateIndex index = index();
+        for (int number = 1; number <= 5; number++) {
+            index.record(JOB, point(number));
+        }
+
+        assertThat(index.read(name -> true).get(JOB)).containsExactly(point(3), point(4), point(5));
+        assertThat(index().read(name -> true).get(JOB)).containsExactly(point(3), point(4), point(5));
+    }
+
+    @Test
+    public void removeDropsBuildsAndJobs() {
+        final AllureAggregateIndex index = index();
+        index.record(JOB, point(1));
+        index.record(JOB, point(2));
+        index.record(OTHER, point(1));
+
+        index.remove(JOB, 2);
+        assertThat(index().read(name -> true).get(JOB)).containsExactly(point(1));
+
+        index.removeJob(FOLDER);
+        assertThat(index().read(name -> true)).isEmpty();
+        assertThat(index().isEmpty()).isTrue();
+    }
+
+    @Test
+    public void renameMovesJobsWithinFolder() {
+        final AllureAggregateIndex index = index();
+        index.record(JOB, point(1));
+        index.record(LOOSE, point(1));
+
+        index.rename(FOLDER, "moved");
+
+        assertThat(index().read(name -> true)).containsOnlyKeys(MOVED, LOOSE);
+        assertThat(index().read(name -> name.startsWith("moved/")).get(MOVED)).containsExactly(point(1));
+    }
+}
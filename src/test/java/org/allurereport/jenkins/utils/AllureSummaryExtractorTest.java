@@ -25,10 +25,15 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.jvnet.hudson.test.JenkinsRule;
 
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
 import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Objects;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
@@ -40,6 +45,7 @@ public class AllureSummaryExtractorTest {
     private static final String SUMMARY_ARTIFACT = "allure-summary.json";
     private static final String REPORT_PATH = "allure-report";
     private static final String SUMMARY_ENTRY = "allure-report/widgets/summary.json";
+    private static final String EXPORT_ENTRY = "allure-report/export/summary.json";
 
     @Rule
     public JenkinsRule jRule = new JenkinsRule();
@@ -87,6 +93,32 @@ public class AllureSummaryExtractorTest {
         assertCounts(summary, 6, 1, 0, 2, 3);
     }
 
+    @Test
+    public void extractPrefersExportSummaryAndRemembersItsLocation() throws Exception {
+        final FreeStyleProject project = jRule.createFreeStyleProject();
+        final FreeStyleBuild build = jRule.buildAndAssertSuccess(project);
+        archiveZip(project, build, mapOf(
+                SUMMARY_ENTRY, summaryJson(1, 1, 1, 1, 1),
+                EXPORT_ENTRY, summaryJson(5, 0, 2, 1, 0)
+        ));
+
+        assertCounts(AllureSummaryExtractor.extract(build, REPORT_PATH, false), 5, 0, 2, 1, 0);
+        assertCounts(AllureSummaryExtractor.extract(build, REPORT_PATH, false), 5, 0, 2, 1, 0);
+
+        final RecordingSource source = new RecordingSource(mapOf(
+                SUMMARY_ENTRY, summaryJson(1, 1, 1, 1, 1),
+                EXPORT_ENTRY, summaryJson(5, 0, 2, 1, 0)
+        ));
+        final String locationKey = build.getRootDir().getAbsolutePath() + "#recording";
+        assertCounts(AllureSummaryExtractor.readFromArchive(source, locationKey, REPORT_PATH, false), 5, 0, 2, 1, 0);
+        final int lookups = source.lookups;
+
+        assertCounts(AllureSummaryExtractor.readFromArchive(source, locationKey, REPORT_PATH, false), 5, 0, 2, 1, 0);
+        assertThat(lookups).isPositive();
+        assertThat(source.lookups).isEqualTo(lookups);
+        assertThat(source.listings).isZero();
+    }
+
     @Test
     public void extractFallsBackToUnpackedDirectoryWhenArchiveIsMissing() throws Exception {
         final FreeStyleProject project = jRule.createFreeStyleProject();
@@ -214,4 +246,49 @@ public class AllureSummaryExtractorTest {
         }
         return result;
     }
+
+    /**
+     * An in-memory archive that counts entry lookups and listings.
+     */
+    private static final class RecordingSource implements AllureReportArchiveSource {
+
+        private final Map<String, String> entries;
+        private int lookups;
+        private int listings;
+
+        RecordingSource(final Map<String, String> entries) {
+            this.entries = entries;
+        }
+
+        @Override
+        public boolean exists() {
+            return true;
+        }
+
+        @Override
+        public boolean exists(final String entryPath) {
+            lookups++;
+            return entries.containsKey(entryPath);
+        }
+
+        @Override
+        public InputStream openEntry(final String entryPath) {
+            final String content = entries.get(entryPath);
+            if (content == null) {
+                throw new NoSuchElementException(entryPath);
+            }
+            return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public List<String> listEntries(final String prefix) {
+            listings++;
+            return new ArrayList<>(entries.keySet());
+        }
+
+        @Override
+        public void close() {
+            // nothing to release
+        }
+    }
 }
@@ -0,0 +1,88 @@
+/*
+ *  Copyright 2016-2023 Qameta Software OÜ
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.allurereport.jenkins.utils;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class AllureTestIndexTest {
+
+    private static final String FIRST = "a1";
+    private static final String SECOND = "b2";
+    private static final String THIRD = "c3";
+    private static final String PASSED = "passed";
+    private static final String FAILED = "failed";
+    private static final String NAME_PREFIX = "test ";
+
+    private static byte[] write(final List<AllureTestIndex.Entry> entries) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        AllureTestIndex.write(out, entries);
+        return out.toByteArray();
+    }
+
+    private static AllureTestIndex.Entry entry(final String historyId, final String status, final long start) {
+        return new AllureTestIndex.Entry(historyId, NAME_PREFIX + historyId, status, start, 5L, 0);
+    }
+
+    @Test
+    public void writeAndReadRoundTripSortedByHistoryId() throws IOException {
+        final byte[] index = write(Arrays.asList(entry(THIRD, FAILED, 1L), entry(FIRST, PASSED, 2L)));
+
+        final List<AllureTestIndex.Entry> entries = AllureTestIndex.read(new ByteArrayInputStream(index)).getEntries();
+
+        assertThat(entries).extracting(AllureTestIndex.Entry::getHistoryId).containsExactly(FIRST, THIRD);
+        assertThat(entries.get(1).getStatus()).isEqualTo(FAILED);
+        assertThat(entries.get(1).getName()).isEqualTo(NAME_PREFIX + THIRD);
+        assertThat(entries.get(1).getDuration()).isEqualTo(5L);
+    }
+
+    @Test
+    public void findStopsAtMissingTest() throws IOException {
+        final byte[] index = write(Arrays.asList(entry(FIRST, PASSED, 1L), entry(THIRD, FAILED, 1L)));
+
+        assertThat(AllureTestIndex.find(new ByteArrayInputStream(index), THIRD).getStatus()).isEqualTo(FAILED);
+        assertThat(AllureTestIndex.find(new ByteArrayInputStream(index), SECOND)).isNull();
+    }
+
+    @Test
+    public void builderKeepsLatestResultAndCountsRetries() {
+        final List<AllureTestIndex.Entry> entries = new AllureTestIndex.Builder()
+                .add(entry(FIRST, FAILED, 1L))
+                .add(entry(FIRST, PASSED, 3L))
+                .add(entry(FIRST, FAILED, 2L))
+                .add(entry(SECOND, PASSED, 1L))
+                .build();
+
+        assertThat(entries).hasSize(2);
+        assertThat(entries.get(0).getStatus()).isEqualTo(PASSED);
+        assertThat(entries.get(0).getRetries()).isEqualTo(2);
+        assertThat(entries.get(1).getRetries()).isZero();
+    }
+
+    @Test
+    public void readRejectsForeignData() {
+        assertThatThrownBy(() -> AllureTestIndex.read(new ByteArrayInputStream(new byte[]{1, 2, 3, 4})))
+                .isInstanceOf(IOException.class);
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ *  Copyright 2016-2023 Qameta Software OÜ
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.allurereport.jenkins.utils;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+public class AllureTrendStoreTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final AtomicInteger scans = new AtomicInteger();
+
+    private File trendFile() {
+        return new File(folder.getRoot(), AllureTrendStore.FILE_NAME);
+    }
+
+    private AllureTrendStore store(final TrendPoint... history) {
+        return new AllureTrendStore(trendFile(), () -> {
+            scans.incrementAndGet();
+            return Arrays.asList(history);
+        });
+    }
+
+    private static TrendPoint point(final int number, final long passed) {
+        return new TrendPoint(number, 1L, 0L, passed, 0L, 0L, 10L);
+    }
+
+    @Test
+    public void readRebuildsMissingFileFromHistoryOnce() {
+        final AllureTrendStore store = store(point(2, 5L), point(1, 4L));
+
+        assertThat(store.read(Integer.MAX_VALUE, 10)).extracting(TrendPoint::getNumber).containsExactly(1, 2);
+        assertThat(store(point(3, 3L)).read(Integer.MAX_VALUE, 10)).extracting(TrendPoint::getNumber)
+                .containsExactly(1, 2);
+        assertThat(trendFile()).exists();
+        assertThat(scans).hasValue(1);
+    }
+
+    @Test
+    public void recordAppendsAndReplacesPoints() {
+        final AllureTrendStore store = store();
+        store.record(point(1, 4L));
+        store.record(point(2, 5L));
+        store.record(point(2, 7L));
+
+        assertThat(store(point(9, 9L)).read(Integer.MAX_VALUE, 10))
+                .extracting(TrendPoint::getNumber, TrendPoint::getPassed)
+                .containsExactly(tuple(1, 4L),
+                        tuple(2, 7L));
+    }
+
+    @Test
+    public void readReturnsNewestPointsWithinWindow() {
+        final AllureTrendStore store = store(point(1, 1L), point(2, 2L), point(3, 3L), point(4, 4L));
+
+        assertThat(store.read(3, 2)).extracting(TrendPoint::getNumber).containsExactly(2, 3);
+        assertThat(store.read(Integer.MAX_VALUE, 2)).extracting(TrendPoint::getNumber).containsExactly(3, 4);
+    }
+
+    @Test
+    public void removeDropsDeletedBuild() {
+        final AllureTrendStore store = store(point(1, 1L), point(2, 2L));
+        store.read(Integer.MAX_VALUE, 10);
+
+        store.remove(1);
+
+        assertThat(store().read(Integer.MAX_VALUE, 10)).extracting(TrendPoint::getNumber).containsExactly(2);
+    }
+
+    @Test
+    public void readSkipsMalformedLines() throws IOException {
+        store(point(1, 1L)).read(Integer.MAX_VALUE, 10);
+        Files.write(trendFile().toPath(), "2 broken line\n".getBytes(StandardCharsets.UTF_8),
+                StandardOpenOption.APPEND);
+
+        assertThat(store().read(Integer.MAX_VALUE, 10)).extracting(TrendPoint::getNumber).containsExactly(1);
+    }
+
+    @Test
+    public void previousReturnsNewestEarlierPoint() {
+        final AllureTrendStore store = store(point(7, 1L), point(4, 1L), point(2, 1L));
+
+        assertThat(store.previous(7).getNumber()).isEqualTo(4);
+        assertThat(store.previous(5).getNumber()).isEqualTo(4);
+        assertThat(store.previous(2)).isNull();
+    }
+
+    @Test
+    public void latestReturnsNewestPointUpToTheBuild() {
+        final AllureTrendStore store = store(point(7, 1L), point(4, 1L));
+
+        assertThat(store.latest(7).getNumber()).isEqualTo(7);
+        assertThat(store.latest(6).getNumber()).isEqualTo(4);
+        assertThat(store.latest(3)).isNull();
+    }
+}
@@ -24,6 +24,7 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.jvnet.hudson.test.JenkinsRule;
 
+import java.io.File;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
@@ -32,12 +33,15 @@ import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Objects;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
+@SuppressWarnings("ClassDataAbstractionCoupling")
 public class ArtifactManagerArchiveSourceTest {
 
     private static final String HISTORY_ENTRY = "allure-report/history/history.json";
@@ -143,6 +147,63 @@ public class ArtifactManagerArchiveSourceTest {
         }
     }
 
+    @Test
+    public void archiveStateOfCompletedBuildIsRemembered() throws Exception {
+        final FreeStyleProject project = jRule.createFreeStyleProject();
+        final FreeStyleBuild build = jRule.buildAndAssertSuccess(project);
+
+        try (ArtifactManagerArchiveSource source = new ArtifactManagerArchiveSource(build)) {
+            assertThat(source.exists()).isFalse();
+        }
+        archiveZip(project, build, mapOf(HISTORY_ENTRY, ZIP_HISTORY));
+
+        try (ArtifactManagerArchiveSource source = new ArtifactManagerArchiveSource(build)) {
+            assertThat(source.exists()).isFalse();
+        }
+    }
+
+    @Test
+    public void openEntryUsesSidecarIndex() throws Exception {
+        final FreeStyleProject project = jRule.createFreeStyleProject();
+        final FreeStyleBuild build = jRule.buildAndAssertSuccess(project);
+        archiveZip(project, build, mapOf(
+                HISTORY_ENTRY, ZIP_HISTORY,
+                CATEGORIES_ENTRY, EMPTY_ARRAY,
+                SUMMARY_ENTRY, EMPTY_OBJECT
+        ), true);
+
+        try (ArtifactManagerArchiveSource source = new ArtifactManagerArchiveSource(build)) {
+            try (InputStream inputStream = source.openEntry(CATEGORIES_ENTRY)) {
+                assertThat(new String(inputStream.readAllBytes(), StandardCharsets.UTF_8)).isEqualTo(EMPTY_ARRAY);
+            }
+            try (InputStream inputStream = source.openEntry(HISTORY_ENTRY)) {
+                assertThat(new String(inputStream.readAllBytes(), StandardCharsets.UTF_8)).isEqualTo(ZIP_HISTORY);
+            }
+            assertThat(source.listEntries(HISTORY_PREFIX)).containsExactlyInAnyOrder(HISTORY_ENTRY, CATEGORIES_ENTRY);
+            assertThatThrownBy(() -> source.openEntry("allure-report/missing.json"))
+                    .isInstanceOf(NoSuchElementException.class);
+        }
+    }
+
+    @Test
+    public void sidecarIndexProvidesEntryInfoAndStoredData() throws Exception {
+        final FreeStyleProject project = jRule.createFreeStyleProject();
+        final FreeStyleBuild build = jRule.buildAndAssertSuccess(project);
+        archiveZip(project, build, mapOf(HISTORY_ENTRY, ZIP_HISTORY), true);
+
+        try (ArtifactManagerArchiveSource source = new ArtifactManagerArchiveSource(build)) {
+            final ArchiveEntryInfo info = source.entryInfo(HISTORY_ENTRY);
+            assertThat(info).isNotNull();
+            assertThat(info.getMethod()).isEqualTo(ZipEntry.DEFLATED);
+            assertThat(info.getSize()).isEqualTo(ZIP_HISTORY.length());
+
+            try (InputStream stored = source.openStoredEntry(HISTORY_ENTRY);
+                 InputStream inflated = new InflaterInputStream(stored, new Inflater(true))) {
+                assertThat(new String(inflated.readAllBytes(), StandardCharsets.UTF_8)).isEqualTo(ZIP_HISTORY);
+            }
+        }
+    }
+
     private void archiveArtifacts(final FreeStyleProject project,
                                   final FreeStyleBuild build,
                                   final Map<String, String> artifacts) throws Exception {
@@ -173,6 +234,13 @@ public class ArtifactManagerArchiveSourceTest {
     private void archiveZip(final FreeStyleProject project,
                             final FreeStyleBuild build,
                             final Map<String, String> zipEntries) throws Exception {
+        archiveZip(project, build, zipEntries, false);
+    }
+
+    private void archiveZip(final FreeStyleProject project,
+                            final FreeStyleBuild build,
+                            final Map<String, String> zipEntries,
+                            final boolean withIndex) throws Exception {
         final FilePath workspace = Objects.requireNonNull(jRule.jenkins.getWorkspaceFor(project));
         workspace.deleteRecursive();
         workspace.mkdirs();
@@ -186,19 +254,24 @@ public class ArtifactManagerArchiveSourceTest {
             }
         }
 
+        final Map<String, String> archivedPaths = mapOf(
+                AllureReportArchiveSourceFactory.ALLURE_REPORT_ZIP,
+                AllureReportArchiveSourceFactory.ALLURE_REPORT_ZIP
+        );
+        if (withIndex) {
+            final FilePath index = workspace.child(AllureReportArchiveSourceFactory.ALLURE_REPORT_INDEX);
+            try (OutputStream indexOut = index.write()) {
+                ZipEntryIndex.writeSidecar(new File(zip.getRemote()), indexOut);
+            }
+            archivedPaths.put(AllureReportArchiveSourceFactory.ALLURE_REPORT_INDEX,
+                    AllureReportArchiveSourceFactory.ALLURE_REPORT_INDEX);
+        }
+
         final StreamBuildListener listener = new StreamBuildListener(
                 OutputStream.nullOutputStream(), StandardCharsets.UTF_8
         );
         final Launcher launcher = new Launcher.LocalLauncher(listener);
-        build.pickArtifactManager().archive(
-                workspace,
-                launcher,
-                listener,
-                mapOf(
-                        AllureReportArchiveSourceFactory.ALLURE_REPORT_ZIP,
-                        AllureReportArchiveSourceFactory.ALLURE_REPORT_ZIP
-                )
-        );
+        build.pickArtifactManager().archive(workspace, launcher, listener, archivedPaths);
     }
 
     private Map<String, String> mapOf(final String... keyValues) {
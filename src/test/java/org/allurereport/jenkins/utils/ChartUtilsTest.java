@@ -0,0 +1,59 @@
+/*
+ *  Copyright 2016-2023 Qameta Software OÜ
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.allurereport.jenkins.utils;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ChartUtilsTest {
+
+    private static final int DEFAULT_WIDTH = 600;
+    private static final int DEFAULT_HEIGHT = 300;
+    private static final long MAX_AREA = 10_000_000L;
+
+    @Test
+    public void shouldKeepRequestedSizeWithinBounds() {
+        final ChartUtils.GraphSize size = ChartUtils.GraphSize.of(800, 400, 2.0,
+                DEFAULT_WIDTH, DEFAULT_HEIGHT, MAX_AREA);
+
+        assertThat(size.getImageWidth()).isEqualTo(1600);
+        assertThat(size.getImageHeight()).isEqualTo(800);
+    }
+
+    @Test
+    public void shouldReplaceNonPositiveDimensionsAndBoundTheScale() {
+        final ChartUtils.GraphSize size = ChartUtils.GraphSize.of(-1, 0, -5.0,
+                DEFAULT_WIDTH, DEFAULT_HEIGHT, MAX_AREA);
+
+        assertThat(size.getWidth()).isEqualTo(DEFAULT_WIDTH);
+        assertThat(size.getHeight()).isEqualTo(DEFAULT_HEIGHT);
+        assertThat(size.getImageWidth()).isEqualTo(DEFAULT_WIDTH);
+        assertThat(ChartUtils.GraphSize.of(DEFAULT_WIDTH, DEFAULT_HEIGHT, Double.NaN,
+                DEFAULT_WIDTH, DEFAULT_HEIGHT, MAX_AREA).getImageWidth()).isEqualTo(DEFAULT_WIDTH);
+    }
+
+    @Test
+    public void shouldLimitThePixelAreaOfHugeRequests() {
+        final ChartUtils.GraphSize size = ChartUtils.GraphSize.of(100_000, 100_000, 10.0,
+                DEFAULT_WIDTH, DEFAULT_HEIGHT, MAX_AREA);
+
+        assertThat(size.getWidth()).isEqualTo(2560);
+        assertThat((long) size.getImageWidth() * size.getImageHeight()).isLessThanOrEqualTo(MAX_AREA);
+        assertThat(size.toString()).isEqualTo(ChartUtils.GraphSize.of(5000, 5000, 3.0,
+                DEFAULT_WIDTH, DEFAULT_HEIGHT, MAX_AREA).toString());
+    }
+}
@@ -167,6 +167,20 @@ public class FallbackArchiveSourceTest {
         assertThat(entries).isEmpty();
     }
 
+    @Test
+    public void activeSourceIsResolvedOnce() throws IOException, InterruptedException {
+        final TrackingSource primary = new TrackingSource(false);
+        final TrackingSource fallback = new TrackingSource(true);
+        final FallbackArchiveSource source = new FallbackArchiveSource(primary, fallback);
+
+        assertThat(source.exists()).isTrue();
+        source.listEntries(HISTORY_PREFIX);
+        source.openEntry(ENTRY_PATH).close();
+
+        assertThat(primary.getExistsCalls()).isEqualTo(1);
+        assertThat(fallback.getExistsCalls()).isEqualTo(1);
+    }
+
     @Test
     public void closeClosesBothSources() throws IOException {
         final TrackingSource primary = new TrackingSource(true);
@@ -313,6 +327,7 @@ public class FallbackArchiveSourceTest {
 
         private final boolean exists;
         private boolean closed;
+        private int existsCalls;
 
         TrackingSource(final boolean exists) {
             this.exists = exists;
@@ -320,6 +335,7 @@ public class FallbackArchiveSourceTest {
 
         @Override
         public boolean exists() {
+            existsCalls++;
             return exists;
         }
 
@@ -341,5 +357,9 @@ public class FallbackArchiveSourceTest {
         public boolean isClosed() {
             return closed;
         }
+
+        public int getExistsCalls() {
+            return existsCalls;
+        }
     }
 }
@@ -63,6 +63,14 @@ public class FilePathUtilsTest {
         assertThat(summary.getUnknownCount()).isEqualTo(2);
     }
 
+    @Test
+    public void readSummaryReportsMissingSummaryInsteadOfZeroCounters() throws Exception {
+        final FreeStyleProject project = jRule.createFreeStyleProject();
+        final FreeStyleBuild build = jRule.buildAndAssertSuccess(project);
+
+        assertThat(FilePathUtils.readSummary(build, REPORT_PATH, false)).isEmpty();
+    }
+
     @Test
     public void extractSummaryReturnsEmptyWhenNoArtifactsOrDirectoriesExist() throws Exception {
         final FreeStyleProject project = jRule.createFreeStyleProject();
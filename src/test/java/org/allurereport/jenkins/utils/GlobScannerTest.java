@@ -0,0 +1,103 @@
+/*
+ *  Copyright 2016-2023 Qameta Software OÜ
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.allurereport.jenkins.utils;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class GlobScannerTest {
+
+    private static final String ANY_RESULTS = "**/allure-results";
+    private static final String ROOT_RESULTS = "allure-results";
+    private static final String MODULE_RESULTS = "module/target/allure-results";
+    private static final String UPPER_CASE_RESULTS = "other/Allure-Results";
+    private static final String NODE_MODULES_RESULTS = "node_modules/lib/allure-results";
+    private static final String MODULE_SOURCES = "module/src/main";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Before
+    public void createWorkspace() throws IOException {
+        for (String directory : Arrays.asList(ROOT_RESULTS, MODULE_RESULTS, UPPER_CASE_RESULTS,
+                NODE_MODULES_RESULTS, MODULE_SOURCES)) {
+            Files.createDirectories(folder.getRoot().toPath().resolve(directory));
+        }
+        Files.write(folder.getRoot().toPath().resolve("module/pom.xml"), new byte[0]);
+    }
+
+    @Test
+    public void findsMatchingDirectoriesCaseInsensitively() throws Exception {
+        final GlobScanner.Result result = new GlobScanner(ANY_RESULTS, Collections.emptyList())
+                .scan(folder.getRoot(), 1);
+
+        assertThat(result.getDirectories())
+                .containsExactly(ROOT_RESULTS, MODULE_RESULTS, NODE_MODULES_RESULTS, UPPER_CASE_RESULTS);
+        assertThat(result.getVisitedFiles()).isEqualTo(1L);
+    }
+
+    @Test
+    public void doesNotEnterExcludedDirectories() throws Exception {
+        final GlobScanner.Result all = new GlobScanner(ANY_RESULTS, Collections.emptyList())
+                .scan(folder.getRoot(), 1);
+        final GlobScanner.Result result = new GlobScanner(ANY_RESULTS,
+                Collections.singletonList("**/node_modules/**")).scan(folder.getRoot(), 1);
+
+        assertThat(result.getDirectories()).containsExactly(ROOT_RESULTS, MODULE_RESULTS, UPPER_CASE_RESULTS);
+        assertThat(result.getVisitedDirectories()).isEqualTo(all.getVisitedDirectories() - 2);
+    }
+
+    @Test
+    public void prunesSubtreesThatCanNotMatch() throws Exception {
+        final GlobScanner.Result result = new GlobScanner(MODULE_RESULTS, Collections.emptyList())
+                .scan(folder.getRoot(), 1);
+
+        assertThat(result.getDirectories()).containsExactly(MODULE_RESULTS);
+        assertThat(result.getVisitedDirectories()).isEqualTo(8L);
+    }
+
+    @Test
+    public void trailingSlashIncludesDirectoryAndSubdirectories() throws Exception {
+        final GlobScanner.Result result = new GlobScanner("module/", Collections.emptyList())
+                .scan(folder.getRoot(), 1);
+
+        assertThat(result.getDirectories()).containsExactly("module", "module/src", MODULE_SOURCES,
+                "module/target", MODULE_RESULTS);
+    }
+
+    @Test
+    public void parallelScanFindsTheSameDirectories() throws Exception {
+        final GlobScanner scanner = new GlobScanner("**/allure-*", Collections.emptyList());
+        final File root = folder.getRoot();
+
+        final GlobScanner.Result parallel = scanner.scan(root, 4);
+        final GlobScanner.Result sequential = scanner.scan(root, 1);
+
+        assertThat(parallel.getDirectories()).isEqualTo(sequential.getDirectories());
+        assertThat(parallel.getVisitedDirectories()).isEqualTo(sequential.getVisitedDirectories());
+        assertThat(parallel.getVisitedFiles()).isEqualTo(sequential.getVisitedFiles());
+    }
+}
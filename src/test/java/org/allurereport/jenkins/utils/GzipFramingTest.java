@@ -0,0 +1,64 @@
+/*
+ *  Copyright 2016-2023 Qameta Software OÜ
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.allurereport.jenkins.utils;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class GzipFramingTest {
+
+    private static final String CONTENT = "{\"statistic\":{\"passed\":42}}\n".repeat(50);
+
+    @Test
+    public void acceptsGzipHonoursQuality() {
+        assertThat(GzipFraming.acceptsGzip("gzip, deflate, br")).isTrue();
+        assertThat(GzipFraming.acceptsGzip("br;q=1.0, GZIP;q=0.5")).isTrue();
+        assertThat(GzipFraming.acceptsGzip("gzip;q=0")).isFalse();
+        assertThat(GzipFraming.acceptsGzip("deflate, br")).isFalse();
+        assertThat(GzipFraming.acceptsGzip(null)).isFalse();
+    }
+
+    @Test
+    public void writeProducesValidGzipMember() throws IOException {
+        final byte[] content = CONTENT.getBytes(StandardCharsets.UTF_8);
+        final CRC32 crc = new CRC32();
+        crc.update(content);
+
+        final ByteArrayOutputStream rawDeflate = new ByteArrayOutputStream();
+        try (DeflaterOutputStream deflater = new DeflaterOutputStream(rawDeflate, new Deflater(9, true))) {
+            deflater.write(content);
+        }
+
+        final ByteArrayOutputStream gzip = new ByteArrayOutputStream();
+        GzipFraming.write(new ByteArrayInputStream(rawDeflate.toByteArray()), crc.getValue(), content.length, gzip);
+
+        assertThat(gzip.size()).isEqualTo(rawDeflate.size() + GzipFraming.OVERHEAD);
+        try (InputStream decoded = new GZIPInputStream(new ByteArrayInputStream(gzip.toByteArray()))) {
+            assertThat(new String(decoded.readAllBytes(), StandardCharsets.UTF_8)).isEqualTo(CONTENT);
+        }
+    }
+}
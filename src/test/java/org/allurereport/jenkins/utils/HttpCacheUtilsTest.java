@@ -0,0 +1,88 @@
+/*
+ *  Copyright 2016-2023 Qameta Software OÜ
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.allurereport.jenkins.utils;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class HttpCacheUtilsTest {
+
+    private static final String APP_JS = "allure-report/app.js";
+    private static final String STYLES_CSS = "allure-report/styles.css";
+    private static final long ARCHIVE_MODIFIED = 1_700_000_000_000L;
+    private static final long ARCHIVE_LENGTH = 4096L;
+    private static final long SIZE = 128L;
+    private static final long CRC = 0xCAFEBABEL;
+    private static final long NOT_SET = -1L;
+    private static final String QUOTE = "\"";
+
+    private static ArchiveEntryInfo entry(final String name, final long crc, final long archiveModified) {
+        return new ArchiveEntryInfo(name, SIZE, crc, archiveModified, ARCHIVE_LENGTH);
+    }
+
+    @Test
+    public void entityTagIsQuotedAndStable() {
+        final String tag = HttpCacheUtils.entityTag(entry(APP_JS, CRC, ARCHIVE_MODIFIED));
+
+        assertThat(tag).startsWith(QUOTE).endsWith(QUOTE);
+        assertThat(tag).isEqualTo(HttpCacheUtils.entityTag(entry(APP_JS, CRC, ARCHIVE_MODIFIED)));
+    }
+
+    @Test
+    public void entityTagChangesWithArchive() {
+        assertThat(HttpCacheUtils.entityTag(entry(APP_JS, CRC, ARCHIVE_MODIFIED)))
+                .isNotEqualTo(HttpCacheUtils.entityTag(entry(APP_JS, CRC, ARCHIVE_MODIFIED + 1)));
+    }
+
+    @Test
+    public void entityTagDiffersBetweenEntriesWithoutCrc() {
+        assertThat(HttpCacheUtils.entityTag(entry(APP_JS, NOT_SET, ARCHIVE_MODIFIED)))
+                .isNotEqualTo(HttpCacheUtils.entityTag(entry(STYLES_CSS, NOT_SET, ARCHIVE_MODIFIED)));
+    }
+
+    @Test
+    public void ifNoneMatchWithSameTagIsNotModified() {
+        final String tag = HttpCacheUtils.entityTag(entry(APP_JS, CRC, ARCHIVE_MODIFIED));
+
+        assertThat(HttpCacheUtils.isNotModified(tag, NOT_SET, tag, ARCHIVE_MODIFIED)).isTrue();
+        assertThat(HttpCacheUtils.isNotModified("\"other\", W/" + tag, NOT_SET, tag, ARCHIVE_MODIFIED)).isTrue();
+        assertThat(HttpCacheUtils.isNotModified("*", NOT_SET, tag, ARCHIVE_MODIFIED)).isTrue();
+    }
+
+    @Test
+    public void ifNoneMatchTakesPrecedenceOverIfModifiedSince() {
+        final String tag = HttpCacheUtils.entityTag(entry(APP_JS, CRC, ARCHIVE_MODIFIED));
+
+        assertThat(HttpCacheUtils.isNotModified("\"other\"", ARCHIVE_MODIFIED, tag, ARCHIVE_MODIFIED)).isFalse();
+    }
+
+    @Test
+    public void ifModifiedSinceComparesWholeSeconds() {
+        final String tag = HttpCacheUtils.entityTag(entry(APP_JS, CRC, ARCHIVE_MODIFIED + 999));
+
+        assertThat(HttpCacheUtils.isNotModified(null, ARCHIVE_MODIFIED, tag, ARCHIVE_MODIFIED + 999)).isTrue();
+        assertThat(HttpCacheUtils.isNotModified(null, ARCHIVE_MODIFIED - 1000, tag, ARCHIVE_MODIFIED)).isFalse();
+    }
+
+    @Test
+    public void withoutValidatorsIsModified() {
+        final String tag = HttpCacheUtils.entityTag(entry(APP_JS, CRC, ARCHIVE_MODIFIED));
+
+        assertThat(HttpCacheUtils.isNotModified(null, NOT_SET, tag, ARCHIVE_MODIFIED)).isFalse();
+        assertThat(HttpCacheUtils.isNotModified(null, ARCHIVE_MODIFIED, tag, 0L)).isFalse();
+    }
+}
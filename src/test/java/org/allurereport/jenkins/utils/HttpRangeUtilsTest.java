@@ -0,0 +1,109 @@
+/*
+ *  Copyright 2016-2023 Qameta Software OÜ
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.allurereport.jenkins.utils;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class HttpRangeUtilsTest {
+
+    private static final long LENGTH = 1000L;
+    private static final String ETAG = "\"abc-1\"";
+    private static final long LAST_MODIFIED = 1_700_000_000_000L;
+    private static final String CONTENT = "0123456789abcdefghij";
+    private static final String TEXT_PLAIN = "text/plain";
+    private static final String BOUNDARY = "b0undary";
+
+    private static List<HttpRangeUtils.Range> parse(final String header) {
+        return HttpRangeUtils.parse(header, LENGTH);
+    }
+
+    @Test
+    public void parsesSingleRanges() {
+        assertThat(parse("bytes=0-99")).singleElement()
+                .satisfies(range -> assertThat(range.getLength()).isEqualTo(100));
+        assertThat(parse("bytes=900-")).singleElement()
+                .satisfies(range -> assertThat(range.getEnd()).isEqualTo(LENGTH - 1));
+        assertThat(parse("bytes=-100")).singleElement()
+                .satisfies(range -> assertThat(range.getStart()).isEqualTo(900));
+        assertThat(parse("bytes=990-5000")).singleElement()
+                .satisfies(range -> assertThat(range.getEnd()).isEqualTo(LENGTH - 1));
+    }
+
+    @Test
+    public void sortsAndMergesMultipleRanges() {
+        final List<HttpRangeUtils.Range> ranges = parse("bytes=500-599, 0-9, 5-19, 20-29");
+
+        assertThat(ranges).hasSize(2);
+        assertThat(ranges.get(0).getStart()).isZero();
+        assertThat(ranges.get(0).getEnd()).isEqualTo(29);
+        assertThat(ranges.get(1).getStart()).isEqualTo(500);
+    }
+
+    @Test
+    public void unsatisfiableRangesAreEmpty() {
+        assertThat(parse("bytes=1000-1100")).isEmpty();
+        assertThat(parse("bytes=-0")).isEmpty();
+    }
+
+    @Test
+    public void malformedRangesAreIgnored() {
+        assertThat(parse("items=0-10")).isNull();
+        assertThat(parse("bytes=10-5")).isNull();
+        assertThat(parse("bytes=abc")).isNull();
+        assertThat(parse("bytes=" + "0-1,".repeat(40))).isNull();
+    }
+
+    @Test
+    public void ifRangeComparesEntityTagsStrongly() {
+        assertThat(HttpRangeUtils.ifRangeMatches(ETAG, -1L, ETAG, LAST_MODIFIED)).isTrue();
+        assertThat(HttpRangeUtils.ifRangeMatches("W/" + ETAG, -1L, ETAG, LAST_MODIFIED)).isFalse();
+        assertThat(HttpRangeUtils.ifRangeMatches(ETAG, -1L, null, LAST_MODIFIED)).isFalse();
+    }
+
+    @Test
+    public void ifRangeComparesDatesToTheSecond() {
+        final String date = "Tue, 14 Nov 2023 22:13:20 GMT";
+
+        assertThat(HttpRangeUtils.ifRangeMatches(date, LAST_MODIFIED, ETAG, LAST_MODIFIED + 500)).isTrue();
+        assertThat(HttpRangeUtils.ifRangeMatches(date, LAST_MODIFIED, ETAG, LAST_MODIFIED + 5000)).isFalse();
+        assertThat(HttpRangeUtils.ifRangeMatches(date, -1L, ETAG, LAST_MODIFIED)).isFalse();
+    }
+
+    @Test
+    public void writesMultipartByteranges() throws IOException {
+        final byte[] content = CONTENT.getBytes(StandardCharsets.US_ASCII);
+        final List<HttpRangeUtils.Range> ranges = HttpRangeUtils.parse("bytes=0-1,-3", content.length);
+
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        HttpRangeUtils.writeMultipart(new ByteArrayInputStream(content), content.length, ranges,
+                TEXT_PLAIN, BOUNDARY, out);
+
+        assertThat(out.size())
+                .isEqualTo(HttpRangeUtils.multipartLength(content.length, ranges, TEXT_PLAIN, BOUNDARY));
+        assertThat(out.toString(StandardCharsets.US_ASCII)).isEqualTo(
+                "\r\n--b0undary\r\nContent-Type: text/plain\r\nContent-Range: bytes 0-1/20\r\n\r\n01"
+                        + "\r\n--b0undary\r\nContent-Type: text/plain\r\nContent-Range: bytes 17-19/20\r\n\r\nhij"
+                        + "\r\n--b0undary--\r\n");
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ *  Copyright 2016-2023 Qameta Software OÜ
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.allurereport.jenkins.utils;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class JsonUtilsTest {
+
+    private static final String UNKNOWN = "unknown";
+
+    private static InputStream json(final String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void hasElementsChecksFirstElementOnly() throws IOException {
+        assertThat(JsonUtils.hasElements(json("{\"a\":{\"items\":[]},\"b\":"))).isTrue();
+        assertThat(JsonUtils.hasElements(json("[1,"))).isTrue();
+        assertThat(JsonUtils.hasElements(json("{}"))).isFalse();
+        assertThat(JsonUtils.hasElements(json("[]"))).isFalse();
+        assertThat(JsonUtils.hasElements(json(""))).isFalse();
+    }
+
+    @Test
+    public void readStatusSkipsOtherFields() throws IOException {
+        assertThat(JsonUtils.readStatus(json("{\"steps\":[{\"status\":\"failed\"}],\"status\":\"PASSED\"}")))
+                .isEqualTo("passed");
+        assertThat(JsonUtils.readStatus(json("{\"status\":null}"))).isEqualTo(UNKNOWN);
+        assertThat(JsonUtils.readStatus(json("{\"name\":\"test\"}"))).isEqualTo(UNKNOWN);
+    }
+
+    @Test
+    public void readSummaryPrefersStatisticObject() throws IOException {
+        final BuildSummary summary = JsonUtils.readSummary(json(
+                "{\"passed\":9,\"statistic\":{\"passed\":3,\"failed\":\"2\",\"extra\":{}},\"time\":{\"duration\":42}}"),
+                false);
+
+        assertThat(summary.getPassedCount()).isEqualTo(3);
+        assertThat(summary.getFailedCount()).isEqualTo(2);
+        assertThat(summary.getDuration()).isEqualTo(42L);
+    }
+
+    @Test
+    public void readSummaryFallsBackToRootCounters() throws IOException {
+        final BuildSummary summary = JsonUtils.readSummary(json("{\"passed\":4,\"broken\":1,\"duration\":7}"), false);
+
+        assertThat(summary.getPassedCount()).isEqualTo(4);
+        assertThat(summary.getBrokenCount()).isEqualTo(1);
+        assertThat(summary.getDuration()).isEqualTo(7L);
+    }
+
+    @Test
+    public void readSummaryWithRequiredStatisticIgnoresRootCounters() throws IOException {
+        final BuildSummary summary = JsonUtils.readSummary(json("{\"passed\":4,\"duration\":7}"), true);
+
+        assertThat(summary.getPassedCount()).isZero();
+        assertThat(summary.getDuration()).isZero();
+        assertThat(JsonUtils.readSummary(json("{\"statistic\":{\"failed\":\"2\"}}"), true).getFailedCount())
+                .isZero();
+    }
+
+    @Test
+    public void readTestResultReadsIndexFields() throws IOException {
+        final AllureTestIndex.Entry entry = JsonUtils.readTestResult(json("{\"name\":\"login\",\"steps\":[{\"name\":"
+                + "\"step\",\"status\":\"passed\"}],\"historyId\":\"abc\",\"status\":\"FAILED\","
+                + "\"start\":100,\"stop\":130}"));
+
+        assertThat(entry.getHistoryId()).isEqualTo("abc");
+        assertThat(entry.getName()).isEqualTo("login");
+        assertThat(entry.getStatus()).isEqualTo("failed");
+        assertThat(entry.getStart()).isEqualTo(100L);
+        assertThat(entry.getDuration()).isEqualTo(30L);
+        assertThat(JsonUtils.readTestResult(json("{\"name\":\"no history\"}"))).isNull();
+    }
+}
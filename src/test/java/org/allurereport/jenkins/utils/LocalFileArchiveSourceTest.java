@@ -44,6 +44,7 @@ public class LocalFileArchiveSourceTest {
     private static final String SUMMARY_CONTENT = "{\"statistic\":{}}";
     private static final String MISSING_FILE = "missing/file.html";
     private static final String HISTORY_PREFIX = "allure-report/history";
+    private static final String HISTORY_FILE = "history.json";
     private static final String SLASH = "/";
 
     @Rule
@@ -160,7 +161,7 @@ public class LocalFileArchiveSourceTest {
 
     @Test
     public void listEntriesDirectoryEntriesExcluded() throws IOException {
-        final File zipFile = createZipWithDirectory(HISTORY_PREFIX, "history.json", HISTORY_CONTENT);
+        final File zipFile = createZipWithDirectory(HISTORY_PREFIX, HISTORY_FILE, HISTORY_CONTENT);
         try (LocalFileArchiveSource source = new LocalFileArchiveSource(new FilePath(zipFile))) {
             final List<String> entries = source.listEntries(HISTORY_PREFIX);
 
@@ -170,6 +171,16 @@ public class LocalFileArchiveSourceTest {
         }
     }
 
+    @Test
+    public void existsEntryMatchesFilesOnly() throws IOException {
+        final File zipFile = createZipWithDirectory(HISTORY_PREFIX, HISTORY_FILE, HISTORY_CONTENT);
+        try (LocalFileArchiveSource source = new LocalFileArchiveSource(new FilePath(zipFile))) {
+            assertThat(source.exists(HISTORY_JSON)).isTrue();
+            assertThat(source.exists(HISTORY_PREFIX + SLASH)).isFalse();
+            assertThat(source.exists(MISSING_FILE)).isFalse();
+        }
+    }
+
     @Test
     public void closeWhenNotOpenedDoesNotThrow() throws IOException {
         final File zipFile = createZipFile(INDEX_HTML, INDEX_CONTENT);
@@ -214,4 +225,26 @@ public class LocalFileArchiveSourceTest {
         }
         source.close();
     }
+
+    @Test
+    public void entryInfoDescribesEntryAndArchive() throws IOException {
+        final File zipFile = createZipFile(INDEX_HTML, INDEX_CONTENT);
+        try (LocalFileArchiveSource source = new LocalFileArchiveSource(new FilePath(zipFile))) {
+            final ArchiveEntryInfo info = source.entryInfo(INDEX_HTML);
+
+            assertThat(info).isNotNull();
+            assertThat(info.getSize()).isEqualTo(INDEX_CONTENT.getBytes(StandardCharsets.UTF_8).length);
+            assertThat(info.getCrc()).isNotNegative();
+            assertThat(info.getArchiveLastModified()).isEqualTo(zipFile.lastModified());
+            assertThat(info.getArchiveLength()).isEqualTo(zipFile.length());
+        }
+    }
+
+    @Test
+    public void entryInfoMissingEntryReturnsNull() throws IOException {
+        final File zipFile = createZipFile(INDEX_HTML, INDEX_CONTENT);
+        try (LocalFileArchiveSource source = new LocalFileArchiveSource(new FilePath(zipFile))) {
+            assertThat(source.entryInfo(MISSING_FILE)).isNull();
+        }
+    }
 }
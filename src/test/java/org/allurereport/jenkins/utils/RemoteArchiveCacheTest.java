@@ -0,0 +1,178 @@
+/*
+ *  Copyright 2016-2023 Qameta Software OÜ
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.allurereport.jenkins.utils;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RemoteArchiveCacheTest {
+
+    private static final String FIRST = "first";
+    private static final String SECOND = "second";
+    private static final String THIRD = "third";
+    private static final int ARCHIVE_SIZE = 100;
+    private static final long LAST_MODIFIED = 1_600_000_000_000L;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final AtomicLong clock = new AtomicLong();
+    private final AtomicInteger downloads = new AtomicInteger();
+
+    private RemoteArchiveCache cache(final long maxBytes) {
+        return new RemoteArchiveCache(folder.getRoot(), maxBytes, clock::incrementAndGet);
+    }
+
+    private RemoteArchiveCache.Download content(final int size) {
+        return () -> {
+            downloads.incrementAndGet();
+            return new ByteArrayInputStream(new byte[size]);
+        };
+    }
+
+    @Test
+    public void fetchDownloadsOnceAndReusesCopy() throws IOException {
+        final RemoteArchiveCache cache = cache(1000);
+
+        final File first = cache.fetch(FIRST, ARCHIVE_SIZE, LAST_MODIFIED, content(ARCHIVE_SIZE));
+        final File second = cache.fetch(FIRST, ARCHIVE_SIZE, LAST_MODIFIED, content(ARCHIVE_SIZE));
+
+        assertThat(first).isEqualTo(second);
+        assertThat(Files.size(first.toPath())).isEqualTo(ARCHIVE_SIZE);
+        assertThat(downloads).hasValue(1);
+    }
+
+    @Test
+    public void fetchKeepsModificationTimeOfRemoteArchive() {
+        final RemoteArchiveCache cache = cache(1000);
+
+        final File copy = cache.fetch(FIRST, ARCHIVE_SIZE, LAST_MODIFIED, content(ARCHIVE_SIZE));
+
+        assertThat(copy.lastModified()).isEqualTo(LAST_MODIFIED);
+    }
+
+    @Test
+    public void fetchSkipsArchivesLargerThanBudget() {
+        final RemoteArchiveCache cache = cache(ARCHIVE_SIZE - 1);
+
+        assertThat(cache.fetch(FIRST, ARCHIVE_SIZE, LAST_MODIFIED, content(ARCHIVE_SIZE))).isNull();
+        assertThat(downloads).hasValue(0);
+    }
+
+    @Test
+    public void fetchDiscardsTruncatedDownload() {
+        final RemoteArchiveCache cache = cache(1000);
+
+        assertThat(cache.fetch(FIRST, ARCHIVE_SIZE, LAST_MODIFIED, content(ARCHIVE_SIZE / 2))).isNull();
+        assertThat(folder.getRoot().list()).isEmpty();
+    }
+
+    @Test
+    public void fetchEvictsLeastRecentlyUsedArchive() {
+        final RemoteArchiveCache cache = cache(2 * ARCHIVE_SIZE);
+
+        final File first = cache.fetch(FIRST, ARCHIVE_SIZE, LAST_MODIFIED, content(ARCHIVE_SIZE));
+        final File second = cache.fetch(SECOND, ARCHIVE_SIZE, LAST_MODIFIED, content(ARCHIVE_SIZE));
+        cache.fetch(FIRST, ARCHIVE_SIZE, LAST_MODIFIED, content(ARCHIVE_SIZE));
+        final File third = cache.fetch(THIRD, ARCHIVE_SIZE, LAST_MODIFIED, content(ARCHIVE_SIZE));
+
+        assertThat(first).exists();
+        assertThat(second).doesNotExist();
+        assertThat(third).exists();
+    }
+
+    @Test
+    public void concurrentFetchesShareSingleDownload() throws Exception {
+        final RemoteArchiveCache cache = cache(1000);
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final RemoteArchiveCache.Download slow = () -> {
+            downloads.incrementAndGet();
+            started.countDown();
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return new ByteArrayInputStream(new byte[ARCHIVE_SIZE]);
+        };
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            final List<Future<File>> results = new ArrayList<>();
+            results.add(executor.submit(() -> cache.fetch(FIRST, ARCHIVE_SIZE, LAST_MODIFIED, slow)));
+            assertThat(started.await(10, TimeUnit.SECONDS)).isTrue();
+            for (int i = 0; i < 3; i++) {
+                results.add(executor.submit(() -> cache.fetch(FIRST, ARCHIVE_SIZE, LAST_MODIFIED, slow)));
+            }
+            release.countDown();
+            for (Future<File> result : results) {
+                assertThat(result.get(10, TimeUnit.SECONDS)).exists();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertThat(downloads).hasValue(1);
+    }
+
+    @Test
+    public void waitingFetchesSurviveUncheckedDownloadFailure() throws Exception {
+        final RemoteArchiveCache cache = cache(1000);
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final RemoteArchiveCache.Download failing = () -> {
+            downloads.incrementAndGet();
+            started.countDown();
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            throw new IllegalStateException("artifact store unavailable");
+        };
+        final ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            final Future<File> first = executor.submit(() -> cache.fetch(FIRST, ARCHIVE_SIZE, LAST_MODIFIED, failing));
+            assertThat(started.await(10, TimeUnit.SECONDS)).isTrue();
+            final Future<File> waiting =
+                    executor.submit(() -> cache.fetch(FIRST, ARCHIVE_SIZE, LAST_MODIFIED, failing));
+            Thread.sleep(100L);
+            release.countDown();
+
+            assertThat(first.get(10, TimeUnit.SECONDS)).isNull();
+            assertThat(waiting.get(10, TimeUnit.SECONDS)).isNull();
+        } finally {
+            executor.shutdownNow();
+        }
+        assertThat(folder.getRoot().list()).isEmpty();
+    }
+}
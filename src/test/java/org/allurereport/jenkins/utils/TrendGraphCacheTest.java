@@ -0,0 +1,116 @@
+/*
+ *  Copyright 2016-2023 Qameta Software OÜ
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.allurereport.jenkins.utils;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class TrendGraphCacheTest {
+
+    private static final String FIRST = "job#1";
+    private static final String SECOND = "job#2";
+    private static final String THIRD = "job#3";
+    private static final String FAILURE = "boom";
+
+    private final AtomicInteger renders = new AtomicInteger();
+
+    private TrendGraph render() {
+        renders.incrementAndGet();
+        return new TrendGraph(new byte[]{1, 2, 3}, "<map/>");
+    }
+
+    private static void awaitQuietly(final CountDownLatch latch) throws IOException {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        }
+    }
+
+    @Test
+    public void cachedGraphIsNotRenderedAgain() throws Exception {
+        final TrendGraphCache cache = new TrendGraphCache(2);
+
+        final TrendGraph first = cache.get(FIRST, this::render);
+        final TrendGraph second = cache.get(FIRST, this::render);
+
+        assertThat(second).isSameAs(first);
+        assertThat(renders).hasValue(1);
+    }
+
+    @Test
+    public void leastRecentlyUsedGraphIsEvicted() throws Exception {
+        final TrendGraphCache cache = new TrendGraphCache(2);
+        cache.get(FIRST, this::render);
+        cache.get(SECOND, this::render);
+        cache.get(FIRST, this::render);
+
+        cache.get(THIRD, this::render);
+
+        assertThat(cache.size()).isEqualTo(2);
+        cache.get(FIRST, this::render);
+        assertThat(renders).hasValue(3);
+        cache.get(SECOND, this::render);
+        assertThat(renders).hasValue(4);
+    }
+
+    @Test
+    public void concurrentRequestsShareOneRendering() throws Exception {
+        final TrendGraphCache cache = new TrendGraphCache(2);
+        final CountDownLatch rendering = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            final Future<TrendGraph> first = executor.submit(() -> cache.get(FIRST, () -> {
+                rendering.countDown();
+                awaitQuietly(release);
+                return render();
+            }));
+            rendering.await();
+            final Thread releaser = new Thread(release::countDown);
+            releaser.start();
+
+            final TrendGraph second = cache.get(FIRST, this::render);
+
+            assertThat(second).isSameAs(first.get());
+            assertThat(renders).hasValue(1);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void failedRenderingIsRetried() throws Exception {
+        final TrendGraphCache cache = new TrendGraphCache(2);
+
+        assertThatThrownBy(() -> cache.get(FIRST, () -> {
+            throw new IOException(FAILURE);
+        })).isInstanceOf(IOException.class).hasMessage(FAILURE);
+
+        assertThat(cache.get(FIRST, this::render)).isNotNull();
+        assertThat(renders).hasValue(1);
+    }
+}
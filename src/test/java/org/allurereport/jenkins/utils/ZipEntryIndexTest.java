@@ -0,0 +1,164 @@
+/*
+ *  Copyright 2016-2023 Qameta Software OÜ
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.allurereport.jenkins.utils;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SuppressWarnings("ClassDataAbstractionCoupling")
+public class ZipEntryIndexTest {
+
+    private static final String APP_JS = "allure-report/app.js";
+    private static final String INDEX_HTML = "allure-report/index.html";
+    private static final String DATA_DIR = "allure-report/data/";
+    private static final String APP_CONTENT = "function allure() { return 'allure'; }\n".repeat(100);
+    private static final String INDEX_CONTENT = "<html>report</html>";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File createZipFile() throws IOException {
+        final File zipFile = folder.newFile("allure-report.zip");
+        try (ZipOutputStream zipOutput = new ZipOutputStream(new FileOutputStream(zipFile))) {
+            zipOutput.setComment("report archive");
+            zipOutput.putNextEntry(new ZipEntry(INDEX_HTML));
+            zipOutput.write(INDEX_CONTENT.getBytes(StandardCharsets.UTF_8));
+            zipOutput.closeEntry();
+            zipOutput.putNextEntry(new ZipEntry(DATA_DIR));
+            zipOutput.closeEntry();
+            zipOutput.putNextEntry(storedEntry(APP_JS, APP_CONTENT));
+            zipOutput.write(APP_CONTENT.getBytes(StandardCharsets.UTF_8));
+            zipOutput.closeEntry();
+        }
+        return zipFile;
+    }
+
+    private static ZipEntry storedEntry(final String name, final String content) {
+        final byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+        final CRC32 crc = new CRC32();
+        crc.update(bytes);
+        final ZipEntry entry = new ZipEntry(name);
+        entry.setMethod(ZipEntry.STORED);
+        entry.setSize(bytes.length);
+        entry.setCompressedSize(bytes.length);
+        entry.setCrc(crc.getValue());
+        return entry;
+    }
+
+    @Test
+    public void readIndexesAllEntriesSortedByName() throws IOException {
+        final ZipEntryIndex index = ZipEntryIndex.read(createZipFile());
+
+        assertThat(index.size()).isEqualTo(3);
+        assertThat(index.getEntries())
+                .extracting(ZipEntryIndex.Entry::getName)
+                .containsExactly(APP_JS, DATA_DIR, INDEX_HTML);
+        assertThat(index.find(DATA_DIR).isDirectory()).isTrue();
+        assertThat(index.find("allure-report/missing.js")).isNull();
+    }
+
+    @Test
+    public void listReturnsFileEntriesWithPrefix() throws IOException {
+        final ZipEntryIndex index = ZipEntryIndex.read(createZipFile());
+
+        assertThat(index.list("allure-report/")).containsExactly(APP_JS, INDEX_HTML);
+        assertThat(index.list("allure-report/data")).isEmpty();
+        assertThat(index.list(INDEX_HTML)).containsExactly(INDEX_HTML);
+        assertThat(index.list("allure-report/z")).isEmpty();
+    }
+
+    @Test
+    public void findReturnsCentralDirectoryMetadata() throws IOException {
+        final ZipEntryIndex index = ZipEntryIndex.read(createZipFile());
+
+        final ZipEntryIndex.Entry app = index.find(APP_JS);
+        assertThat(app.getMethod()).isEqualTo(ZipEntry.STORED);
+        assertThat(app.getSize()).isEqualTo(APP_CONTENT.length());
+        assertThat(app.getCompressedSize()).isEqualTo(APP_CONTENT.length());
+
+        final ZipEntryIndex.Entry html = index.find(INDEX_HTML);
+        assertThat(html.getMethod()).isEqualTo(ZipEntry.DEFLATED);
+        assertThat(html.getSize()).isEqualTo(INDEX_CONTENT.length());
+        final CRC32 crc = new CRC32();
+        crc.update(INDEX_CONTENT.getBytes(StandardCharsets.UTF_8));
+        assertThat(html.getCrc()).isEqualTo(crc.getValue());
+    }
+
+    @Test
+    public void openStoredReturnsRawDeflateData() throws IOException {
+        final File zipFile = createZipFile();
+        final ZipEntryIndex.Entry html = ZipEntryIndex.read(zipFile).find(INDEX_HTML);
+
+        try (InputStream raw = ZipEntryIndex.openStored(zipFile, html);
+             InputStream inflated = new InflaterInputStream(raw, new Inflater(true))) {
+            assertThat(new String(inflated.readAllBytes(), StandardCharsets.UTF_8)).isEqualTo(INDEX_CONTENT);
+        }
+    }
+
+    @Test
+    public void openStoredReadsExactlyCompressedSize() throws IOException {
+        final File zipFile = createZipFile();
+        final ZipEntryIndex.Entry app = ZipEntryIndex.read(zipFile).find(APP_JS);
+
+        try (InputStream raw = ZipEntryIndex.openStored(zipFile, app)) {
+            assertThat(new String(raw.readAllBytes(), StandardCharsets.UTF_8)).isEqualTo(APP_CONTENT);
+        }
+    }
+
+    @Test
+    public void sidecarRoundTripKeepsEntriesAndDataOffsets() throws IOException {
+        final File zipFile = createZipFile();
+        final ByteArrayOutputStream sidecar = new ByteArrayOutputStream();
+        ZipEntryIndex.writeSidecar(zipFile, sidecar);
+
+        final ZipEntryIndex index = ZipEntryIndex.readSidecar(new ByteArrayInputStream(sidecar.toByteArray()));
+
+        assertThat(index.getArchiveLength()).isEqualTo(zipFile.length());
+        assertThat(index.getEntries())
+                .extracting(ZipEntryIndex.Entry::getName)
+                .containsExactly(APP_JS, DATA_DIR, INDEX_HTML);
+        final ZipEntryIndex.Entry html = index.find(INDEX_HTML);
+        assertThat(html.getDataOffset()).isPositive();
+        try (InputStream raw = ZipEntryIndex.openStored(zipFile, html);
+             InputStream inflated = new InflaterInputStream(raw, new Inflater(true))) {
+            assertThat(new String(inflated.readAllBytes(), StandardCharsets.UTF_8)).isEqualTo(INDEX_CONTENT);
+        }
+    }
+
+    @Test
+    public void readSidecarRejectsUnknownFormat() {
+        assertThatThrownBy(() -> ZipEntryIndex.readSidecar(new ByteArrayInputStream(new byte[16])))
+                .isInstanceOf(ZipException.class);
+    }
+}
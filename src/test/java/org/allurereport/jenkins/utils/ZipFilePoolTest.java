@@ -0,0 +1,193 @@
+/*
+ *  Copyright 2016-2023 Qameta Software OÜ
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.allurereport.jenkins.utils;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class ZipFilePoolTest {
+
+    private static final String INDEX_HTML = "allure-report/index.html";
+    private static final String INDEX_CONTENT = "<html>report</html>";
+    private static final String UPDATED_CONTENT = "<html>updated</html>";
+    private static final String REPORT_ZIP = "report.zip";
+    private static final String FIRST_ZIP = "first.zip";
+    private static final String SECOND_ZIP = "second.zip";
+    private static final long IDLE_TIMEOUT = 1_000L;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final AtomicLong clock = new AtomicLong();
+
+    private File createZipFile(final String name, final String content) throws IOException {
+        final File zipFile = new File(folder.getRoot(), name);
+        try (ZipOutputStream zipOutput = new ZipOutputStream(new FileOutputStream(zipFile))) {
+            zipOutput.putNextEntry(new ZipEntry(INDEX_HTML));
+            zipOutput.write(content.getBytes(StandardCharsets.UTF_8));
+            zipOutput.closeEntry();
+        }
+        return zipFile;
+    }
+
+    private ZipFilePool newPool(final int maxOpen) {
+        return new ZipFilePool(maxOpen, IDLE_TIMEOUT, clock::get);
+    }
+
+    private static String readIndex(final ZipFile zipFile) throws IOException {
+        try (InputStream is = zipFile.getInputStream(zipFile.getEntry(INDEX_HTML))) {
+            return new String(is.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    @Test
+    public void acquireReusesOpenHandle() throws IOException {
+        final File zipFile = createZipFile(REPORT_ZIP, INDEX_CONTENT);
+        final ZipFilePool pool = newPool(4);
+
+        final ZipFile first;
+        try (ZipFilePool.Lease lease = pool.acquire(zipFile)) {
+            first = lease.getZipFile();
+        }
+        try (ZipFilePool.Lease lease = pool.acquire(zipFile)) {
+            assertThat(lease.getZipFile()).isSameAs(first);
+            assertThat(readIndex(lease.getZipFile())).isEqualTo(INDEX_CONTENT);
+        }
+        assertThat(pool.size()).isEqualTo(1);
+    }
+
+    @Test
+    public void acquireReopensRewrittenArchive() throws IOException {
+        final File zipFile = createZipFile(REPORT_ZIP, INDEX_CONTENT);
+        final ZipFilePool pool = newPool(4);
+
+        final ZipFile first;
+        try (ZipFilePool.Lease lease = pool.acquire(zipFile)) {
+            first = lease.getZipFile();
+        }
+        createZipFile(REPORT_ZIP, UPDATED_CONTENT);
+        assertThat(zipFile.setLastModified(zipFile.lastModified() + 10_000L)).isTrue();
+
+        try (ZipFilePool.Lease lease = pool.acquire(zipFile)) {
+            assertThat(lease.getZipFile()).isNotSameAs(first);
+            assertThat(readIndex(lease.getZipFile())).isEqualTo(UPDATED_CONTENT);
+        }
+        assertThat(pool.size()).isEqualTo(1);
+        assertThatThrownBy(first::size).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    public void leastRecentlyUsedHandleIsEvictedOverCapacity() throws IOException {
+        final File firstZip = createZipFile(FIRST_ZIP, INDEX_CONTENT);
+        final File secondZip = createZipFile(SECOND_ZIP, INDEX_CONTENT);
+        final ZipFilePool pool = newPool(1);
+
+        final ZipFile first;
+        try (ZipFilePool.Lease lease = pool.acquire(firstZip)) {
+            first = lease.getZipFile();
+        }
+        try (ZipFilePool.Lease lease = pool.acquire(secondZip)) {
+            assertThat(readIndex(lease.getZipFile())).isEqualTo(INDEX_CONTENT);
+        }
+
+        assertThat(pool.size()).isEqualTo(1);
+        assertThatThrownBy(first::size).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    public void leasedHandleIsNotEvicted() throws IOException {
+        final File firstZip = createZipFile(FIRST_ZIP, INDEX_CONTENT);
+        final File secondZip = createZipFile(SECOND_ZIP, INDEX_CONTENT);
+        final ZipFilePool pool = newPool(1);
+
+        try (ZipFilePool.Lease firstLease = pool.acquire(firstZip);
+             ZipFilePool.Lease secondLease = pool.acquire(secondZip)) {
+            clock.addAndGet(IDLE_TIMEOUT * 2);
+            assertThat(readIndex(firstLease.getZipFile())).isEqualTo(INDEX_CONTENT);
+            assertThat(readIndex(secondLease.getZipFile())).isEqualTo(INDEX_CONTENT);
+            assertThat(pool.size()).isEqualTo(2);
+        }
+        assertThat(pool.size()).isEqualTo(1);
+    }
+
+    @Test
+    public void idleHandleIsEvicted() throws IOException {
+        final File firstZip = createZipFile(FIRST_ZIP, INDEX_CONTENT);
+        final File secondZip = createZipFile(SECOND_ZIP, INDEX_CONTENT);
+        final ZipFilePool pool = newPool(4);
+
+        final ZipFile first;
+        try (ZipFilePool.Lease lease = pool.acquire(firstZip)) {
+            first = lease.getZipFile();
+        }
+        clock.addAndGet(IDLE_TIMEOUT);
+        pool.acquire(secondZip).close();
+
+        assertThat(pool.size()).isEqualTo(1);
+        assertThatThrownBy(first::size).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    public void invalidateClosesHandleAfterRelease() throws IOException {
+        final File zipFile = createZipFile(REPORT_ZIP, INDEX_CONTENT);
+        final ZipFilePool pool = newPool(4);
+
+        final ZipFilePool.Lease lease = pool.acquire(zipFile);
+        pool.invalidate(zipFile);
+        assertThat(pool.size()).isZero();
+        assertThat(readIndex(lease.getZipFile())).isEqualTo(INDEX_CONTENT);
+
+        lease.close();
+        assertThatThrownBy(lease.getZipFile()::size).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    public void closingLeaseTwiceReleasesOnce() throws IOException {
+        final File zipFile = createZipFile(REPORT_ZIP, INDEX_CONTENT);
+        final ZipFilePool pool = newPool(4);
+
+        final ZipFilePool.Lease first = pool.acquire(zipFile);
+        try (ZipFilePool.Lease second = pool.acquire(zipFile)) {
+            first.close();
+            first.close();
+            pool.invalidate(zipFile);
+            assertThat(readIndex(second.getZipFile())).isEqualTo(INDEX_CONTENT);
+        }
+    }
+
+    @Test
+    public void acquireMissingArchiveThrowsAndDoesNotLeak() {
+        final File missing = new File(folder.getRoot(), "missing.zip");
+        final ZipFilePool pool = newPool(4);
+
+        assertThatThrownBy(() -> pool.acquire(missing)).isInstanceOf(IOException.class);
+        assertThat(pool.size()).isZero();
+    }
+}
@@ -6,6 +6,7 @@ freeStyleJob('allure') {
             property('key', 'value')
             includeProperties(true)
             resultPolicy('FAILURE_IF_FAILED_OR_BROKEN')
+            retryPolicy('KEEP_LAST_ATTEMPT_WITH_RETRIES')
             unstableThresholdPercent(50)
             failureThresholdCount(2)
             reportName('Team Allure')